@@ -3,9 +3,7 @@ package web20242.webcourse;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.web.client.RestTemplate;
 
 @SpringBootApplication
 //@EnableScheduling
@@ -32,9 +30,5 @@ public class WebcourseApplication {
 		SpringApplication.run(WebcourseApplication.class, args);
 
 	}
-	@Bean
-	public RestTemplate restTemplate() {
-		return new RestTemplate();
-	}
 
 }
@@ -0,0 +1,63 @@
+package web20242.webcourse.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Pool dùng chung cho các endpoint xử lý nhiều file (upload R2, sinh quiz).
+    // Hàng đợi có giới hạn; khi đầy thì luồng request tự chạy task (CallerRunsPolicy) thay vì từ chối.
+    @Bean(name = "fileBatchExecutor", destroyMethod = "shutdown")
+    public ExecutorService fileBatchExecutor(@Value("${batch.executor.threads:8}") int threads,
+                                             @Value("${batch.executor.queue-capacity:100}") int queueCapacity) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "file-batch-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Upload R2 chạy song song với việc trích xuất PDF bên trong một task của fileBatchExecutor.
+    // Tách pool riêng để task cha chờ task con không chiếm hết luồng của cùng một pool (deadlock).
+    @Bean(name = "uploadExecutor", destroyMethod = "shutdown")
+    public ExecutorService uploadExecutor(@Value("${upload.executor.threads:8}") int threads) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                runnable -> new Thread(runnable, "r2-upload-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    // Job sinh quiz chạy nền: giới hạn số job chạy cùng lúc; hàng đợi đầy thì từ chối (API trả 503)
+    @Bean(name = "quizJobExecutor", destroyMethod = "shutdown")
+    public ExecutorService quizJobExecutor(@Value("${jobs.workers:2}") int workers,
+                                           @Value("${jobs.queue-capacity:20}") int queueCapacity) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "quiz-job-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Lời gọi LLM cho từng đoạn của một PDF dài; số luồng là số đoạn chạy song song, không phải giới hạn của cả ứng dụng
+    // (PDF một đoạn gọi trên luồng request, hàng đợi đầy thì CallerRunsPolicy cũng chạy trên luồng gọi).
+    // Giới hạn số lời gọi LLM cùng lúc là bulkhead trong LlmCallGuard.
+    // Pool riêng vì task cha (fileBatchExecutor / quizJobExecutor) chờ các đoạn này.
+    @Bean(name = "llmExecutor", destroyMethod = "shutdown")
+    public ExecutorService llmExecutor(@Value("${llm.chunk.concurrency:4}") int concurrency,
+                                       @Value("${llm.chunk.queue-capacity:200}") int queueCapacity) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "llm-" + threadIndex.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -0,0 +1,82 @@
+package web20242.webcourse.configuration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+import web20242.webcourse.service.http.OutboundHttpMetrics;
+
+// HTTP client gọi ra ngoài: một connection pool (keep-alive) dùng chung, mỗi target một RestTemplate với
+// response timeout riêng. restTemplate: mặc định (tải PDF, ...); llmRestTemplate: gọi LLM, timeout dài hơn.
+@Configuration
+public class HttpClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager outboundConnectionManager(
+            @Value("${http.client.max-total:50}") int maxTotal,
+            @Value("${http.client.max-per-route:20}") int maxPerRoute,
+            @Value("${http.client.connect-timeout-ms:3000}") long connectTimeoutMillis) {
+        return connectionManager(maxTotal, maxPerRoute, connectTimeoutMillis);
+    }
+
+    @Bean
+    public OutboundHttpMetrics outboundHttpMetrics(PoolingHttpClientConnectionManager outboundConnectionManager) {
+        return new OutboundHttpMetrics(outboundConnectionManager);
+    }
+
+    @Bean
+    @Primary
+    public RestTemplate restTemplate(PoolingHttpClientConnectionManager outboundConnectionManager,
+                                     OutboundHttpMetrics outboundHttpMetrics,
+                                     @Value("${http.client.default.response-timeout-ms:15000}") long responseTimeoutMillis) {
+        return buildRestTemplate("default", outboundConnectionManager, responseTimeoutMillis, outboundHttpMetrics);
+    }
+
+    @Bean(name = "llmRestTemplate")
+    public RestTemplate llmRestTemplate(PoolingHttpClientConnectionManager outboundConnectionManager,
+                                        OutboundHttpMetrics outboundHttpMetrics,
+                                        @Value("${http.client.llm.response-timeout-ms:90000}") long responseTimeoutMillis) {
+        return buildRestTemplate("llm", outboundConnectionManager, responseTimeoutMillis, outboundHttpMetrics);
+    }
+
+    public static PoolingHttpClientConnectionManager connectionManager(int maxTotal, int maxPerRoute,
+                                                                       long connectTimeoutMillis) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+    }
+
+    // Các client dùng chung pool (connectionManagerShared), đóng một client không đóng pool
+    public static RestTemplate buildRestTemplate(String target, PoolingHttpClientConnectionManager connectionManager,
+                                                 long responseTimeoutMillis, OutboundHttpMetrics metrics) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofSeconds(5)) // chờ lấy connection khi pool hết
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMillis))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .disableAutomaticRetries() // không tự gửi lại khi 503/429, để circuit breaker thấy lỗi thật
+                .build();
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        restTemplate.getInterceptors().add(metrics.interceptor(target));
+        return restTemplate;
+    }
+}
@@ -0,0 +1,82 @@
+package web20242.webcourse.configuration;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import web20242.webcourse.model.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Danh mục index khai báo bằng code cho các truy vấn repository thường dùng.
+// Mỗi index phục vụ ít nhất một query (xem ghi chú), MongoIndexConfig tạo / kiểm tra khi khởi động.
+public final class MongoIndexCatalog {
+
+    private MongoIndexCatalog() {
+    }
+
+    // Index cũ đã được thay bằng index cùng khóa nhưng khác tùy chọn (MongoDB không cho hai index trùng khóa,
+    // mỗi collection chỉ có một text index), cần xóa trước khi tạo index mới
+    public static Map<Class<?>, List<String>> replaced() {
+        return Map.of(Review.class, List.of("courseId_userId"),
+                Course.class, List.of("Course_TextIndex"));
+    }
+
+    // CourseSearchService: $text trên tiêu đề / mô tả đã bỏ dấu (SearchText.fold) và danh mục.
+    // language "none": không stemming (MongoDB không hỗ trợ tiếng Việt)
+    public static TextIndexDefinition courseSearchText() {
+        return new TextIndexDefinition.TextIndexDefinitionBuilder()
+                .named("course_search_text")
+                .withDefaultLanguage("none")
+                .onField("searchTitle", 10F)
+                .onField("categories", 5F)
+                .onField("searchDescription", 2F)
+                .build();
+    }
+
+    public static Map<Class<?>, List<IndexDefinition>> indexes() {
+        Map<Class<?>, List<IndexDefinition>> catalog = new LinkedHashMap<>();
+        catalog.put(Course.class, List.of(courseSearchText()));
+        catalog.put(Enrollment.class, List.of(
+                // findByUserIdAndCourseId, existsBy..., deleteBy... và findByUserId (tiền tố userId)
+                new Index().on("userId", Sort.Direction.ASC).on("courseId", Sort.Direction.ASC)
+                        .unique().named("userId_courseId"),
+                // findByCourseId
+                new Index().on("courseId", Sort.Direction.ASC).named("courseId"),
+                // findByQuizScoreOfQuizId
+                new Index().on("quizScores.quizId", Sort.Direction.ASC).named("quizScores_quizId")
+        ));
+        catalog.put(Lesson.class, List.of(
+                // findByCourseId, nội dung khóa học luôn sắp xếp theo order
+                new Index().on("courseId", Sort.Direction.ASC).on("order", Sort.Direction.ASC).named("courseId_order")
+        ));
+        catalog.put(Quizzes.class, List.of(
+                new Index().on("courseId", Sort.Direction.ASC).on("order", Sort.Direction.ASC).named("courseId_order")
+        ));
+        catalog.put(Review.class, List.of(
+                // findByCourseIdAndUserId và findByCourseId (tiền tố courseId); unique để gửi đánh giá hai lần
+                // cùng lúc không bị tính điểm hai lần
+                new Index().on("courseId", Sort.Direction.ASC).on("userId", Sort.Direction.ASC)
+                        .unique().named("courseId_userId_unique")
+        ));
+        catalog.put(User.class, List.of(
+                new Index().on("username", Sort.Direction.ASC).unique().named("username"),
+                // sparse: tài khoản cũ có thể chưa có email
+                new Index().on("email", Sort.Direction.ASC).unique().sparse().named("email"),
+                // findByCoursesEnrolled, removeEnrolledCourseFromAll
+                new Index().on("courses_enrolled", Sort.Direction.ASC).named("courses_enrolled"),
+                new Index().on("role", Sort.Direction.ASC).named("role")
+        ));
+        catalog.put(Image.class, List.of(
+                new Index().on("image_url", Sort.Direction.ASC).named("image_url"),
+                new Index().on("type", Sort.Direction.ASC).named("type")
+        ));
+        catalog.put(UserDashboard.class, List.of(
+                // EnrollmentDashboardService: xóa bản tóm tắt chứa khóa học vừa thay đổi
+                new Index().on("courseIds", Sort.Direction.ASC).named("courseIds")
+        ));
+        return catalog;
+    }
+}
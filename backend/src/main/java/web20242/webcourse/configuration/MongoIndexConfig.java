@@ -0,0 +1,99 @@
+package web20242.webcourse.configuration;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import web20242.webcourse.model.Blog;
+import web20242.webcourse.model.Course;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// auto-index-creation đang tắt, nên tạo index khai báo trên entity và trong MongoIndexCatalog
+// khi ứng dụng khởi động, sau đó kiểm tra lại index nào vẫn còn thiếu
+@Configuration
+public class MongoIndexConfig {
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        ensureIndexes(Course.class);
+        ensureIndexes(Blog.class);
+        for (Map.Entry<Class<?>, List<IndexDefinition>> entry : MongoIndexCatalog.indexes().entrySet()) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entry.getKey());
+            dropReplacedIndexes(indexOps, MongoIndexCatalog.replaced().getOrDefault(entry.getKey(), List.of()), entry.getKey());
+            for (IndexDefinition index : entry.getValue()) {
+                ensureIndex(indexOps, index, entry.getKey());
+            }
+            verifyIndexes(indexOps, entry.getValue(), entry.getKey());
+        }
+    }
+
+    private void ensureIndexes(Class<?> type) {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations indexOps = mongoTemplate.indexOps(type);
+        for (IndexDefinition index : resolver.resolveIndexFor(type)) {
+            ensureIndex(indexOps, index, type);
+        }
+    }
+
+    private void dropReplacedIndexes(IndexOperations indexOps, List<String> names, Class<?> type) {
+        if (names.isEmpty()) {
+            return;
+        }
+        try {
+            Set<String> existing = indexOps.getIndexInfo().stream()
+                    .map(IndexInfo::getName)
+                    .collect(Collectors.toSet());
+            for (String name : names) {
+                if (existing.contains(name)) {
+                    indexOps.dropIndex(name);
+                    logger.info("Dropped replaced index {} on {}", name, type.getSimpleName());
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Cannot drop replaced indexes {} on {}: {}", names, type.getSimpleName(), e.getMessage());
+        }
+    }
+
+    private void ensureIndex(IndexOperations indexOps, IndexDefinition index, Class<?> type) {
+        try {
+            indexOps.ensureIndex(index);
+        } catch (Exception e) {
+            // Ví dụ: dữ liệu cũ bị trùng khiến index unique không tạo được
+            logger.error("Cannot create index {} on {}: {}", index.getIndexKeys(), type.getSimpleName(), e.getMessage());
+        }
+    }
+
+    private void verifyIndexes(IndexOperations indexOps, List<IndexDefinition> expected, Class<?> type) {
+        try {
+            Set<String> existing = indexOps.getIndexInfo().stream()
+                    .map(IndexInfo::getName)
+                    .collect(Collectors.toSet());
+            for (IndexDefinition index : expected) {
+                Document options = index.getIndexOptions();
+                String name = options.getString("name");
+                if (!existing.contains(name)) {
+                    logger.warn("Missing index {} {} on {}", name, index.getIndexKeys().toJson(), type.getSimpleName());
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Cannot verify indexes on {}: {}", type.getSimpleName(), e.getMessage());
+        }
+    }
+}
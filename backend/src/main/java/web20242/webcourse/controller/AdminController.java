@@ -11,17 +11,21 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.*;
-import web20242.webcourse.model.createRequest.OtpData;
 import web20242.webcourse.model.createRequest.RandomStringGenerator;
 import web20242.webcourse.model.User;
 import web20242.webcourse.model.constant.ERole;
 import web20242.webcourse.model.constant.EStatus;
 import web20242.webcourse.security.dto.ApiResponse;
-import web20242.webcourse.security.dto.AuthenticationResponse;
 import web20242.webcourse.security.service.AuthenticationService;
 import web20242.webcourse.security.service.JwtService;
 import web20242.webcourse.service.CourseService;
+import web20242.webcourse.service.QueryPlanReportService;
 import web20242.webcourse.service.UserService;
+import web20242.webcourse.service.cache.CatalogCache;
+import web20242.webcourse.service.http.OutboundHttpMetrics;
+import web20242.webcourse.service.llm.LlmCallGuard;
+import web20242.webcourse.service.llm.QuizResultCache;
+import web20242.webcourse.service.mail.MailOutbox;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -43,7 +47,23 @@ public class AdminController {
     @Autowired
     private CourseService courseService;
 
-    private final Map<String, OtpData> otpStorage = new HashMap<>();
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private QueryPlanReportService queryPlanReportService;
+
+    @Autowired
+    private MailOutbox mailOutbox;
+
+    @Autowired
+    private QuizResultCache quizResultCache;
+
+    @Autowired
+    private OutboundHttpMetrics outboundHttpMetrics;
+
+    @Autowired
+    private LlmCallGuard llmCallGuard;
 
 
     private String getJwtFromCookies(HttpServletRequest request) {
@@ -108,41 +128,6 @@ public class AdminController {
     public ResponseEntity<ApiResponse<String>> signupAdmin(@RequestBody User user) {
         return handleSignup(user,user.getRole());
     }
-    @PostMapping("/verify-otp")
-    public ResponseEntity<ApiResponse<AuthenticationResponse>> verifyOtp(@RequestBody Map<String, String> request) {
-        try {
-            String email = request.get("email");
-            String otp = request.get("otp");
-
-            OtpData otpData = otpStorage.get(email);
-            if (otpData == null || otpData.isExpired()) {
-                otpStorage.remove(email);
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "OTP không tồn tại hoặc đã hết hạn", null));
-            }
-            if (!otpData.getOtp().equals(otp)) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                        .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "OTP không hợp lệ", null));
-            }
-
-            User user = otpData.getUser();
-            user.setStatus(EStatus.ACTIVE);
-            user.setCreatedAt(LocalDateTime.now());
-            user.setUpdatedAt(LocalDateTime.now());
-            User createdUser = userService.createUser(user);
-
-            otpStorage.remove(email);
-
-            String token = jwtService.generateToken(userDetailsService.loadUserByUsername(createdUser.getUsername()));
-            AuthenticationResponse authResponse = new AuthenticationResponse(token);
-
-            return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Đăng ký thành công", authResponse));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new ApiResponse<>(HttpStatus.INTERNAL_SERVER_ERROR.value(), "Lỗi server: " + e.getMessage(), null));
-        }
-    }
-
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/reset-password")
     public ResponseEntity<ApiResponse<String>> resetPasswordForAdmin(@RequestBody Map<String, String> request) {
@@ -185,4 +170,36 @@ public class AdminController {
     public void updateRating(){
         courseService.updateRating();
     }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/cache-stats")
+    public ResponseEntity<?> getCacheStats(){
+        return ResponseEntity.ok(catalogCache.stats());
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/index-report")
+    public ResponseEntity<?> getIndexReport(){
+        return ResponseEntity.ok(queryPlanReportService.report());
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/mail-stats")
+    public ResponseEntity<?> getMailStats(){
+        return ResponseEntity.ok(mailOutbox.stats());
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/llm-cache-stats")
+    public ResponseEntity<?> getLlmCacheStats(){
+        return ResponseEntity.ok(quizResultCache.stats());
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/http-stats")
+    public ResponseEntity<?> getHttpStats(){
+        Map<String, Object> stats = new HashMap<>(outboundHttpMetrics.stats());
+        stats.put("llm", llmCallGuard.stats());
+        return ResponseEntity.ok(stats);
+    }
 }
@@ -1,6 +1,7 @@
 package web20242.webcourse.controller;
 
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -23,6 +24,7 @@ import web20242.webcourse.security.service.AuthenticationService;
 import web20242.webcourse.security.service.JwtService;
 import web20242.webcourse.service.EmailService;
 import web20242.webcourse.service.UserService;
+import web20242.webcourse.service.otp.OtpStore;
 import web20242.webcourse.model.User;
 import web20242.webcourse.model.constant.ERole;
 
@@ -44,19 +46,20 @@ public class AuthenticationController {
     private final JavaMailSender javaMailSender;
     private final EmailService emailService;
 
-    private final Map<String, OtpData> otpStorage = new HashMap<>();
+    private final OtpStore otpStore;
 
     // Check token
     @GetMapping("/check")
     public ResponseEntity<?> checkAuthentication(HttpServletRequest request) {
         try {
             String token = getJwtFromCookies(request);
-            if (token == null || !jwtService.validateToken(token)) {
+            Claims claims = token == null ? null : jwtService.parseToken(token);
+            if (claims == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(new ApiResponse<>(HttpStatus.UNAUTHORIZED.value(), "Authentication failed!", null));
             }
 
-            String username = jwtService.extractUsername(token);
+            String username = claims.getSubject();
             User user = userService.findByUsername(username);
             if (user == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -174,6 +177,12 @@ public class AuthenticationController {
 //        }
 //    }
 
+    private ResponseEntity<ApiResponse<String>> tooManyOtpRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(new ApiResponse<>(HttpStatus.TOO_MANY_REQUESTS.value(),
+                        "Bạn đã yêu cầu OTP quá nhiều lần, vui lòng thử lại sau", null));
+    }
+
     private String generateOTP() {
         return String.format("%06d", new Random().nextInt(999999));
     }
@@ -202,8 +211,8 @@ public class AuthenticationController {
                     .body("Không tìm thấy token. Vui lòng đăng nhập trước khi đăng xuất.");
         }
 
-        String username = jwtService.extractUsername(jwt);
-        if (username == null || !jwtService.validateToken(jwt)) {
+        Claims claims = jwtService.parseToken(jwt);
+        if (claims == null || claims.getSubject() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body("Token không hợp lệ. Vui lòng đăng nhập lại.");
         }
@@ -241,9 +250,19 @@ public class AuthenticationController {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "Email đã tồn tại", null));
             }
+            if (!otpStore.tryAcquireSend(user.getEmail())) {
+                return tooManyOtpRequests();
+            }
+            if (user.getPassword() == null || user.getPassword().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "Password is required!", null));
+            }
             String otp = generateOTP();
             user.setRole(role); // Đặt role tương ứng
-            otpStorage.put(user.getEmail(), new OtpData(otp, user));
+            // Chỉ giữ mật khẩu đã mã hóa trong OTP đang chờ, không giữ bản rõ
+            String passwordHash = userService.encodePassword(user.getPassword());
+            user.setPassword(null);
+            otpStore.save(user.getEmail(), new OtpData(otp, user, passwordHash));
             emailService.sendOtp(user.getUsername(),otp,user.getEmail());
 
             return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "OTP đã được gửi đến email", null));
@@ -258,18 +277,21 @@ public class AuthenticationController {
             String email = request.get("email");
             String otp = request.get("otp");
 
-            OtpData otpData = otpStorage.get(email);
-            if (otpData == null || otpData.isExpired()) {
-                otpStorage.remove(email);
+            OtpData otpData = otpStore.find(email).orElse(null);
+            if (otpData == null) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "OTP không tồn tại hoặc đã hết hạn", null));
             }
-            if (!otpData.getOtp().equals(otp)) {
+            if (!otpData.matches(otp)) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "OTP không hợp lệ", null));
             }
 
             User user = otpData.getUser();
+            if (user == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "OTP không hợp lệ", null));
+            }
             if(user.getRole() == null)
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "Need Role", null));
@@ -279,9 +301,9 @@ public class AuthenticationController {
                 user.setStatus(EStatus.INACTIVE);
             user.setCreatedAt(LocalDateTime.now());
             user.setUpdatedAt(LocalDateTime.now());
-            User createdUser = userService.createUser(user);
+            User createdUser = userService.createUserWithPasswordHash(user, otpData.getPasswordHash());
 
-            otpStorage.remove(email);
+            otpStore.remove(email);
 
             String token = jwtService.generateToken(userDetailsService.loadUserByUsername(createdUser.getUsername()));
             AuthenticationResponse authResponse = new AuthenticationResponse(token);
@@ -304,8 +326,11 @@ public class AuthenticationController {
                         .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "Email hoặc username không tồn tại", null));
             }
 
+            if (!otpStore.tryAcquireSend(email)) {
+                return tooManyOtpRequests();
+            }
             String otp = generateOTP();
-            otpStorage.put(email, new OtpData(otp, user));
+            otpStore.save(email, new OtpData(otp));
 
             emailService.sendOtp(user.getUsername(),otp,user.getEmail());
 
@@ -322,23 +347,26 @@ public class AuthenticationController {
             String otp = request.get("otp");
             String password = request.get("password");
 
-            OtpData otpData = otpStorage.get(email);
-            if (otpData == null || otpData.isExpired()) {
-                otpStorage.remove(email);
+            OtpData otpData = otpStore.find(email).orElse(null);
+            if (otpData == null) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "OTP không tồn tại hoặc đã hết hạn", null));
             }
-            if (!otpData.getOtp().equals(otp)) {
+            if (!otpData.matches(otp)) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                         .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "OTP không hợp lệ", null));
             }
 
-            User user = otpData.getUser();
+            User user = userService.findByEmail(email);
+            if (user == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new ApiResponse<>(HttpStatus.BAD_REQUEST.value(), "Email hoặc username không tồn tại", null));
+            }
             user.setPassword(password);
             user.setUpdatedAt(LocalDateTime.now());
             userService.updateUser(user);
 
-            otpStorage.remove(email);
+            otpStore.remove(email);
 
             return ResponseEntity.ok(new ApiResponse<>(HttpStatus.OK.value(), "Đặt lại mật khẩu thành công", null));
         } catch (Exception e) {
@@ -2,6 +2,9 @@ package web20242.webcourse.controller;
 
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -32,8 +35,12 @@ public class BlogController {
     }
 
     @GetMapping("/search/{title}")
-    public ResponseEntity<?> getTitle(@PathVariable String title){
-        List<Blog> blogs = blogRepository.findByTitleContainingIgnoreCase(title);
+    public ResponseEntity<?> getTitle(@PathVariable String title,
+                                      @RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(defaultValue = "10") int size){
+        TextCriteria criteria = TextCriteria.forDefaultLanguage().matching(title);
+        List<Blog> blogs = blogRepository.findAllBy(criteria, PageRequest.of(page, size, Sort.by("score")))
+                .getContent();
         if (blogs.isEmpty()) {
             return ResponseEntity.status(404).body("No blogs found with title: " + title);
         }
@@ -14,7 +14,9 @@ import web20242.webcourse.model.*;
 import web20242.webcourse.model.constant.EQuestion;
 import web20242.webcourse.model.constant.ERole;
 import web20242.webcourse.model.createRequest.CourseCreateRequest;
+import web20242.webcourse.model.createRequest.CourseSearchRequest;
 import web20242.webcourse.model.createRequest.QuizSubmissionRequestDto;
+import web20242.webcourse.model.createRequest.ReorderRequestDto;
 import web20242.webcourse.repository.*;
 import web20242.webcourse.service.CourseService;
 import web20242.webcourse.service.FileService;
@@ -62,14 +64,21 @@ public class CourseController {
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String teacherIds,
             @RequestParam(required = false) Double ratingMin,
-            @RequestParam(required = false) Double ratingMax) {
+            @RequestParam(required = false) Double ratingMax,
+            @RequestParam(required = false) Double priceMin,
+            @RequestParam(required = false) Double priceMax,
+            @RequestParam(required = false) String sort) {
         Pageable pageable = PageRequest.of(page, size);
-        List<String> categories = category != null ? Arrays.asList(category.split(",")) : null;
-        List<String> teacherIdList = teacherIds != null ? Arrays.asList(teacherIds.split(",")) : null;
-        Page<Map<String, Object>> coursePage = courseService.searchCourses(
-                null, categories, teacherIdList, ratingMin, ratingMax, pageable
-        );
-        return ResponseEntity.ok(coursePage);
+        CourseSearchRequest request = CourseSearchRequest.builder()
+                .categories(category != null ? Arrays.asList(category.split(",")) : null)
+                .teacherIds(teacherIds != null ? Arrays.asList(teacherIds.split(",")) : null)
+                .ratingMin(ratingMin)
+                .ratingMax(ratingMax)
+                .priceMin(priceMin)
+                .priceMax(priceMax)
+                .sort(sort)
+                .build();
+        return ResponseEntity.ok(courseService.searchCourses(request, pageable));
     }
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("/search-course-admin")
@@ -92,14 +101,22 @@ public class CourseController {
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String teacherIds,
             @RequestParam(required = false) Double ratingMin,
-            @RequestParam(required = false) Double ratingMax) {
+            @RequestParam(required = false) Double ratingMax,
+            @RequestParam(required = false) Double priceMin,
+            @RequestParam(required = false) Double priceMax,
+            @RequestParam(required = false) String sort) {
         Pageable pageable = PageRequest.of(page, size);
-        List<String> categories = category != null ? Arrays.asList(category.split(",")) : null;
-        List<String> teacherIdList = teacherIds != null ? Arrays.asList(teacherIds.split(",")) : null;
-        Page<Map<String, Object>> coursePage = courseService.searchCourses(
-                query, categories, teacherIdList, ratingMin, ratingMax, pageable
-        );
-        return ResponseEntity.ok(coursePage);
+        CourseSearchRequest request = CourseSearchRequest.builder()
+                .query(query)
+                .categories(category != null ? Arrays.asList(category.split(",")) : null)
+                .teacherIds(teacherIds != null ? Arrays.asList(teacherIds.split(",")) : null)
+                .ratingMin(ratingMin)
+                .ratingMax(ratingMax)
+                .priceMin(priceMin)
+                .priceMax(priceMax)
+                .sort(sort)
+                .build();
+        return ResponseEntity.ok(courseService.searchCourses(request, pageable));
     }
     @GetMapping("/teacher")
     public ResponseEntity<?> getTeacherForSlideBar(){
@@ -111,6 +128,12 @@ public class CourseController {
         return ResponseEntity.ok(courseService.updateTimeLimit());
     }
 
+    // Ba nhóm khóa học (DONE, INPROGRESS, NOTSTARTED) của user trong một request
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/dashboard")
+    public ResponseEntity<?> getDashboardForUser(Principal principal) {
+        return courseService.getDashboard(principal);
+    }
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/complete-course")
     public ResponseEntity<?> getCourseCompleteForUser(Principal principal) {
@@ -138,12 +161,23 @@ public class CourseController {
             @RequestParam String itemId,
             @RequestParam Integer newOrder,
             Principal principal) {
-        return ResponseEntity.ok(courseService.updateOrderForItem(itemType, new ObjectId(itemId), newOrder, principal));
+        if (!ObjectId.isValid(itemId)) {
+            return ResponseEntity.badRequest().body("Invalid itemId format");
+        }
+        return courseService.updateOrderForItem(itemType, new ObjectId(itemId), newOrder, principal);
     }
     @PreAuthorize("hasRole('ROLE_TEACHER') || hasRole('ROLE_ADMIN')")
     @PutMapping("/update-order-list")
     public ResponseEntity<?> updateOrder(@RequestBody Map<String,String> list, Principal principal) {
-        return ResponseEntity.ok(courseService.updateOrderForList(list, principal));
+        return courseService.updateOrderForList(list, principal);
+    }
+    @PreAuthorize("hasRole('ROLE_TEACHER') || hasRole('ROLE_ADMIN')")
+    @PutMapping("/reorder/{id}")        // id = Course id
+    public ResponseEntity<?> reorderCourse(@PathVariable String id, @RequestBody ReorderRequestDto request, Principal principal) {
+        if (!ObjectId.isValid(id)) {
+            return ResponseEntity.badRequest().body("Invalid course id format");
+        }
+        return courseService.reorderCourse(id, request, principal);
     }
     @PreAuthorize("hasRole('ROLE_TEACHER')")
     @GetMapping("/getlessonquiz/{id}")
@@ -505,14 +539,16 @@ public class CourseController {
 
     @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
     @GetMapping("/statistics/{id}")
-    public ResponseEntity<?> getStatistics(@PathVariable String id, Principal principal) {
+    public ResponseEntity<?> getStatistics(@PathVariable String id, Principal principal,
+                                           @RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "0") int size) {
         Course course = courseRepository.findById(new ObjectId(id)).orElse(null);
         User user = userRepository.findByUsername(principal.getName()).orElse(null);
         if(course == null || user == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course or User not found");
         }
         if (course.getTeacherId().equals(user.getId()) || user.getRole() == ERole.ROLE_ADMIN) {
-            return ResponseEntity.ok(courseService.getStatistics(course));
+            return ResponseEntity.ok(courseService.getStatistics(course, page, size));
         } else {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("You are not the teacher of this course");
         }
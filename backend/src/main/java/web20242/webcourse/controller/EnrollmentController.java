@@ -173,8 +173,7 @@ public class EnrollmentController {
     public ResponseEntity<?> deleteEnrollmentForAdmin(@RequestParam String courseId, @RequestParam String email) {
         Optional<User> userOptional = userRepository.findByEmail(email);
         if(userOptional.isPresent()){
-            enrollmentService.deleteEnrollment(courseId,userOptional.get());
-            return ResponseEntity.ok("Deleted successfully");
+            return enrollmentService.deleteEnrollment(courseId,userOptional.get());
         }
         return ResponseEntity.status(401).body("User not found");
     }
@@ -188,8 +187,7 @@ public class EnrollmentController {
             assert course != null;
             assert userTeacher != null;
             if (course.getTeacherId().equals(userTeacher.getId())) {
-                enrollmentService.deleteEnrollment(courseId, userOptional.get());
-                return ResponseEntity.ok("Deleted successfully");
+                return enrollmentService.deleteEnrollment(courseId, userOptional.get());
             }
         }
         return ResponseEntity.status(401).body("User not found");
@@ -1,5 +1,6 @@
 package web20242.webcourse.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -8,21 +9,24 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import web20242.webcourse.model.Image;
 import web20242.webcourse.model.createRequest.Logo;
+import web20242.webcourse.service.BatchRunner;
 import web20242.webcourse.service.FileService;
 
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/upload")
 public class FileController {
 
     private final FileService fileService;
+    private final BatchRunner batchRunner;
 
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, BatchRunner batchRunner) {
         this.fileService = fileService;
+        this.batchRunner = batchRunner;
     }
 
 //    @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -75,21 +79,37 @@ public class FileController {
     ) throws IOException, NoSuchAlgorithmException {
         return fileService.uploadFileR2(file);
     }
+    // Upload file lớn: body của request là nội dung file, được đẩy thẳng lên R2 theo từng part
+    @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
+    @PostMapping("/stream")
+    public String uploadStreamR2(
+            @RequestParam("filename") String filename,
+            HttpServletRequest request
+    ) throws IOException, NoSuchAlgorithmException {
+        return fileService.uploadStreamR2(request.getInputStream(), filename);
+    }
     @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
     @DeleteMapping("/image/{id}")
-    public void deleteFile(@PathVariable("id") String imageId) {
-        fileService.deleteFile(imageId);
+    public ResponseEntity<String> deleteFile(@PathVariable("id") String imageId) {
+        if (fileService.deleteFile(imageId)) {
+            return ResponseEntity.ok("Image with ID " + imageId + " deleted successfully");
+        }
+        return ResponseEntity.ok("Image with ID " + imageId + " deleted, file kept on R2 because it is still in use");
     }
     @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
     @DeleteMapping("/image/by-url")
     public ResponseEntity<String> deleteFileByUrl(@RequestParam("imageUrl") String imageUrl) {
-        fileService.deleteFileByUrl(imageUrl);
-        return ResponseEntity.ok("Image with URL " + imageUrl + " deleted successfully");
+        if (fileService.deleteFileByUrl(imageUrl)) {
+            return ResponseEntity.ok("Image with URL " + imageUrl + " deleted successfully");
+        }
+        return ResponseEntity.ok("Image with URL " + imageUrl + " deleted, file kept on R2 because it is still in use");
     }
     @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
     @DeleteMapping("/delete")
     public ResponseEntity<String> deleteFileOnR2(@RequestParam("fileUrl") String fileUrl) {
-        fileService.deleteFileOnR2ByUrl(fileUrl);
+        if (!fileService.deleteFileOnR2ByUrl(fileUrl)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("File with URL " + fileUrl + " is still in use, not deleted");
+        }
         return ResponseEntity.ok("File with URL " + fileUrl + " deleted from R2 successfully");
     }
 
@@ -99,18 +119,20 @@ public class FileController {
     }
     @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
     @PostMapping("/pdf")
-    public List<String> uploadPdfToR2(
+    public ResponseEntity<?> uploadPdfToR2(
             @RequestParam("files") List<MultipartFile> files
-    ) throws IOException, NoSuchAlgorithmException {
-        List<String> uploadedUrls = new ArrayList<>();
+    ) {
         for (MultipartFile file : files) {
             if (!isPdfFile(file)) {
                 throw new IllegalArgumentException("Only PDF files are allowed");
             }
-            String url = fileService.uploadFileR2(file);
-            uploadedUrls.add(url);
         }
-        return uploadedUrls;
+        // Upload song song; tất cả thành công thì trả về danh sách URL như trước,
+        // có file lỗi thì 500 kèm kết quả từng file (URL hoặc lỗi), các file đã upload không bị bỏ
+        List<Map<String, Object>> results = batchRunner.runAll(files, MultipartFile::getOriginalFilename,
+                fileService::uploadFileR2);
+        return BatchRunner.response(results,
+                succeeded -> succeeded.stream().map(result -> (String) result.get("result")).toList());
     }
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/logo")
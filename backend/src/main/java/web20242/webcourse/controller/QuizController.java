@@ -2,76 +2,67 @@ package web20242.webcourse.controller;
 
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
-import web20242.webcourse.model.Course;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import web20242.webcourse.model.QuizGenerationJob;
 import web20242.webcourse.model.Quizzes;
 import web20242.webcourse.model.constant.EQuestion;
-import web20242.webcourse.model.constant.EStatus;
-import web20242.webcourse.repository.CourseRepository;
+import web20242.webcourse.model.constant.ERole;
 import web20242.webcourse.repository.QuizzesRepository;
-import web20242.webcourse.service.FileService;
-import web20242.webcourse.service.QuizGenerationService;
+import web20242.webcourse.service.BatchRunner;
+import web20242.webcourse.service.QuizJobService;
+import web20242.webcourse.service.QuizPipelineService;
 
 import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
-import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.security.Principal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/quiz")
 public class QuizController {
 
-    private final FileService fileService;
-    private final QuizGenerationService quizGenerationService;
+    private final QuizPipelineService quizPipelineService;
+    private final QuizJobService quizJobService;
     private final QuizzesRepository quizRepository;
-    private final CourseRepository courseRepository;
+    private final BatchRunner batchRunner;
 
     @Autowired
-    public QuizController(FileService fileService, QuizGenerationService quizGenerationService, QuizzesRepository quizRepository, CourseRepository courseRepository) {
-        this.fileService = fileService;
-        this.quizGenerationService = quizGenerationService;
+    public QuizController(QuizPipelineService quizPipelineService, QuizJobService quizJobService,
+                          QuizzesRepository quizRepository, BatchRunner batchRunner) {
+        this.quizPipelineService = quizPipelineService;
+        this.quizJobService = quizJobService;
         this.quizRepository = quizRepository;
-        this.courseRepository = courseRepository;
+        this.batchRunner = batchRunner;
     }
 
+    // Mỗi file được xử lý song song (upload, trích xuất, gọi LLM, lưu); kết quả / lỗi trả về theo từng file,
+    // 200 khi mọi file thành công, 500 khi có file lỗi (BatchRunner.response)
     @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
     @PostMapping("/generate-from-pdf")
-    public ResponseEntity<List<Quizzes>> generateQuizFromPdf(
+    public ResponseEntity<?> generateQuizFromPdf(
             @RequestParam("files") List<MultipartFile> files,
             @RequestParam("courseId") String courseId, // Thêm courseId
             @RequestParam("type") EQuestion type
-    ) throws IOException, NoSuchAlgorithmException {
-        List<Quizzes> quizzes = new ArrayList<>();
+    ) {
+        if (!ObjectId.isValid(courseId)) {
+            return ResponseEntity.badRequest().build();
+        }
         ObjectId courseObjectId = new ObjectId(courseId); // Chuyển String thành ObjectId
-
-        for (MultipartFile file : files) {
+        List<Map<String, Object>> results = batchRunner.runAll(files, MultipartFile::getOriginalFilename, file -> {
             if (!isPdfFile(file)) {
                 throw new IllegalArgumentException("Only PDF files are allowed");
             }
-            String pdfUrl = fileService.uploadFileR2(file);
-
-            // Tạo quiz từ URL và gán courseId
-            String geminiResponse = quizGenerationService.generateQuizFromPdfUrl(pdfUrl);
-            Quizzes quiz = quizGenerationService.parseQuizFromResponse(geminiResponse);
-            quiz.setCourseId(courseObjectId); // Gán courseId cho quiz
-
-            // Lưu quiz vào MongoDB
-            quiz.setCreatedAt(LocalDateTime.now());
-            quiz.setStatus(EStatus.INACTIVE);
-            quiz.setType(type);
-            quizRepository.save(quiz);
-
-            // Cập nhật course với quiz mới
-            updateCourseWithQuiz(courseObjectId, quiz.getId());
-
-            quizzes.add(quiz);
-        }
-
-        return ResponseEntity.ok(quizzes);
+            return quizPipelineService.generateQuiz(file, file.getOriginalFilename(), courseObjectId, type, false,
+                    stage -> {});
+        });
+        return BatchRunner.response(results, succeeded -> succeeded);
     }
     @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
     @PutMapping("/fill-full")
@@ -85,47 +76,95 @@ public class QuizController {
     }
     @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
     @PostMapping("/generate-from-pdf-thpt")
-    public ResponseEntity<List<Quizzes>> generateQuizFromPdfThpt(
+    public ResponseEntity<?> generateQuizFromPdfThpt(
             @RequestParam("files") List<MultipartFile> files,
             @RequestParam("courseId") String courseId // Thêm courseId
-    ) throws IOException, NoSuchAlgorithmException {
-        List<Quizzes> quizzes = new ArrayList<>();
+    ) {
+        if (!ObjectId.isValid(courseId)) {
+            return ResponseEntity.badRequest().build();
+        }
         ObjectId courseObjectId = new ObjectId(courseId); // Chuyển String thành ObjectId
-
-        for (MultipartFile file : files) {
+        List<Map<String, Object>> results = batchRunner.runAll(files, MultipartFile::getOriginalFilename, file -> {
             if (!isPdfFile(file)) {
                 throw new IllegalArgumentException("Only PDF files are allowed");
             }
-            String pdfUrl = fileService.uploadFileR2(file);
-
-            // Tạo quiz từ URL và gán courseId
-            String geminiResponse = quizGenerationService.generateQuizFromPdfUrlForTHPTQG(pdfUrl);
-            Quizzes quiz = quizGenerationService.parseQuizFromResponse(geminiResponse);
-            quiz.setCourseId(courseObjectId); // Gán courseId cho quiz
-
-            // Lưu quiz vào MongoDB
-            quizRepository.save(quiz);
-
-            // Cập nhật course với quiz mới
-            updateCourseWithQuiz(courseObjectId, quiz.getId());
+            return quizPipelineService.generateQuiz(file, file.getOriginalFilename(), courseObjectId, null, true,
+                    stage -> {});
+        });
+        return BatchRunner.response(results, succeeded -> succeeded);
+    }
 
-            quizzes.add(quiz);
+    // Sinh quiz chạy nền: trả về jobId ngay (202), theo dõi qua GET /jobs/{id} hoặc SSE /jobs/{id}/events
+    @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitQuizJob(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam("courseId") String courseId,
+            @RequestParam(value = "type", required = false) EQuestion type,
+            @RequestParam(value = "thpt", defaultValue = "false") boolean thpt,
+            Principal principal
+    ) {
+        if (files.isEmpty() || !files.stream().allMatch(this::isPdfFile)) {
+            return ResponseEntity.badRequest().body("Only PDF files are allowed");
+        }
+        if (!ObjectId.isValid(courseId)) {
+            return ResponseEntity.badRequest().body("Invalid courseId");
+        }
+        try {
+            QuizGenerationJob job = quizJobService.submit(files, new ObjectId(courseId), type, thpt, principal.getName());
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot store uploaded files: " + e.getMessage());
         }
+    }
 
-        return ResponseEntity.ok(quizzes);
+    // Chỉ người tạo job (hoặc admin) được xem trạng thái job
+    @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getQuizJob(@PathVariable String id, Authentication authentication) {
+        if (!ObjectId.isValid(id)) {
+            return ResponseEntity.badRequest().body("Invalid job id");
+        }
+        QuizGenerationJob job = quizJobService.getJob(new ObjectId(id));
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Job not found");
+        }
+        if (!canView(job, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You do not have access to this job");
+        }
+        return ResponseEntity.ok(job);
     }
 
-    private void updateCourseWithQuiz(ObjectId courseId, ObjectId quizId) {
-        Course course = courseRepository.findById(courseId)
-                .orElseThrow(() -> new IllegalArgumentException("Course not found"));
-        if (course.getQuizzes() == null) {
-            course.setQuizzes(new ArrayList<>());
+    @PreAuthorize("hasRole('ROLE_ADMIN') || hasRole('ROLE_TEACHER')")
+    @GetMapping(value = "/jobs/{id}/events", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> streamQuizJob(@PathVariable String id, Authentication authentication)
+            throws IOException {
+        if (!ObjectId.isValid(id)) {
+            return ResponseEntity.badRequest().build();
+        }
+        QuizGenerationJob job = quizJobService.getJob(new ObjectId(id));
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        if (!canView(job, authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
         }
-        Integer timeLimit = course.getTotalTimeLimit();
-        timeLimit += quizRepository.findById(quizId).orElseThrow(() -> new IllegalArgumentException("Quiz not found")).getTimeLimit();
-        course.setTotalTimeLimit(timeLimit);
-        course.getQuizzes().add(quizId);
-        courseRepository.save(course);
+        try {
+            return ResponseEntity.ok(quizJobService.subscribe(job.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    private boolean canView(QuizGenerationJob job, Authentication authentication) {
+        return authentication.getName().equals(job.getCreatedBy())
+                || authentication.getAuthorities().stream()
+                .anyMatch(authority -> ERole.ROLE_ADMIN.name().equals(authority.getAuthority()));
     }
 
     private boolean isPdfFile(MultipartFile file) {
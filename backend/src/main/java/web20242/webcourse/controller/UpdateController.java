@@ -34,6 +34,18 @@ public class UpdateController {
         return ResponseEntity.ok(quizMigrationService.update_course_enroll());
     }
 
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/students-count")
+    public ResponseEntity<?> migrateStudentsCount(){
+        return quizMigrationService.migrateStudentsCount();
+    }
+
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/course-search")
+    public ResponseEntity<?> migrateCourseSearchFields(){
+        return quizMigrationService.migrateCourseSearchFields();
+    }
+
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("/timelimit")
     public void updateTimelimit(){
@@ -6,16 +6,18 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 import software.amazon.awssdk.services.s3.endpoints.internal.Value;
 import web20242.webcourse.model.constant.EStatus;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 
-@Document(collection = "blog")
+@Document(collection = "blog", language = "none")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,9 +30,11 @@ public class Blog {
     @Field(name="ownerId")
     private ObjectId ownerId;
 
+    @TextIndexed(weight = 5)
     @Field(name="title")
     private String title;
 
+    @TextIndexed
     @Field(name="content")
     private String content;
 
@@ -49,4 +53,7 @@ public class Blog {
     @Field(name = "created_at", targetType = FieldType.TIMESTAMP)
     private LocalDateTime createdAt;
 
+    @TextScore
+    private Float score; // Độ liên quan khi tìm kiếm full-text, không lưu vào DB
+
 }
@@ -6,6 +6,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -13,8 +15,20 @@ import web20242.webcourse.model.constant.EStatus;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Map;
 
+// Text index tìm kiếm (course_search_text) khai báo trong MongoIndexCatalog, trên searchTitle / searchDescription
+// đã bỏ dấu và categories
 @Document(collection = "courses")
+// Index cho CourseSearchService: status (so khớp bằng) đứng đầu, rồi tới trường lọc / sắp xếp
+@CompoundIndexes({
+        @CompoundIndex(name = "status_categories_rating", def = "{'status': 1, 'categories': 1, 'averageRating': -1}"),
+        @CompoundIndex(name = "status_teacher_rating", def = "{'status': 1, 'teacherId': 1, 'averageRating': -1}"),
+        @CompoundIndex(name = "status_rating", def = "{'status': 1, 'averageRating': -1}"),
+        @CompoundIndex(name = "status_price", def = "{'status': 1, 'price': 1}"),
+        @CompoundIndex(name = "status_popularity", def = "{'status': 1, 'studentsCount': -1}"),
+        @CompoundIndex(name = "status_newest", def = "{'status': 1, 'createdAt': -1}")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -29,6 +43,12 @@ public class Course {
     @Field(name = "description")
     private String description;
 
+    @Field(name = "searchTitle")
+    private String searchTitle; // title đã chuẩn hóa (SearchText.fold), chỉ dùng cho tìm kiếm
+
+    @Field(name = "searchDescription")
+    private String searchDescription; // description đã chuẩn hóa (SearchText.fold)
+
     @Field(name = "teacherId")
     private ObjectId teacherId; // ID của user có role là "TEACHER"
 
@@ -45,8 +65,8 @@ public class Course {
     @Field(name = "price")
     private Double price; // Dùng Double thay cho Number
 
-    @Field(name = "studentsEnrolled")
-    private ArrayList<ObjectId> studentsEnrolled; // Danh sách ID học viên
+    @Field(name = "studentsCount")
+    private Integer studentsCount; // Số học viên, cập nhật bằng $inc khi đăng ký / hủy đăng ký
 
     @Field(name = "lessons")
     private ArrayList<ObjectId> lessons; // Danh sách ID bài học
@@ -59,7 +79,16 @@ public class Course {
 
     @Indexed(name = "averageRating_index")
     @Field(name = "averageRating")
-    private Double averageRating;
+    private Double averageRating; // = ratingSum / ratingCount, cập nhật cùng lúc với hai trường dưới
+
+    @Field(name = "ratingSum")
+    private Integer ratingSum; // Tổng số sao của tất cả đánh giá
+
+    @Field(name = "ratingCount")
+    private Integer ratingCount; // Số lượt đánh giá
+
+    @Field(name = "ratingHistogram")
+    private Map<String, Integer> ratingHistogram; // Số lượt đánh giá theo số sao, key "1".."5"
 
     @Field(name= "request")
     private ArrayList<ObjectId> request;
@@ -0,0 +1,24 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import web20242.webcourse.model.constant.EStatus;
+
+// Một mục trong mục lục khóa học (bài học hoặc quiz), chỉ gồm các trường cần để hiển thị danh sách
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CourseOutlineItem {
+    private String type; // "LESSON" hoặc "QUIZ"
+    private ObjectId id;
+    private String title;
+    private String shortTitle; // Chỉ có ở bài học
+    private Integer order;
+    private EStatus status;
+    private Double passingScore; // Chỉ có ở quiz
+    private Integer questionCount; // Chỉ có ở quiz
+}
@@ -0,0 +1,44 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import web20242.webcourse.model.constant.EStatus;
+
+import java.time.LocalDateTime;
+
+// Một khóa học trên dashboard "khóa học của tôi": enrollment + tóm tắt khóa học (kết quả $lookup)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardCourse {
+    @Field(name = "courseId")
+    private ObjectId courseId;
+
+    @Field(name = "title")
+    private String title;
+
+    @Field(name = "thumbnail")
+    private String thumbnail;
+
+    @Field(name = "teacherName")
+    private String teacherName;
+
+    @Field(name = "status")
+    private EStatus status;
+
+    @Field(name = "progress")
+    private Double progress;
+
+    @Field(name = "timeCurrent")
+    private Integer timeCurrent;
+
+    @Field(name = "enrolledAt", targetType = FieldType.TIMESTAMP)
+    private LocalDateTime enrolledAt;
+
+    @Field(name = "completedAt", targetType = FieldType.TIMESTAMP)
+    private LocalDateTime completedAt;
+}
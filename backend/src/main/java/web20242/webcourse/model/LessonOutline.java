@@ -0,0 +1,20 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import web20242.webcourse.model.constant.EStatus;
+
+// Projection của Lesson cho mục lục: không có content, videoUrl, materials
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonOutline {
+    private ObjectId id;
+    private ObjectId courseId;
+    private String title;
+    private String shortTile;
+    private Integer order;
+    private EStatus status;
+}
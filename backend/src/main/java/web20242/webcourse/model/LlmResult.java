@@ -0,0 +1,39 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.Date;
+
+// Kết quả LLM đã sinh (quiz JSON) dùng chung giữa các instance; _id = variant:model:promptHash.
+// TTL index trên expireAt để MongoDB tự xóa kết quả cũ
+@Document(collection = "llm_results")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmResult {
+    @Id
+    private String id;
+
+    @Field(name = "promptHash")
+    private String promptHash; // SHA-256 của cả prompt (mẫu prompt + đoạn text PDF + URL tài liệu)
+
+    @Field(name = "variant")
+    private String variant; // Loại prompt: STANDARD, THPTQG
+
+    @Field(name = "model")
+    private String model;
+
+    @Field(name = "response")
+    private String response;
+
+    @Field(name = "createdAt")
+    private Date createdAt;
+
+    @Field(name = "expireAt")
+    private Date expireAt;
+}
@@ -0,0 +1,61 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import web20242.webcourse.model.constant.EMailStatus;
+
+import java.util.Date;
+import java.util.Map;
+
+// Một email trong hàng đợi gửi (outbox); lưu trong MongoDB nên không mất khi khởi động lại
+@Document(collection = "mail_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MailMessage {
+    @Id
+    private ObjectId id;
+
+    @Field(name = "to")
+    private String to;
+
+    @Field(name = "from")
+    private String from;
+
+    @Field(name = "subject")
+    private String subject;
+
+    @Field(name = "template")
+    private String template; // Tên file trong templates/, không có đuôi .hbs
+
+    @Field(name = "variables")
+    private Map<String, String> variables;
+
+    @Field(name = "status")
+    private EMailStatus status;
+
+    @Field(name = "attempts")
+    private int attempts;
+
+    @Field(name = "nextAttemptAt")
+    private Date nextAttemptAt;
+
+    @Field(name = "lockedUntil")
+    private Date lockedUntil; // Hết hạn khi worker chết giữa chừng, poller sẽ đưa lại về PENDING
+
+    @Field(name = "lastError")
+    private String lastError;
+
+    @Field(name = "createdAt")
+    private Date createdAt;
+
+    @Field(name = "sentAt")
+    private Date sentAt;
+}
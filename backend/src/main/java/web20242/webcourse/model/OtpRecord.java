@@ -0,0 +1,33 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.Date;
+
+// OTP dùng chung giữa các instance; TTL index trên expireAt để MongoDB tự xóa bản ghi hết hạn.
+// Chỉ lưu mã băm của OTP và mật khẩu đã mã hóa, không bao giờ lưu bản rõ.
+@Document(collection = "otps")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OtpRecord {
+    @Id
+    private String email;
+
+    @Field(name = "otp_hash")
+    private String otpHash; // SHA-256 của OTP
+
+    @Field(name = "user")
+    private User user; // Thông tin đăng ký đang chờ xác nhận, không có mật khẩu
+
+    @Field(name = "password_hash")
+    private String passwordHash; // BCrypt
+
+    @Field(name = "expireAt")
+    private Date expireAt;
+}
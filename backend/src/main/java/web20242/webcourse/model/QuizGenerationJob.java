@@ -0,0 +1,84 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import web20242.webcourse.model.constant.EJobStatus;
+import web20242.webcourse.model.constant.EQuestion;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+// Job sinh quiz chạy nền; client hỏi trạng thái qua /api/quiz/jobs/{id} hoặc nhận SSE
+@Document(collection = "quiz_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuizGenerationJob {
+    @Id
+    private ObjectId id;
+
+    @Field(name = "courseId")
+    private ObjectId courseId;
+
+    @Field(name = "type")
+    private EQuestion type;
+
+    @Field(name = "thpt")
+    private boolean thpt;
+
+    @Field(name = "createdBy")
+    private String createdBy;
+
+    @Field(name = "instanceId")
+    private String instanceId; // Instance đang chạy job, xem QuizJobService.failInterruptedJobs
+
+    @Field(name = "status")
+    private EJobStatus status;
+
+    @Field(name = "files")
+    private ArrayList<JobFile> files;
+
+    @Field(name = "completed")
+    private int completed; // Số file đã xử lý xong (thành công hoặc lỗi)
+
+    @Field(name = "createdAt", targetType = FieldType.TIMESTAMP)
+    private LocalDateTime createdAt;
+
+    @Field(name = "updatedAt", targetType = FieldType.TIMESTAMP)
+    private LocalDateTime updatedAt;
+
+    @Field(name = "finishedAt", targetType = FieldType.TIMESTAMP)
+    private LocalDateTime finishedAt;
+
+    public boolean isFinished() {
+        return status == EJobStatus.SUCCEEDED || status == EJobStatus.PARTIAL || status == EJobStatus.FAILED;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class JobFile {
+        @Field(name = "name")
+        private String name;
+
+        @Field(name = "status")
+        private EJobStatus status;
+
+        @Field(name = "stage")
+        private String stage; // EXTRACTING, GENERATING, SAVING
+
+        @Field(name = "quizId")
+        private ObjectId quizId;
+
+        @Field(name = "error")
+        private String error;
+    }
+}
@@ -0,0 +1,21 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import web20242.webcourse.model.constant.EStatus;
+
+// Projection của Quizzes cho mục lục: chỉ có số câu hỏi (questionCount), không có mảng questions
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuizOutline {
+    private ObjectId id;
+    private ObjectId courseId;
+    private String title;
+    private Integer order;
+    private EStatus status;
+    private Double passingScore;
+    private Integer questionCount;
+}
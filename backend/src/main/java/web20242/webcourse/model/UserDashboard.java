@@ -0,0 +1,44 @@
+package web20242.webcourse.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+// Bản tóm tắt dashboard đã tính sẵn của một user (bật bằng dashboard.materialized=true),
+// được tính lại khi enrollment của user thay đổi
+@Document(collection = "user_dashboards")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDashboard {
+    @Id
+    private ObjectId userId;
+
+    @Field(name = "buckets")
+    private ArrayList<Bucket> buckets;
+
+    @Field(name = "courseIds")
+    private ArrayList<ObjectId> courseIds; // Để xóa đúng các bản tóm tắt khi thông tin khóa học thay đổi
+
+    @Field(name = "refreshedAt")
+    private Date refreshedAt;
+
+    // Các khóa học cùng trạng thái enrollment (DONE, INPROGRESS, NOTSTARTED)
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        @Id
+        private String status;
+
+        @Field(name = "courses")
+        private ArrayList<DashboardCourse> courses;
+    }
+}
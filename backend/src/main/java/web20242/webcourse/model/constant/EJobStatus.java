@@ -0,0 +1,9 @@
+package web20242.webcourse.model.constant;
+
+public enum EJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    PARTIAL,
+    FAILED,
+}
@@ -0,0 +1,8 @@
+package web20242.webcourse.model.constant;
+
+public enum EMailStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED,
+}
@@ -0,0 +1,34 @@
+package web20242.webcourse.model.createRequest;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import web20242.webcourse.model.constant.EStatus;
+
+import java.util.List;
+
+// Tham số tìm kiếm khóa học; trường nào null thì không lọc theo trường đó
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CourseSearchRequest {
+    private String query;
+    private List<String> categories;
+    private List<String> teacherIds;
+    private Double ratingMin;
+    private Double ratingMax;
+    private Double priceMin;
+    private Double priceMax;
+    private EStatus status;
+    private String sort; // newest | rating | popularity | price | price_desc
+
+    public boolean hasFilters() {
+        return (query != null && !query.trim().isEmpty())
+                || (categories != null && !categories.isEmpty())
+                || (teacherIds != null && !teacherIds.isEmpty())
+                || ratingMin != null || ratingMax != null
+                || priceMin != null || priceMax != null;
+    }
+}
@@ -6,25 +6,51 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import web20242.webcourse.model.User;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 
+// OTP đang chờ xác nhận: chỉ giữ mã băm của OTP và mật khẩu đã mã hóa (BCrypt), không giữ bản rõ
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class OtpData {
     private static final long OTP_EXPIRY_MINUTES = 5;
-    String otp;
-    User user;
+    String otpHash;
+    User user; // Thông tin đăng ký (không có mật khẩu); null với OTP quên mật khẩu
+    String passwordHash;
     LocalDateTime expiryTime;
 
-    public OtpData(String otp, User user) {
-        this.otp = otp;
+    public OtpData(String otp, User user, String passwordHash) {
+        this.otpHash = hash(otp);
         this.user = user;
+        this.passwordHash = passwordHash;
         this.expiryTime = LocalDateTime.now().plusMinutes(OTP_EXPIRY_MINUTES);
     }
 
+    // OTP quên mật khẩu: người dùng đã tồn tại, tra lại theo email khi đặt lại mật khẩu
+    public OtpData(String otp) {
+        this(otp, null, null);
+    }
+
     public boolean isExpired() {
         return LocalDateTime.now().isAfter(expiryTime);
     }
+
+    public boolean matches(String otp) {
+        return otp != null && MessageDigest.isEqual(
+                hash(otp).getBytes(StandardCharsets.UTF_8), otpHash.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String hash(String otp) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(otp.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package web20242.webcourse.model.createRequest;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Thứ tự mới của toàn bộ bài học + quiz trong khóa học: mục đầu tiên có order = 1
+@Data
+public class ReorderRequestDto {
+    private List<String> itemIds;
+}
@@ -10,6 +10,7 @@ import web20242.webcourse.model.Enrollment;
 import web20242.webcourse.model.constant.EQuestion;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 @Data
@@ -20,7 +21,17 @@ public class Statistic {
     private ObjectId courseId;
     private ObjectId quizId;
     private String title;
-    private ArrayList<StatisticResponseDto> statisticResponseDtos;
+    private ArrayList<StatisticResponseDto> statisticResponseDtos; // Các lần làm bài của học viên trong trang hiện tại
+
+    // Tổng hợp trên toàn bộ học viên (mỗi học viên lấy điểm cao nhất), không phụ thuộc trang
+    private Integer learnerCount;
+    private Double meanScore;
+    private Double medianScore;
+    private Double passRate; // %
+    private LinkedHashMap<String, Long> histogram; // "0-10" -> số học viên, ...
+
+    private Integer page;
+    private Integer size; // 0: không phân trang
 
     @Data
     @NoArgsConstructor
@@ -1,6 +1,9 @@
 package web20242.webcourse.repository;
 
 import org.bson.types.ObjectId;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 import web20242.webcourse.model.Blog;
@@ -12,5 +15,6 @@ import java.util.List;
 public interface BlogRepository extends MongoRepository<Blog, ObjectId> {
     List<Blog> findByStatus(EStatus eStatus);
 
-    List<Blog> findByTitleContainingIgnoreCase(String title);
+    // Tìm kiếm full-text trên title + content, sắp xếp theo độ liên quan (score)
+    Page<Blog> findAllBy(TextCriteria criteria, Pageable pageable);
 }
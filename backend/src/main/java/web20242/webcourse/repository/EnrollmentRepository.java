@@ -13,8 +13,9 @@ import java.util.Optional;
 public interface EnrollmentRepository extends MongoRepository<Enrollment, ObjectId> {
     List<Enrollment> findByUserId(ObjectId userId);
     List<Enrollment> findByCourseId(ObjectId courseId);
-    List<Enrollment> findByStatus(String status);
     Optional<Enrollment> findByUserIdAndCourseId(ObjectId userId, ObjectId courseId);
+    boolean existsByUserIdAndCourseId(ObjectId userId, ObjectId courseId);
+    long deleteByUserIdAndCourseId(ObjectId userId, ObjectId courseId);
 
     @Query("{ 'quizScores.quizId' : ?0 }")
     List<Enrollment> findByQuizScoreOfQuizId(ObjectId quizId);
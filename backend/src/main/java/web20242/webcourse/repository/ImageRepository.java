@@ -6,13 +6,11 @@ import org.springframework.stereotype.Repository;
 import web20242.webcourse.model.Image;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface ImageRepository extends MongoRepository<Image, ObjectId> {
-    Optional<Image> findByImageUrl(String imageUrl);
-
-
+    // Cùng một nội dung upload nhiều lần cho cùng một URL, nên có thể có nhiều bản ghi
+    List<Image> findByImageUrl(String imageUrl);
 
     List<Image> findAllByType(String type);
 }
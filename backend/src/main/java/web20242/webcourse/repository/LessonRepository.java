@@ -2,13 +2,25 @@ package web20242.webcourse.repository;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import web20242.webcourse.model.Course;
 import  web20242.webcourse.model.Lesson;
+import web20242.webcourse.model.LessonOutline;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LessonRepository extends MongoRepository<Lesson, ObjectId> {
     List<Lesson> findByCourseId(ObjectId courseId);
+
+    // Mục lục: chỉ đọc các trường của LessonOutline, sắp xếp theo index courseId_order
+    List<LessonOutline> findOutlineByCourseIdOrderByOrderAsc(ObjectId courseId);
+
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'courseId': 1, 'title': 1, 'shortTile': 1, 'order': 1, 'status': 1 }")
+    Optional<LessonOutline> findOutlineById(ObjectId id);
+
+    List<LessonOutline> findOutlineByIdIn(Collection<ObjectId> ids);
 }
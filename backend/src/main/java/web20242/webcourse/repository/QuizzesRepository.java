@@ -1,13 +1,40 @@
 package web20242.webcourse.repository;
 
 import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
+import web20242.webcourse.model.QuizOutline;
 import web20242.webcourse.model.Quizzes;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface QuizzesRepository extends MongoRepository<Quizzes, ObjectId> {
     List<Quizzes> findByCourseId(ObjectId id);
+
+    // Mục lục: số câu hỏi tính bằng $size trên server, không tải mảng questions
+    @Aggregation(pipeline = {
+            "{ '$match': { 'courseId': ?0 } }",
+            "{ '$sort': { 'order': 1 } }",
+            "{ '$project': { 'courseId': 1, 'title': 1, 'order': 1, 'status': 1, 'passingScore': 1, "
+                    + "'questionCount': { '$size': { '$ifNull': ['$questions', []] } } } }"
+    })
+    List<QuizOutline> findOutlineByCourseId(ObjectId courseId);
+
+    @Aggregation(pipeline = {
+            "{ '$match': { '_id': ?0 } }",
+            "{ '$project': { 'courseId': 1, 'title': 1, 'order': 1, 'status': 1, 'passingScore': 1, "
+                    + "'questionCount': { '$size': { '$ifNull': ['$questions', []] } } } }"
+    })
+    Optional<QuizOutline> findOutlineById(ObjectId id);
+
+    @Aggregation(pipeline = {
+            "{ '$match': { '_id': { '$in': ?0 } } }",
+            "{ '$project': { 'courseId': 1, 'title': 1, 'order': 1, 'status': 1, 'passingScore': 1, "
+                    + "'questionCount': { '$size': { '$ifNull': ['$questions', []] } } } }"
+    })
+    List<QuizOutline> findOutlineByIdIn(Collection<ObjectId> ids);
 }
@@ -2,6 +2,8 @@ package web20242.webcourse.repository;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 import web20242.webcourse.model.Course;
 import web20242.webcourse.model.User;
@@ -18,4 +20,16 @@ public interface UserRepository extends MongoRepository<User, ObjectId> {
     List<User> findByCoursesEnrolled(ObjectId id);
 
     List<User> findByRole(ERole eRole);
+
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$addToSet': { 'courses_enrolled': ?1 } }")
+    long addEnrolledCourse(ObjectId userId, ObjectId courseId);
+
+    @Query("{ '_id': ?0 }")
+    @Update("{ '$pull': { 'courses_enrolled': ?1 } }")
+    long removeEnrolledCourse(ObjectId userId, ObjectId courseId);
+
+    @Query("{ 'courses_enrolled': ?0 }")
+    @Update("{ '$pull': { 'courses_enrolled': ?0 } }")
+    long removeEnrolledCourseFromAll(ObjectId courseId);
 }
@@ -0,0 +1,20 @@
+package web20242.webcourse.security.dto;
+
+import lombok.Getter;
+import org.bson.types.ObjectId;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+// UserDetails kèm id người dùng, để JwtService ghi claim "uid" mà không cần truy vấn lại
+@Getter
+public class AuthenticatedUser extends User {
+    private final ObjectId userId;
+
+    public AuthenticatedUser(String username, String password,
+                             Collection<? extends GrantedAuthority> authorities, ObjectId userId) {
+        super(username, password, authorities);
+        this.userId = userId;
+    }
+}
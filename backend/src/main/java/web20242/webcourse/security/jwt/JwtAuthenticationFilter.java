@@ -1,17 +1,22 @@
 package web20242.webcourse.security.jwt;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.Cookie;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.annotation.Order;
 import org.springframework.http.ResponseCookie;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.CredentialsContainer;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import web20242.webcourse.security.dto.AuthenticatedUser;
 import web20242.webcourse.security.service.JwtService;
+import web20242.webcourse.security.service.PrincipalCache;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -26,6 +31,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -43,10 +49,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        String username = jwtService.extractUsername(jwt);
+        // Parse một lần: kiểm tra chữ ký, hạn dùng và lấy claims
+        Claims claims = jwtService.parseToken(jwt);
+        if (claims == null) {
+            logger.debug("Invalid token for: " + requestURI); // logger của GenericFilterBean
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String username = claims.getSubject();
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            if (jwtService.validateToken(jwt)) { // Đổi isTokenValid thành validateToken
+            UserDetails userDetails = loadPrincipal(username);
+            if (userDetails != null && roleMatches(claims, userDetails) && userIdMatches(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities()
                 );
@@ -54,12 +68,42 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(authToken);
                // System.out.println("Authentication set for: " + username + " on " + requestURI); // Debug
             } else {
-                System.out.println("Invalid token for: " + username); // Debug
+                logger.debug("Rejected token for: " + username);
             }
         }
         filterChain.doFilter(request, response);
     }
 
+    // Chỉ truy vấn DB khi cache hết hạn hoặc vừa bị xóa (đổi trạng thái / quyền, xóa user)
+    private UserDetails loadPrincipal(String username) {
+        try {
+            return principalCache.get(username, key -> {
+                UserDetails loaded = userDetailsService.loadUserByUsername(key);
+                if (loaded instanceof CredentialsContainer credentials) {
+                    credentials.eraseCredentials(); // không giữ mật khẩu đã băm trong cache
+                }
+                return loaded;
+            });
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
+    // Token phát hành trước khi đổi quyền mang role cũ: từ chối để người dùng đăng nhập lại
+    private boolean roleMatches(Claims claims, UserDetails userDetails) {
+        String role = claims.get(JwtService.CLAIM_ROLE, String.class);
+        return role == null || userDetails.getAuthorities().stream()
+                .anyMatch(authority -> role.equals(authority.getAuthority()));
+    }
+
+    // Tài khoản bị xóa rồi đăng ký lại cùng username có id mới: token của tài khoản cũ không còn hợp lệ
+    private boolean userIdMatches(Claims claims, UserDetails userDetails) {
+        String userId = claims.get(JwtService.CLAIM_USER_ID, String.class);
+        return userId == null || !(userDetails instanceof AuthenticatedUser authenticatedUser)
+                || authenticatedUser.getUserId() == null
+                || userId.equals(authenticatedUser.getUserId().toHexString());
+    }
+
     private String getJwtFromCookies(HttpServletRequest request) {
         Cookie[] cookies = request.getCookies();
         if (cookies != null) {
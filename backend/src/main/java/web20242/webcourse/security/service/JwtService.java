@@ -3,12 +3,15 @@ package web20242.webcourse.security.service;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
+import web20242.webcourse.security.dto.AuthenticatedUser;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,6 +20,8 @@ import java.util.function.Function;
 @Service
 @RequiredArgsConstructor
 public class JwtService {
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_USER_ID = "uid";
 
     @Value("${jwt.secret}")
     private String secretKey;
@@ -24,6 +29,16 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    // Key và parser bất biến, thread-safe: tạo một lần khi khởi động thay vì mỗi lần parse
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -36,6 +51,14 @@ public class JwtService {
     public String generateToken(UserDetails userDetails) {
         try {
             Map<String, Object> claims = new HashMap<>();
+            // role và id người dùng nằm trong token đã ký, filter không cần tra cứu lại
+            userDetails.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .findFirst()
+                    .ifPresent(role -> claims.put(CLAIM_ROLE, role));
+            if (userDetails instanceof AuthenticatedUser authenticatedUser && authenticatedUser.getUserId() != null) {
+                claims.put(CLAIM_USER_ID, authenticatedUser.getUserId().toHexString());
+            }
             return createToken(claims, userDetails);
         } catch (Exception e) {
             System.out.println("Error generating token: " + e.getMessage());
@@ -44,57 +67,36 @@ public class JwtService {
     }
 
     private String createToken(Map<String, Object> claims, UserDetails userDetails) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
-                .setClaims(claims)
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .claims(claims)
+                .subject(userDetails.getUsername())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + jwtExpiration))
+                .signWith(signingKey, Jwts.SIG.HS256)
                 .compact();
     }
+
     public boolean validateToken(String token) {
+        return parseToken(token) != null;
+    }
+
+    // Kiểm tra chữ ký + hạn dùng và trả về claims trong một lần parse; null nếu token không hợp lệ
+    public Claims parseToken(String token) {
         try {
-            Jwts.parser()
-                    .setSigningKey(secretKey)
-                    .build()
-                    .parseClaimsJws(token);
-            return !isTokenExpired(token);
-        } catch (SignatureException e) {
-            return false;
-        } catch (MalformedJwtException e) {
-            return false;
-        } catch (ExpiredJwtException e) {
-            return false;
-        } catch (UnsupportedJwtException e) {
-            return false;
-        } catch (IllegalArgumentException e) {
-            return false;
+            return extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
         }
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        Claims claims = parseToken(token);
+        return claims != null && userDetails.getUsername().equals(claims.getSubject());
     }
 
+    // Parser đã kiểm tra exp, token hết hạn ném ExpiredJwtException
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return parser.parseSignedClaims(token).getPayload();
     }
-}
\ No newline at end of file
+}
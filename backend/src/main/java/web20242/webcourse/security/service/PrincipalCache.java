@@ -0,0 +1,39 @@
+package web20242.webcourse.security.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import web20242.webcourse.service.cache.TtlCache;
+
+import java.util.Map;
+import java.util.function.Function;
+
+// Cache UserDetails theo username cho JwtAuthenticationFilter, tránh truy vấn users ở mỗi request.
+// TTL ngắn; UserService xóa entry ngay khi trạng thái / quyền của người dùng thay đổi.
+@Component
+public class PrincipalCache {
+    private final TtlCache<String, UserDetails> principals;
+
+    public PrincipalCache(@Value("${security.principal-cache.max-size:1000}") int maxSize,
+                          @Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.principals = new TtlCache<>("principals", maxSize, ttlSeconds * 1000);
+    }
+
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        return principals.get(username, loader);
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            principals.invalidate(username);
+        }
+    }
+
+    public void clear() {
+        principals.clear();
+    }
+
+    public Map<String, Object> stats() {
+        return principals.stats();
+    }
+}
@@ -0,0 +1,76 @@
+package web20242.webcourse.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+// Chạy song song một tác vụ cho từng phần tử trên fileBatchExecutor và gom kết quả theo đúng thứ tự.
+// Lỗi của một phần tử chỉ nằm trong kết quả của phần tử đó, không làm hỏng cả lô.
+@Service
+public class BatchRunner {
+    @Autowired
+    @Qualifier("fileBatchExecutor")
+    private ExecutorService executor;
+
+    @FunctionalInterface
+    public interface Task<T, R> {
+        R apply(T item) throws Exception;
+    }
+
+    // Mỗi kết quả: { name, success, result } hoặc { name, success: false, error }
+    public <T, R> List<Map<String, Object>> runAll(List<T> items, Function<T, String> name, Task<T, R> task) {
+        List<CompletableFuture<R>> futures = new ArrayList<>();
+        for (T item : items) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.apply(item);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("name", name.apply(items.get(i)));
+            try {
+                result.put("result", futures.get(i).join());
+                result.put("success", true);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                result.put("success", false);
+                result.put("error", cause.getMessage());
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    public static boolean allSucceeded(List<Map<String, Object>> results) {
+        return results.stream().allMatch(result -> Boolean.TRUE.equals(result.get("success")));
+    }
+
+    // Quy tắc trạng thái chung cho các endpoint xử lý theo lô: mọi phần tử thành công thì 200 với successBody
+    // (định dạng cũ của endpoint), có phần tử lỗi thì 500 kèm kết quả từng phần tử; phần tử đã xong vẫn được giữ
+    public static ResponseEntity<?> response(List<Map<String, Object>> results,
+                                             Function<List<Map<String, Object>>, ?> successBody) {
+        if (!allSucceeded(results)) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(results);
+        }
+        return ResponseEntity.ok(successBody.apply(results));
+    }
+}
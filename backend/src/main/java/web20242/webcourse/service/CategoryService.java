@@ -2,6 +2,7 @@ package web20242.webcourse.service;
 
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -9,6 +10,8 @@ import web20242.webcourse.model.Category;
 import web20242.webcourse.model.Course;
 import web20242.webcourse.repository.CourseRepository;
 import web20242.webcourse.repository.PopularCategoryRepository;
+import web20242.webcourse.service.cache.CatalogCache;
+import web20242.webcourse.service.cache.CatalogChangedEvent;
 
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
@@ -23,9 +26,20 @@ public class CategoryService {
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private void publishCategoryChange() {
+        eventPublisher.publishEvent(new CatalogChangedEvent(this, CatalogChangedEvent.Scope.CATEGORY, null));
+    }
+
     public ResponseEntity<?> addCategory(Category category) {
         try {
             popularCategoryRepository.save(category);
+            publishCategoryChange();
             return ResponseEntity.ok("Category added successfully.");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -44,6 +58,7 @@ public class CategoryService {
                 category.setCount(course.size());
                 popularCategoryRepository.save(category);
             });
+            publishCategoryChange();
             return ResponseEntity.ok("Done!");
 
         } catch (Exception e) {
@@ -69,7 +84,9 @@ public class CategoryService {
                 categoryUpdate.setStatus(category.getStatus());
                 categoryUpdate.setUrlLogo(category.getUrlLogo());
 
-                return ResponseEntity.ok(popularCategoryRepository.save(categoryUpdate));
+                Category saved = popularCategoryRepository.save(categoryUpdate);
+                publishCategoryChange();
+                return ResponseEntity.ok(saved);
             }
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -77,18 +94,15 @@ public class CategoryService {
         }
     }
     public void updateCategoryForCourse(String prename, String lastname){
-        List<Course> courseList = courseRepository.findByCategoriesIn(Collections.singletonList(prename));
-        courseList.forEach(course -> {
-            ArrayList<String> categories = course.getCategories();
-            categories.remove(prename);
-            categories.add(lastname);
-            course.setCategories(categories);
-            courseRepository.save(course);
-        });
+        courseRepository.renameCategory(prename, lastname);
     }
     public ResponseEntity<?> getPopularCategories() {
+        return ResponseEntity.ok(catalogCache.categories().get(CatalogCache.POPULAR_CATEGORIES, key -> loadPopularCategories()));
+    }
+
+    private List<Map<String, String>> loadPopularCategories() {
         List<Category> categories = popularCategoryRepository.findByStatus(true);
-        List<Map<String, String>> result = categories.stream().map(category -> {
+        return categories.stream().map(category -> {
             Map<String, String> map = new HashMap<>();
             map.put("categoryId", category.getId().toHexString());
             map.put("categoryName", category.getCategory());
@@ -98,7 +112,6 @@ public class CategoryService {
             map.put("categoryDisplayName", category.getDisplayName());
             return map;
         }).collect(Collectors.toList());
-        return ResponseEntity.ok(result);
     }
 
     public ResponseEntity<?> updateStatusCategories(String name){
@@ -106,6 +119,7 @@ public class CategoryService {
             Category category = popularCategoryRepository.findByCategory(name);
             category.setStatus(!category.getStatus());
             popularCategoryRepository.save(category);
+            publishCategoryChange();
             return ResponseEntity.ok("Category updated successfully.");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -115,8 +129,12 @@ public class CategoryService {
     }
 
     public ResponseEntity<?> getFeaturedCategory() {
+        return ResponseEntity.ok(catalogCache.categories().get(CatalogCache.FEATURED_CATEGORIES, key -> loadFeaturedCategory()));
+    }
+
+    private List<Map<String, String>> loadFeaturedCategory() {
         List<Category> categories = popularCategoryRepository.findAll();
-        List<Map<String, String>> result = categories.stream().map(category -> {
+        return categories.stream().map(category -> {
             Map<String, String> map = new HashMap<>();
             map.put("categoryId", category.getId().toHexString());
             map.put("categoryName", category.getCategory());
@@ -125,7 +143,6 @@ public class CategoryService {
             map.put("categoryCount",count);
             return map;
         }).collect(Collectors.toList());
-        return ResponseEntity.ok(result);
     }
     public String countCategory(Category category){
         List<Course> courses = courseRepository.findByCategoriesIn(Collections.singletonList(category.getCategory()));
@@ -143,6 +160,7 @@ public class CategoryService {
             }
             removeCategory(category.get().getCategory());
             popularCategoryRepository.delete(category.get());
+            publishCategoryChange();
             return ResponseEntity.ok("Category deleted successfully.");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -150,13 +168,7 @@ public class CategoryService {
         }
     }
     public void removeCategory(String name){
-        List<Course> courseList = courseRepository.findByCategoriesIn(Collections.singletonList(name));
-        courseList.forEach(course -> {
-            ArrayList<String> categories = course.getCategories();
-            categories.remove(name);
-            course.setCategories(categories);
-            courseRepository.save(course);
-        });
+        courseRepository.removeCategory(name);
     }
     public ResponseEntity<?> getAllCategory() {
         List<Category> categories = popularCategoryRepository.findAll();
@@ -0,0 +1,152 @@
+package web20242.webcourse.service;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.CourseOutlineItem;
+import web20242.webcourse.model.LessonOutline;
+import web20242.webcourse.model.QuizOutline;
+import web20242.webcourse.repository.LessonRepository;
+import web20242.webcourse.repository.QuizzesRepository;
+import web20242.webcourse.service.cache.CatalogCache;
+
+import java.util.*;
+
+// Mục lục khóa học (bài học + quiz) chỉ với các trường hiển thị: LessonOutline / QuizOutline không đọc
+// content / materials của bài học và mảng questions của quiz (chỉ lấy số câu bằng $size). Cả hai truy vấn dùng
+// index courseId_order nên đã sắp xếp sẵn, gộp lại thành một danh sách theo order trong một lượt.
+// Kết quả được cache theo courseId (CatalogCache.outlines), xóa khi có CatalogChangedEvent CONTENT / DELETED.
+@Service
+public class CourseOutlineService {
+    public static final String LESSON = "LESSON";
+    public static final String QUIZ = "QUIZ";
+
+    private static final Comparator<Integer> ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private QuizzesRepository quizzesRepository;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    // Danh sách trả về dùng chung giữa các request, không được sửa
+    public List<CourseOutlineItem> getOutline(ObjectId courseId) {
+        return catalogCache.outlines().get(courseId.toHexString(),
+                key -> Collections.unmodifiableList(loadOutline(courseId)));
+    }
+
+    // Đọc thẳng từ MongoDB, không qua cache (dùng khi sắp xếp lại thứ tự)
+    public List<CourseOutlineItem> loadOutline(ObjectId courseId) {
+        List<CourseOutlineItem> lessons = lessonRepository.findOutlineByCourseIdOrderByOrderAsc(courseId).stream()
+                .map(CourseOutlineService::fromLesson)
+                .toList();
+        List<CourseOutlineItem> quizzes = quizzesRepository.findOutlineByCourseId(courseId).stream()
+                .map(CourseOutlineService::fromQuiz)
+                .toList();
+        return merge(lessons, quizzes);
+    }
+
+    private static CourseOutlineItem fromLesson(LessonOutline lesson) {
+        return CourseOutlineItem.builder()
+                .type(LESSON)
+                .id(lesson.getId())
+                .title(lesson.getTitle())
+                .shortTitle(lesson.getShortTile())
+                .order(lesson.getOrder())
+                .status(lesson.getStatus())
+                .build();
+    }
+
+    private static CourseOutlineItem fromQuiz(QuizOutline quiz) {
+        return CourseOutlineItem.builder()
+                .type(QUIZ)
+                .id(quiz.getId())
+                .title(quiz.getTitle())
+                .order(quiz.getOrder())
+                .status(quiz.getStatus())
+                .passingScore(quiz.getPassingScore())
+                .questionCount(quiz.getQuestionCount())
+                .build();
+    }
+
+    // Gộp hai danh sách đã sắp xếp theo order; cùng order thì bài học đứng trước
+    static List<CourseOutlineItem> merge(List<CourseOutlineItem> lessons, List<CourseOutlineItem> quizzes) {
+        List<CourseOutlineItem> outline = new ArrayList<>(lessons.size() + quizzes.size());
+        int i = 0;
+        int j = 0;
+        while (i < lessons.size() && j < quizzes.size()) {
+            if (ORDER.compare(quizzes.get(j).getOrder(), lessons.get(i).getOrder()) < 0) {
+                outline.add(quizzes.get(j++));
+            } else {
+                outline.add(lessons.get(i++));
+            }
+        }
+        outline.addAll(lessons.subList(i, lessons.size()));
+        outline.addAll(quizzes.subList(j, quizzes.size()));
+        return outline;
+    }
+
+    // Chia mục lục theo tiến độ của học viên: learned / notLearned (giữ định dạng cũ cho frontend)
+    // và outline là danh sách gộp theo order, mỗi mục có type và completed.
+    // completedIds được đưa vào HashSet nên mỗi lần kiểm tra là O(1) thay vì duyệt cả danh sách.
+    public Map<String, Object> withProgress(List<CourseOutlineItem> outline, Collection<ObjectId> completedIds) {
+        Set<ObjectId> completed = completedIds != null ? new HashSet<>(completedIds) : Collections.emptySet();
+
+        List<Map<String, Object>> learnedLessons = new ArrayList<>();
+        List<Map<String, Object>> notLearnedLessons = new ArrayList<>();
+        List<Map<String, Object>> learnedQuizzes = new ArrayList<>();
+        List<Map<String, Object>> notLearnedQuizzes = new ArrayList<>();
+        List<Map<String, Object>> items = new ArrayList<>(outline.size());
+
+        for (CourseOutlineItem item : outline) {
+            boolean done = completed.contains(item.getId());
+            Map<String, Object> entry;
+            if (LESSON.equals(item.getType())) {
+                entry = lessonEntry(item);
+                (done ? learnedLessons : notLearnedLessons).add(entry);
+            } else {
+                entry = quizEntry(item);
+                (done ? learnedQuizzes : notLearnedQuizzes).add(entry);
+            }
+            Map<String, Object> outlineEntry = new HashMap<>(entry);
+            outlineEntry.put("type", item.getType());
+            outlineEntry.put("title", item.getTitle());
+            outlineEntry.put("completed", done);
+            items.add(outlineEntry);
+        }
+
+        Map<String, Object> learned = new HashMap<>();
+        learned.put("lessons", learnedLessons);
+        learned.put("quizzes", learnedQuizzes);
+        Map<String, Object> notLearned = new HashMap<>();
+        notLearned.put("lessons", notLearnedLessons);
+        notLearned.put("quizzes", notLearnedQuizzes);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("learned", learned);
+        result.put("notLearned", notLearned);
+        result.put("outline", items);
+        return result;
+    }
+
+    private Map<String, Object> lessonEntry(CourseOutlineItem lesson) {
+        Map<String, Object> lessonMap = new HashMap<>();
+        lessonMap.put("lessonId", lesson.getId().toString());
+        lessonMap.put("lessonTitle", lesson.getTitle());
+        lessonMap.put("lessonShortTile", lesson.getShortTitle());
+        lessonMap.put("orderLesson", lesson.getOrder());
+        return lessonMap;
+    }
+
+    private Map<String, Object> quizEntry(CourseOutlineItem quiz) {
+        Map<String, Object> quizMap = new HashMap<>();
+        quizMap.put("quizId", quiz.getId().toString());
+        quizMap.put("passingScore", quiz.getPassingScore());
+        quizMap.put("questionCount", quiz.getQuestionCount());
+        quizMap.put("orderQuiz", quiz.getOrder());
+        return quizMap;
+    }
+}
@@ -0,0 +1,54 @@
+package web20242.webcourse.service;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.User;
+import web20242.webcourse.repository.UserRepository;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+// Gom toàn bộ teacherId của một trang khóa học và lấy tên giảng viên bằng một truy vấn $in duy nhất
+@Service
+public class CourseOverviewAssembler {
+    @Autowired
+    private UserRepository userRepository;
+
+    public Map<ObjectId, String> resolveTeacherNames(Collection<Course> courses) {
+        Set<ObjectId> teacherIds = courses.stream()
+                .map(Course::getTeacherId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        return resolveTeacherNamesById(teacherIds);
+    }
+
+    public Map<ObjectId, String> resolveTeacherNamesById(Collection<ObjectId> teacherIds) {
+        if (teacherIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<ObjectId, String> names = new HashMap<>();
+        for (User teacher : userRepository.findAllById(teacherIds)) {
+            names.put(teacher.getId(), teacher.getFirstName() + " " + teacher.getLastName());
+        }
+        return names;
+    }
+
+    // mapper nhận course và tên giảng viên (null nếu không tìm thấy)
+    public List<Map<String, Object>> assemble(List<Course> courses,
+                                              BiFunction<Course, String, Map<String, Object>> mapper) {
+        Map<ObjectId, String> teacherNames = resolveTeacherNames(courses);
+        return courses.stream()
+                .map(course -> mapper.apply(course, teacherNames.get(course.getTeacherId())))
+                .collect(Collectors.toList());
+    }
+
+    public Page<Map<String, Object>> assemble(Page<Course> coursePage,
+                                              BiFunction<Course, String, Map<String, Object>> mapper) {
+        Map<ObjectId, String> teacherNames = resolveTeacherNames(coursePage.getContent());
+        return coursePage.map(course -> mapper.apply(course, teacherNames.get(course.getTeacherId())));
+    }
+}
@@ -0,0 +1,177 @@
+package web20242.webcourse.service;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.client.ClientSession;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.CourseOutlineItem;
+import web20242.webcourse.model.Lesson;
+import web20242.webcourse.model.Quizzes;
+import web20242.webcourse.service.cache.CatalogChangedEvent;
+
+import java.util.*;
+
+// Sắp xếp lại bài học + quiz: kiểm tra thứ tự mới trên mục lục hiện tại (không id lạ, không trùng order),
+// rồi ghi chỉ trường order của các mục thay đổi bằng một BulkOperations UNORDERED cho mỗi collection.
+// Hai lệnh bulk chạy trong một transaction để người đọc không thấy trạng thái nửa chừng (hai mục cùng order).
+// Transaction mở bằng ClientSession riêng cho thao tác này; không khai báo MongoTransactionManager chung
+// vì như vậy mọi @Transactional đang có (vốn chưa có hiệu lực) sẽ đổi hành vi.
+@Service
+public class CourseReorderService {
+    private static final Logger logger = LoggerFactory.getLogger(CourseReorderService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoDatabaseFactory mongoDatabaseFactory;
+
+    @Autowired
+    private CourseOutlineService courseOutlineService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // false: ghi bulk không có transaction (MongoDB standalone không hỗ trợ transaction)
+    @Value("${reorder.transactional:true}")
+    private boolean transactional;
+
+    // Thứ tự đầy đủ của một khóa học: itemIds phải chứa đúng mọi bài học + quiz, mỗi mục một lần
+    public int reorder(ObjectId courseId, List<ObjectId> itemIds) {
+        return applySequence(courseId, courseOutlineService.loadOutline(courseId), itemIds);
+    }
+
+    // Chuyển một mục tới vị trí newOrder rồi đánh số lại cả khóa học từ 1
+    public int move(ObjectId courseId, String itemType, ObjectId itemId, int newOrder) {
+        List<CourseOutlineItem> outline = courseOutlineService.loadOutline(courseId);
+        List<CourseOutlineItem> items = new ArrayList<>(outline);
+        CourseOutlineItem targetItem = items.stream()
+                .filter(item -> item.getId().equals(itemId) && item.getType().equalsIgnoreCase(itemType))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Item not found in the list"));
+        items.remove(targetItem);
+
+        int insertIndex = 0;
+        for (CourseOutlineItem item : items) {
+            if (item.getOrder() != null && item.getOrder() >= newOrder) {
+                break;
+            }
+            insertIndex++;
+        }
+        items.add(insertIndex, targetItem);
+
+        List<ObjectId> itemIds = items.stream().map(CourseOutlineItem::getId).toList();
+        return applySequence(courseId, outline, itemIds);
+    }
+
+    private int applySequence(ObjectId courseId, List<CourseOutlineItem> outline, List<ObjectId> itemIds) {
+        if (itemIds.size() != outline.size()) {
+            throw new IllegalArgumentException("Expected " + outline.size() + " items, got " + itemIds.size());
+        }
+        Map<ObjectId, Integer> newOrders = new HashMap<>();
+        for (int i = 0; i < itemIds.size(); i++) {
+            if (newOrders.put(itemIds.get(i), i + 1) != null) {
+                throw new IllegalArgumentException("Duplicate item " + itemIds.get(i));
+            }
+        }
+        return apply(Map.of(courseId, outline), Map.of(courseId, newOrders));
+    }
+
+    // Đổi order của một số mục, có thể thuộc nhiều khóa học; các mục không có trong newOrders giữ nguyên order
+    public int reorder(Map<ObjectId, Map<ObjectId, Integer>> newOrdersByCourse) {
+        Map<ObjectId, List<CourseOutlineItem>> outlines = new HashMap<>();
+        newOrdersByCourse.keySet().forEach(courseId -> outlines.put(courseId, courseOutlineService.loadOutline(courseId)));
+        return apply(outlines, newOrdersByCourse);
+    }
+
+    private int apply(Map<ObjectId, List<CourseOutlineItem>> outlines, Map<ObjectId, Map<ObjectId, Integer>> newOrdersByCourse) {
+        List<CourseOutlineItem> changes = new ArrayList<>();
+        newOrdersByCourse.forEach((courseId, newOrders) ->
+                changes.addAll(validate(outlines.get(courseId), newOrders)));
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        if (transactional) {
+            try (ClientSession session = mongoDatabaseFactory.getSession(ClientSessionOptions.builder().build())) {
+                // withTransaction tự thử lại khi gặp lỗi tạm thời (TransientTransactionError)
+                session.withTransaction(() -> {
+                    write(mongoTemplate.withSession(session), changes);
+                    return null;
+                });
+            }
+        } else {
+            write(mongoTemplate, changes);
+        }
+        logger.info("Reordered {} items in {} course(s)", changes.size(), newOrdersByCourse.size());
+
+        // Phát event sau khi commit để cache mục lục không được nạp lại từ dữ liệu chưa commit
+        newOrdersByCourse.keySet().forEach(courseId ->
+                eventPublisher.publishEvent(new CatalogChangedEvent(this, CatalogChangedEvent.Scope.CONTENT, courseId)));
+        return changes.size();
+    }
+
+    // Trả về các mục có order thay đổi (order trong kết quả là order mới)
+    static List<CourseOutlineItem> validate(List<CourseOutlineItem> outline, Map<ObjectId, Integer> newOrders) {
+        Map<ObjectId, CourseOutlineItem> byId = new HashMap<>();
+        outline.forEach(item -> byId.put(item.getId(), item));
+        for (Map.Entry<ObjectId, Integer> entry : newOrders.entrySet()) {
+            if (!byId.containsKey(entry.getKey())) {
+                throw new IllegalArgumentException("Item " + entry.getKey() + " does not belong to the course");
+            }
+            if (entry.getValue() == null || entry.getValue() < 1) {
+                throw new IllegalArgumentException("Invalid order for item " + entry.getKey());
+            }
+        }
+
+        Set<Integer> orders = new HashSet<>();
+        List<CourseOutlineItem> changes = new ArrayList<>();
+        for (CourseOutlineItem item : outline) {
+            Integer order = newOrders.getOrDefault(item.getId(), item.getOrder());
+            if (order != null && !orders.add(order)) {
+                throw new IllegalArgumentException("Duplicate order " + order);
+            }
+            if (!Objects.equals(order, item.getOrder())) {
+                changes.add(CourseOutlineItem.builder().type(item.getType()).id(item.getId()).order(order).build());
+            }
+        }
+        return changes;
+    }
+
+    private void write(MongoTemplate template, List<CourseOutlineItem> changes) {
+        BulkOperations lessonOps = null;
+        BulkOperations quizOps = null;
+        for (CourseOutlineItem item : changes) {
+            Query query = Query.query(Criteria.where("_id").is(item.getId()));
+            Update update = Update.update("order", item.getOrder());
+            if (CourseOutlineService.LESSON.equals(item.getType())) {
+                if (lessonOps == null) {
+                    lessonOps = template.bulkOps(BulkOperations.BulkMode.UNORDERED, Lesson.class);
+                }
+                lessonOps.updateOne(query, update);
+            } else {
+                if (quizOps == null) {
+                    quizOps = template.bulkOps(BulkOperations.BulkMode.UNORDERED, Quizzes.class);
+                }
+                quizOps.updateOne(query, update);
+            }
+        }
+        if (lessonOps != null) {
+            lessonOps.execute();
+        }
+        if (quizOps != null) {
+            quizOps.execute();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package web20242.webcourse.service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.createRequest.CourseSearchRequest;
+import web20242.webcourse.service.search.SearchText;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Tìm kiếm khóa học: từ khóa dùng text index ($text) trên các trường đã bỏ dấu, các bộ lọc còn lại ghép thành một Criteria,
+// đếm tổng và lấy trang kết quả trong cùng một truy vấn $facet
+@Service
+public class CourseSearchService {
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public Page<Course> search(CourseSearchRequest request, Pageable pageable) {
+        List<AggregationOperation> operations = new ArrayList<>();
+        boolean textSearch = request.getQuery() != null && !request.getQuery().trim().isEmpty();
+        Sort sort = resolveSort(request.getSort());
+        if (textSearch) {
+            // $text phải nằm ở stage $match đầu tiên; dùng text index course_search_text. Từ khóa được chuẩn hóa
+            // giống searchTitle / searchDescription nên "dao tao" khớp "Đào tạo"
+            String query = SearchText.fold(request.getQuery().trim());
+            operations.add(Aggregation.match(TextCriteria.forDefaultLanguage().matching(query)));
+            operations.add(context -> new Document("$addFields",
+                    new Document("textScore", new Document("$meta", "textScore"))));
+            if (request.getSort() == null) {
+                sort = Sort.by(Sort.Direction.DESC, "textScore").and(Sort.by(Sort.Direction.ASC, "_id"));
+            }
+        }
+        operations.add(Aggregation.match(buildCriteria(request)));
+        operations.add(Aggregation.facet(Aggregation.count().as("total")).as("meta")
+                .and(
+                        Aggregation.sort(sort),
+                        Aggregation.skip(pageable.getOffset()),
+                        Aggregation.limit(pageable.getPageSize())
+                ).as("items"));
+
+        Aggregation aggregation = Aggregation.newAggregation(operations);
+        Document result = mongoTemplate.aggregate(aggregation, "courses", Document.class).getUniqueMappedResult();
+        if (result == null) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        List<Document> meta = result.getList("meta", Document.class, Collections.emptyList());
+        long total = meta.isEmpty() ? 0 : ((Number) meta.get(0).get("total")).longValue();
+        List<Course> courses = result.getList("items", Document.class, Collections.emptyList()).stream()
+                .map(document -> mongoTemplate.getConverter().read(Course.class, document))
+                .collect(Collectors.toList());
+        return new PageImpl<>(courses, pageable, total);
+    }
+
+    public Criteria buildCriteria(CourseSearchRequest request) {
+        List<Criteria> conditions = new ArrayList<>();
+
+        if (request.getStatus() != null) {
+            conditions.add(Criteria.where("status").is(request.getStatus().name()));
+        }
+        if (request.getCategories() != null && !request.getCategories().isEmpty()) {
+            conditions.add(Criteria.where("categories").in(request.getCategories()));
+        }
+        if (request.getTeacherIds() != null && !request.getTeacherIds().isEmpty()) {
+            List<ObjectId> teacherIds = request.getTeacherIds().stream()
+                    .filter(ObjectId::isValid)
+                    .map(ObjectId::new)
+                    .collect(Collectors.toList());
+            conditions.add(Criteria.where("teacherId").in(teacherIds));
+        }
+        if (request.getRatingMin() != null || request.getRatingMax() != null) {
+            Criteria rating = Criteria.where("averageRating");
+            if (request.getRatingMin() != null) {
+                rating = rating.gte(request.getRatingMin());
+            }
+            if (request.getRatingMax() != null) {
+                rating = rating.lte(request.getRatingMax());
+            }
+            conditions.add(rating);
+        }
+        if (request.getPriceMin() != null || request.getPriceMax() != null) {
+            Criteria price = Criteria.where("price");
+            if (request.getPriceMin() != null) {
+                price = price.gte(request.getPriceMin());
+            }
+            if (request.getPriceMax() != null) {
+                price = price.lte(request.getPriceMax());
+            }
+            conditions.add(price);
+        }
+        if (conditions.isEmpty()) {
+            return new Criteria();
+        }
+        return new Criteria().andOperator(conditions.toArray(new Criteria[0]));
+    }
+
+    // _id luôn là khóa phụ để phân trang ổn định khi giá trị sắp xếp trùng nhau
+    public Sort resolveSort(String sort) {
+        if (sort == null) {
+            return Sort.by(Sort.Direction.ASC, "_id");
+        }
+        return switch (sort.toLowerCase()) {
+            case "newest" -> Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "_id"));
+            case "rating" -> Sort.by(Sort.Direction.DESC, "averageRating").and(Sort.by(Sort.Direction.ASC, "_id"));
+            case "popularity" -> Sort.by(Sort.Direction.DESC, "studentsCount").and(Sort.by(Sort.Direction.ASC, "_id"));
+            case "price" -> Sort.by(Sort.Direction.ASC, "price").and(Sort.by(Sort.Direction.ASC, "_id"));
+            case "price_desc" -> Sort.by(Sort.Direction.DESC, "price").and(Sort.by(Sort.Direction.ASC, "_id"));
+            default -> Sort.by(Sort.Direction.ASC, "_id");
+        };
+    }
+}
@@ -1,9 +1,13 @@
 package web20242.webcourse.service;
 
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -13,7 +17,19 @@ import web20242.webcourse.model.constant.ERole;
 import web20242.webcourse.model.constant.EStatus;
 import web20242.webcourse.model.createRequest.*;
 import web20242.webcourse.repository.*;
+import web20242.webcourse.service.cache.CatalogCache;
+import web20242.webcourse.service.cache.CatalogChangedEvent;
+import web20242.webcourse.service.cache.EnrollmentChangedEvent;
+import web20242.webcourse.service.search.SearchText;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 
 import java.security.Principal;
@@ -43,79 +59,118 @@ public class CourseService {
     private ReviewRepository reviewRepository;
     @Autowired
     private PopularCategoryRepository popularCategoryRepository;
+    @Autowired
+    private CourseOverviewAssembler courseOverviewAssembler;
+    @Autowired
+    private CourseSearchService courseSearchService;
+    @Autowired
+    private CatalogCache catalogCache;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private QuizStatisticsService quizStatisticsService;
+    @Autowired
+    private EnrollmentDashboardService enrollmentDashboardService;
+    @Autowired
+    private CourseOutlineService courseOutlineService;
+    @Autowired
+    private CourseReorderService courseReorderService;
+
+    private void publishCatalogChange(CatalogChangedEvent.Scope scope, ObjectId courseId) {
+        eventPublisher.publishEvent(new CatalogChangedEvent(this, scope, courseId));
+    }
+
+    // Chỉ ghi các trường thay đổi: courseRepository.save(course) ghi đè cả document bằng bản đọc lúc trước,
+    // làm mất các $inc chạy song song (studentsCount, ratingSum / ratingCount / ratingHistogram)
+    private long updateCourse(ObjectId courseId, Update update) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(courseId)), update, Course.class)
+                .getMatchedCount();
+    }
     //@Scheduled(fixedDelay = 86400000)
 //    public void updateRatingsDaily() {
 //        updateCourseRatings();
 //    }
-    public ResponseEntity<?> getAllCoursesForLandingPage() {
-        List<Course> allCourses = courseRepository.findAll();
-        List<Map<String, Object>> courseOverviews = allCourses.stream()
-                .filter(course -> EStatus.ACTIVE.equals(course.getStatus())) // Filter by ACTIVE status
-                .map(course -> {
-                    Map<String, Object> overview = new HashMap<>();
-                    overview.put("id", String.valueOf(course.getId()));
-                    overview.put("title", course.getTitle());
-
-                    Optional<User> userTeachers = userService.findById(String.valueOf(course.getTeacherId()));
-                    if(userTeachers.isEmpty()){
-                        String firstName = "Unknown";
-                        String lastName = "Teacher";
-                        overview.put("teacherFullName", (firstName + " " + lastName));
-                    } else {
-                        User userTeacher = userTeachers.get();
-                        String firstName = userTeacher.getFirstName();
-                        String lastName = userTeacher.getLastName();
-                        overview.put("teacherFullName", (firstName + " " + lastName));
-                    }
-                    overview.put("teacherId", String.valueOf(course.getTeacherId()));
-                    overview.put("description", course.getDescription());
-                    overview.put("categories", course.getCategories());
-                    overview.put("thumbnail", course.getThumbnail());
-                    overview.put("price", course.getPrice());
-                    overview.put("studentsCount", course.getStudentsEnrolled() != null ?
-                            course.getStudentsEnrolled().size() : 0);
-                    overview.put("contentCount",
-                            (course.getLessons() != null ? course.getLessons().size() : 0));
-                    overview.put("totalTimeLimit", course.getTotalTimeLimit());
-                    return overview;
-                })
-                .collect(Collectors.toList());
+    // Trang chủ: lọc ACTIVE, phân trang và đếm số phần tử mảng ngay trong Mongo,
+    // không tải các mảng lessons / quizzes / request về ứng dụng
+    public Page<Map<String, Object>> getAllCoursesForLandingPage(Pageable pageable) {
+        Criteria activeCriteria = Criteria.where("status").is(EStatus.ACTIVE.name());
+        long total = mongoTemplate.count(Query.query(activeCriteria), Course.class);
+        if (total == 0) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+
+        // Sắp xếp ổn định theo _id nếu client không truyền sort, để skip/limit không bị trùng lặp giữa các trang
+        Sort sort = pageable.getSort().isSorted() ? pageable.getSort() : Sort.by(Sort.Direction.ASC, "_id");
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(activeCriteria),
+                Aggregation.sort(sort),
+                Aggregation.skip(pageable.getOffset()),
+                Aggregation.limit(pageable.getPageSize()),
+                Aggregation.project("title", "description", "teacherId", "categories", "thumbnail",
+                                "price", "status", "totalTimeLimit")
+                        .and(ConditionalOperators.ifNull("studentsCount").then(0)).as("studentsCount")
+                        .and(sizeOfArray("lessons")).as("contentCount")
+        );
+        List<Document> rows = mongoTemplate.aggregate(aggregation, "courses", Document.class).getMappedResults();
+
+        Set<ObjectId> teacherIds = rows.stream()
+                .map(row -> row.getObjectId("teacherId"))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<ObjectId, String> teacherNames = courseOverviewAssembler.resolveTeacherNamesById(teacherIds);
+
+        List<Map<String, Object>> courseOverviews = rows.stream().map(row -> {
+            Map<String, Object> overview = new HashMap<>();
+            ObjectId teacherId = row.getObjectId("teacherId");
+            String teacherName = teacherId != null ? teacherNames.get(teacherId) : null;
+            overview.put("id", row.getObjectId("_id").toString());
+            overview.put("title", row.getString("title"));
+            if (teacherName == null) {
+                overview.put("teacherFullName", "Unknown Teacher");
+                overview.put("teacherId", null);
+            } else {
+                overview.put("teacherFullName", teacherName);
+                overview.put("teacherId", teacherId.toString());
+            }
+            overview.put("courseStatus", row.getString("status"));
+            overview.put("description", row.getString("description"));
+            overview.put("thumbnail", row.getString("thumbnail"));
+            overview.put("categories", row.get("categories"));
+            overview.put("price", row.get("price"));
+            overview.put("studentsCount", row.getInteger("studentsCount", 0));
+            overview.put("contentCount", row.getInteger("contentCount", 0));
+            overview.put("totalTimeLimit", row.get("totalTimeLimit"));
+            return overview;
+        }).collect(Collectors.toList());
+
+        return new PageImpl<>(courseOverviews, pageable, total);
+    }
 
-        return ResponseEntity.ok(courseOverviews);
+    private static AggregationExpression sizeOfArray(String field) {
+        return ArrayOperators.Size.lengthOfArray(
+                ConditionalOperators.ifNull(field).then(Collections.emptyList()));
     }
 
     public ResponseEntity<?> getFeaturedCategories() {
+        return ResponseEntity.ok(catalogCache.featuredCourses().get(CatalogCache.FEATURED_COURSES, key -> loadFeaturedCourses()));
+    }
+
+    private List<Map<String, Object>> loadFeaturedCourses() {
        List<Course> allCourses = courseRepository.findByCategoriesIn(List.of("POPULAR"));
-        List<Map<String, Object>> courseOverviews = allCourses.stream()
-                .map(course -> {
+        return courseOverviewAssembler.assemble(allCourses, (course, teacherName) -> {
                     Map<String, Object> overview = new HashMap<>();
                     overview.put("id", String.valueOf(course.getId()));
                     overview.put("title", course.getTitle());
-
-                    Optional<User> userTeachers = userService.findById(String.valueOf(course.getTeacherId()));
-                    if(userTeachers.isEmpty()){
-                        String firstName = "Unknown";
-                        String lastName = "Teacher";
-                        overview.put("teacherFullName", (firstName +" "+ lastName));
-                    }else{
-                        User userTeacher = userTeachers.get();
-                        String firstName = userTeacher.getFirstName();
-                        String lastName = userTeacher.getLastName();
-                        overview.put("teacherFullName", (firstName +" "+ lastName));
-                    }
+                    overview.put("teacherFullName", teacherName != null ? teacherName : "Unknown Teacher");
                     overview.put("thumbnail", course.getThumbnail());
                     overview.put("categories", course.getCategories());
                     overview.put("price", course.getPrice());
-                    overview.put("studentsCount", course.getStudentsEnrolled() != null ?
-                            course.getStudentsEnrolled().size() : 0);
+                    overview.put("studentsCount", course.getStudentsCount() != null ? course.getStudentsCount() : 0);
                     overview.put("contentCount",
                             (course.getLessons() != null ? course.getLessons().size() : 0));
                     overview.put("totalTimeLimit", course.getTotalTimeLimit());
                     return overview;
-                })
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(courseOverviews);
+                });
     }
     public ResponseEntity<?> updateTimeLimit() {
         List<Course> courses = courseRepository.findAll();
@@ -149,9 +204,9 @@ public class CourseService {
                     }
                 }
             }
-            course.setTotalTimeLimit(totalTimeLimit);
-            courseRepository.save(course);
+            updateCourse(course.getId(), new Update().set("totalTimeLimit", totalTimeLimit));
         }
+        publishCatalogChange(CatalogChangedEvent.Scope.CONTENT, null);
         return ResponseEntity.ok("Done !");
     }
 
@@ -166,14 +221,11 @@ public class CourseService {
                 String popularId = "POPULAR";
                 Course course = courseOptional.get();
                 ArrayList<String> categories = course.getCategories();
-                if (categories.contains(popularId)) {
-                    categories.remove(popularId);
-                } else {
-                    categories.add(popularId);
-                }
-                course.setCategories(categories);
-                course.setUpdatedAt(LocalDateTime.now());
-                courseRepository.save(course);
+                Update update = categories != null && categories.contains(popularId)
+                        ? new Update().pull("categories", popularId)
+                        : new Update().addToSet("categories", popularId);
+                updateCourse(course.getId(), update.set("updatedAt", LocalDateTime.now()));
+                publishCatalogChange(CatalogChangedEvent.Scope.COURSE, course.getId());
                 results.add(Map.of("id", id, "status", "Successfully updated"));
             }
         }
@@ -239,7 +291,7 @@ public class CourseService {
 //            overview.put("thumbnail", course.getThumbnail());
 //            overview.put("categories", course.getCategories());
 //            overview.put("price", course.getPrice());
-//            overview.put("studentsCount", course.getStudentsEnrolled() != null ? course.getStudentsEnrolled().size() : 0);
+//            overview.put("studentsCount", course.getStudentsCount() != null ? course.getStudentsCount() : 0);
 //
 //            int contentCount = (course.getLessons() != null ? course.getLessons().size() : 0) +
 //                    (course.getQuizzes() != null ? course.getQuizzes().size() : 0);
@@ -270,63 +322,29 @@ public class CourseService {
 //    }
 
 
-    private void updateCourseRatings() {
-        List<Course> allCourses = courseRepository.findAll();
-        for (Course course : allCourses) {
-            Double avgRating = calculateAverageRating(course.getId());
-            course.setAverageRating(avgRating);
-            courseRepository.save(course);
-        }
-    }
-
-    private Double calculateAverageRating(ObjectId courseId) {
-        List<Review> reviews = reviewRepository.findByCourseId(courseId);
-
-        if (reviews.isEmpty()) {
-            return null;
-        }
-
-        double sum = 0;
-        for (Review review : reviews) {
-            sum += review.getRating();
-        }
-
-        return Math.round(sum / reviews.size() * 2) / 2.0; // rounding to nearest 0.5
-    }
-
     public ResponseEntity<List<Map<String, Object>>> getAllCoursesForAdmin() {
         List<Course> allCourses = courseRepository.findAll();
-        List<Map<String, Object>> courseOverviews = allCourses.stream()
-                .map(course -> {
+        List<Map<String, Object>> courseOverviews = courseOverviewAssembler.assemble(allCourses, (course, teacherName) -> {
                     Map<String, Object> overview = new HashMap<>();
                     overview.put("id", String.valueOf(course.getId()));
                     overview.put("title", course.getTitle());
-
-                    Optional<User> userTeachers = userService.findById(String.valueOf(course.getTeacherId()));
-                    if(userTeachers.isEmpty()){
-                        String firstName = "Unknown";
-                        String lastName = "Teacher";
-                        overview.put("teacherFullName", (firstName +" "+ lastName));
+                    if (teacherName == null) {
+                        overview.put("teacherFullName", "Unknown Teacher");
                         overview.put("teacherID", null);
-                    }else{
-                        User userTeacher = userTeachers.get();
-                        String firstName = userTeacher.getFirstName();
-                        String lastName = userTeacher.getLastName();
-                        overview.put("teacherFullName", (firstName +" "+ lastName));
+                    } else {
+                        overview.put("teacherFullName", teacherName);
                         overview.put("teacherId", String.valueOf(course.getTeacherId()));
                     }
                     overview.put("courseStatus", course.getStatus());
                     overview.put("thumbnail", course.getThumbnail());
                     overview.put("categories", course.getCategories());
                     overview.put("price", course.getPrice());
-                    overview.put("studentsCount", course.getStudentsEnrolled() != null ?
-                            course.getStudentsEnrolled().size() : 0);
+                    overview.put("studentsCount", course.getStudentsCount() != null ? course.getStudentsCount() : 0);
                     overview.put("contentCount",
                             (course.getLessons() != null ? course.getLessons().size() : 0));
                     overview.put("totalTimeLimit", course.getTotalTimeLimit());
                     return overview;
-                })
-                .collect(Collectors.toList());
+                });
         return ResponseEntity.ok(courseOverviews);
     }
     public ResponseEntity<List<Map<String, Object>>> getAllCoursesForTeacher(Principal principal) {
@@ -338,33 +356,22 @@ public class CourseService {
 
         List<Course> allCourses = courseRepository.findAll();
 
+        // Mọi khóa học ở đây đều thuộc về chính user hiện tại, không cần tra cứu lại giảng viên
+        String teacherFullName = user.getFirstName() + " " + user.getLastName();
         List<Map<String, Object>> courseOverviews = allCourses.stream()
                 .filter(course -> course.getTeacherId().equals(user.getId()))
                 .map(course -> {
                     Map<String, Object> overview = new HashMap<>();
                     overview.put("id", String.valueOf(course.getId()));
                     overview.put("title", course.getTitle());
-
-                    Optional<User> userTeachers = userService.findById(String.valueOf(course.getTeacherId()));
-                    if (userTeachers.isEmpty()) {
-                        String firstName = "Unknown";
-                        String lastName = "Teacher";
-                        overview.put("teacherFullName", (firstName + " " + lastName));
-                        overview.put("teacherID", null);
-                    } else {
-                        User userTeacher = userTeachers.get();
-                        String firstName = userTeacher.getFirstName();
-                        String lastName = userTeacher.getLastName();
-                        overview.put("teacherFullName", (firstName + " " + lastName));
-                        overview.put("teacherId", String.valueOf(course.getTeacherId()));
-                    }
+                    overview.put("teacherFullName", teacherFullName);
+                    overview.put("teacherId", String.valueOf(course.getTeacherId()));
 
                     overview.put("courseStatus", course.getStatus());
                     overview.put("thumbnail", course.getThumbnail());
                     overview.put("categories", course.getCategories());
                     overview.put("price", course.getPrice());
-                    overview.put("studentsCount", course.getStudentsEnrolled() != null ?
-                            course.getStudentsEnrolled().size() : 0);
+                    overview.put("studentsCount", course.getStudentsCount() != null ? course.getStudentsCount() : 0);
                     overview.put("contentCount",
                             (course.getLessons() != null ? course.getLessons().size() : 0));
                     overview.put("totalTimeLimit", course.getTotalTimeLimit());
@@ -378,31 +385,19 @@ public class CourseService {
     public ResponseEntity<?> updateStatus() {
        List<Course> courses = courseRepository.findAll();
         for (Course course : courses) {
-            if (course.getStatus() == null) {
-                course.setStatus(EStatus.ACTIVE);
-            } else if (course.getStatus().equals(EStatus.ACTIVE)) {
-                course.setStatus(EStatus.INACTIVE);
-            } else {
-                course.setStatus(EStatus.ACTIVE);
-            }
-            course.setUpdatedAt(LocalDateTime.now());
-            courseRepository.save(course);
+            EStatus status = EStatus.ACTIVE.equals(course.getStatus()) ? EStatus.INACTIVE : EStatus.ACTIVE;
+            updateCourse(course.getId(), new Update().set("status", status).set("updatedAt", LocalDateTime.now()));
         }
+        publishCatalogChange(CatalogChangedEvent.Scope.COURSE, null);
         return ResponseEntity.ok("Done !");
     }
     public ResponseEntity<?> updateStatusForAdmin(String id){
        Optional<Course> courseOptional = courseRepository.findById(new ObjectId(id));
         if (courseOptional.isPresent()) {
             Course course = courseOptional.get();
-            if (course.getStatus() == null) {
-                course.setStatus(EStatus.ACTIVE);
-            } else if (course.getStatus().equals(EStatus.ACTIVE)) {
-                course.setStatus(EStatus.INACTIVE);
-            } else {
-                course.setStatus(EStatus.ACTIVE);
-            }
-            course.setUpdatedAt(LocalDateTime.now());
-            courseRepository.save(course);
+            EStatus status = EStatus.ACTIVE.equals(course.getStatus()) ? EStatus.INACTIVE : EStatus.ACTIVE;
+            updateCourse(course.getId(), new Update().set("status", status).set("updatedAt", LocalDateTime.now()));
+            publishCatalogChange(CatalogChangedEvent.Scope.COURSE, course.getId());
             return ResponseEntity.ok("Done !");
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
@@ -417,11 +412,11 @@ public class CourseService {
         if (courseOptional.isPresent()) {
             Course course = courseOptional.get();
             if(Objects.equals(course.getTeacherId(), user.getId())){
-                course.setStatus(course.getStatus() == null || course.getStatus().equals(EStatus.INACTIVE)
+                EStatus status = course.getStatus() == null || course.getStatus().equals(EStatus.INACTIVE)
                         ? EStatus.ACTIVE
-                        : EStatus.INACTIVE);
-                course.setUpdatedAt(LocalDateTime.now());
-                courseRepository.save(course);
+                        : EStatus.INACTIVE;
+                updateCourse(course.getId(), new Update().set("status", status).set("updatedAt", LocalDateTime.now()));
+                publishCatalogChange(CatalogChangedEvent.Scope.COURSE, course.getId());
                 return ResponseEntity.ok("Done !");
             }else {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You are not the owner of this course");
@@ -448,9 +443,9 @@ public class CourseService {
         Optional<Course> courseOptional = courseRepository.findById(new ObjectId(courseId));
         if (courseOptional.isPresent()) {
             Course course = courseOptional.get();
-            course.setTeacherId(new ObjectId(userId));
-            course.setUpdatedAt(LocalDateTime.now());
-            courseRepository.save(course);
+            updateCourse(course.getId(), new Update().set("teacherId", new ObjectId(userId))
+                    .set("updatedAt", LocalDateTime.now()));
+            publishCatalogChange(CatalogChangedEvent.Scope.COURSE, course.getId());
             return ResponseEntity.ok("Done !");
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
@@ -466,7 +461,6 @@ public class CourseService {
             List<Quizzes> quizzesList = quizzesRepository.findByCourseId(course.getId());
             List<Enrollment> enrollments = enrollmentRepository.findByCourseId(course.getId());
             List<Review> reviews = reviewRepository.findByCourseId(course.getId());
-            List<User> students = userRepository.findByCoursesEnrolled(course.getId());
             for (Lesson lesson : lessonOptional) {
                 lessonRepository.delete(lesson);
             }
@@ -479,9 +473,8 @@ public class CourseService {
             for( Review review : reviews) {
                 reviewRepository.delete(review);
             }
-            for(User user : students){
-                user.getCoursesEnrolled().remove(course.getId());
-            }
+            userRepository.removeEnrolledCourseFromAll(course.getId());
+            publishCatalogChange(CatalogChangedEvent.Scope.DELETED, course.getId());
             return ResponseEntity.ok("Course deleted successfully");
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
@@ -503,103 +496,30 @@ public class CourseService {
     }
 
     public ResponseEntity<?> getAllCoursesComplete(Principal principal) {
-        Optional<User> userOptional = userRepository.findByUsername(principal.getName());
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            List<Enrollment> enrollments = enrollmentRepository.findByUserId(user.getId());
-            List<Map<String, Object>> courseOverviews = enrollments.stream()
-                    .filter(enrollment -> EStatus.DONE.equals(enrollment.getStatus()))
-                    .map(enrollment -> {
-                        Map<String, Object> overview = new HashMap<>();
-                        Course course = courseRepository.findById(enrollment.getCourseId()).orElse(null);
-                        if (course != null) {
-                            overview.put("id", String.valueOf(course.getId()));
-                            overview.put("title", course.getTitle());
-                            overview.put("status", enrollment.getStatus());
-                            overview.put("thumbnail", course.getThumbnail());
-                            String teacherName;
-                            Optional<User> userTeacher = userService.findById(String.valueOf(course.getTeacherId()));
-                            teacherName = userTeacher.map(value -> value.getFirstName() + " " + value.getLastName())
-                                    .orElse("Unknown Teacher");
-                            overview.put("teacherName", teacherName);
-                            overview.put("completeDate", enrollment.getCompletedAt());
-                            return overview;
-                        }
-                        return null;
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(courseOverviews);
-        } else {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body("User not found");
-        }
+        return getCoursesByEnrollmentStatus(principal, EStatus.DONE);
     }
     public ResponseEntity<?> getAllCoursesInprocess(Principal principal) {
+        return getCoursesByEnrollmentStatus(principal, EStatus.INPROGRESS);
+    }
+    public ResponseEntity<?> getAllCoursesNotStarted(Principal principal) {
+        return getCoursesByEnrollmentStatus(principal, EStatus.NOTSTARTED);
+    }
+
+    // Cả ba nhóm trong một lần gọi (một aggregation), dùng cho trang dashboard
+    public ResponseEntity<?> getDashboard(Principal principal) {
         Optional<User> userOptional = userRepository.findByUsername(principal.getName());
         if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            List<Enrollment> enrollments = enrollmentRepository.findByUserId(user.getId());
-            List<Map<String, Object>> courseOverviews = enrollments.stream()
-                    .filter(enrollment -> EStatus.INPROGRESS.equals(enrollment.getStatus()))
-                    .map(enrollment -> {
-                        Map<String, Object> overview = new HashMap<>();
-                        Course course = courseRepository.findById(enrollment.getCourseId()).orElse(null);
-                        if (course != null) {
-                            overview.put("id", String.valueOf(course.getId()));
-                            overview.put("title", course.getTitle());
-                            overview.put("status", enrollment.getStatus());
-                            overview.put("thumbnail", course.getThumbnail());
-                            String teacherName;
-                            Optional<User> userTeacher = userService.findById(String.valueOf(course.getTeacherId()));
-                            teacherName = userTeacher.map(value -> value.getFirstName() + " " + value.getLastName())
-                                    .orElse("Unknown Teacher");
-                            overview.put("teacherName", teacherName);
-                            overview.put("process", enrollment.getProgress());
-                            overview.put("timeCurrent", enrollment.getTimeCurrent());
-                            overview.put("startDate", enrollment.getEnrolledAt());
-                            return overview;
-                        }
-                        return null;
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(courseOverviews);
+            return ResponseEntity.ok(enrollmentDashboardService.getDashboard(userOptional.get().getId()));
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("User not found");
         }
     }
-    public ResponseEntity<?> getAllCoursesNotStarted(Principal principal) {
+
+    private ResponseEntity<?> getCoursesByEnrollmentStatus(Principal principal, EStatus status) {
         Optional<User> userOptional = userRepository.findByUsername(principal.getName());
         if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            List<Enrollment> enrollments = enrollmentRepository.findByUserId(user.getId());
-            List<Map<String, Object>> courseOverviews = enrollments.stream()
-                    .filter(enrollment -> EStatus.NOTSTARTED.equals(enrollment.getStatus()))
-                    .map(enrollment -> {
-                        Map<String, Object> overview = new HashMap<>();
-                        Course course = courseRepository.findById(enrollment.getCourseId()).orElse(null);
-                        if (course != null) {
-                            overview.put("id", String.valueOf(course.getId()));
-                            overview.put("title", course.getTitle());
-                            overview.put("status", enrollment.getStatus());
-                            overview.put("thumbnail", course.getThumbnail());
-                            String teacherName;
-                            Optional<User> userTeacher = userService.findById(String.valueOf(course.getTeacherId()));
-                            teacherName = userTeacher.map(value -> value.getFirstName() + " " + value.getLastName())
-                                    .orElse("Unknown Teacher");
-                            overview.put("teacherName", teacherName);
-                            overview.put("process", enrollment.getProgress());
-                            overview.put("timeCurrent", enrollment.getTimeCurrent());
-                            overview.put("startDate", enrollment.getEnrolledAt());
-                            return overview;
-                        }
-                        return null;
-                    })
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(courseOverviews);
+            return ResponseEntity.ok(enrollmentDashboardService.getCourses(userOptional.get().getId(), status));
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("User not found");
@@ -637,17 +557,18 @@ public class CourseService {
             }
         }
 
+        publishCatalogChange(CatalogChangedEvent.Scope.CONTENT, null);
         return ResponseEntity.ok("Order updated successfully with interleaved lessons and quizzes!");
     }
 
     public ResponseEntity<?> updateOrderForItem(String itemType, ObjectId itemId, Integer newOrder, Principal principal) {
         ObjectId courseId;
         if ("LESSON".equalsIgnoreCase(itemType)) {
-            Lesson lesson = lessonRepository.findById(itemId).orElseThrow(() -> new RuntimeException("Lesson not found"));
-            courseId = lesson.getCourseId();
+            courseId = lessonRepository.findOutlineById(itemId).orElseThrow(() -> new RuntimeException("Lesson not found"))
+                    .getCourseId();
         } else if ("QUIZ".equalsIgnoreCase(itemType)) {
-            Quizzes quiz = quizzesRepository.findById(itemId).orElseThrow(() -> new RuntimeException("Quiz not found"));
-            courseId = quiz.getCourseId();
+            courseId = quizzesRepository.findOutlineById(itemId).orElseThrow(() -> new RuntimeException("Quiz not found"))
+                    .getCourseId();
         } else {
             return ResponseEntity.badRequest().body("Invalid item type. Must be 'LESSON' or 'QUIZ'.");
         }
@@ -662,52 +583,11 @@ public class CourseService {
         } else {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not authenticated");
         }
-        List<Lesson> lessons = lessonRepository.findByCourseId(courseId);
-        List<Quizzes> quizzes = quizzesRepository.findByCourseId(courseId);
-
-        List<OrderableItem> items = new ArrayList<>();
-        for (Lesson lesson : lessons) {
-            items.add(new OrderableItem("LESSON", lesson.getId(), lesson.getOrder(), lesson));
-        }
-        for (Quizzes quiz : quizzes) {
-            items.add(new OrderableItem("QUIZ", quiz.getId(), quiz.getOrder(), quiz));
-        }
-
-        items.sort(Comparator.nullsLast(Comparator.comparingInt(OrderableItem::getOrder)));
-        OrderableItem targetItem = items.stream()
-                .filter(item -> item.getId().equals(itemId) && item.getType().equals(itemType))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Item not found in the list"));
-
-        items.remove(targetItem);
-
-        int insertIndex = 0;
-        for (OrderableItem orderableItem : items) {
-            if (orderableItem.getOrder() != null && orderableItem.getOrder() >= newOrder) {
-                break;
-            }
-            insertIndex++;
-        }
-
-        targetItem.setOrder(newOrder);
-        items.add(insertIndex, targetItem);
-
-        int currentOrder = 1;
-        for (OrderableItem item : items) {
-            item.setOrder(currentOrder++);
+        try {
+            courseReorderService.move(courseId, itemType, itemId, newOrder);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
-        for (OrderableItem item : items) {
-            if ("LESSON".equals(item.getType())) {
-                Lesson lesson = (Lesson) item.getEntity();
-                lesson.setOrder(item.getOrder());
-                lessonRepository.save(lesson);
-            } else {
-                Quizzes quiz = (Quizzes) item.getEntity();
-                quiz.setOrder(item.getOrder());
-                quizzesRepository.save(quiz);
-            }
-        }
-
         return ResponseEntity.ok("Order updated successfully with interleaved lessons and quizzes!");
     }
 
@@ -721,28 +601,28 @@ public class CourseService {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You are not the owner of this course");
             }
             else {
-                List<Lesson> lessons = lessonRepository.findByCourseId(course.getId());
-                List<Quizzes> quizzes = quizzesRepository.findByCourseId(course.getId());
-                List<Map<String, Object>> lessonData = lessons.stream().map(lesson -> {
-                    Map<String, Object> lessonMap = new HashMap<>();
-                    lessonMap.put("lessonId", lesson.getId().toString());
-                    lessonMap.put("lessonTitle", lesson.getTitle());
-                    lessonMap.put("lessonShortTile",lesson.getShortTile());
-                    lessonMap.put("orderLesson", lesson.getOrder());
-                    lessonMap.put("status",lesson.getStatus());
-                    return lessonMap;
-                }).collect(Collectors.toList());
-
-                List<Map<String, Object>> quizData = quizzes.stream().map(quiz -> {
-                    Map<String, Object> quizMap = new HashMap<>();
-                    quizMap.put("quizId", quiz.getId().toString());
-                    quizMap.put("passingScore", quiz.getPassingScore());
-                    quizMap.put("title",quiz.getTitle());
-                    quizMap.put("questionCount", quiz.getQuestions().size());
-                    quizMap.put("orderQuiz", quiz.getOrder());
-                    quizMap.put("status",quiz.getStatus());
-                    return quizMap;
-                }).collect(Collectors.toList());
+                List<Map<String, Object>> lessonData = new ArrayList<>();
+                List<Map<String, Object>> quizData = new ArrayList<>();
+                for (CourseOutlineItem item : courseOutlineService.getOutline(course.getId())) {
+                    if (CourseOutlineService.LESSON.equals(item.getType())) {
+                        Map<String, Object> lessonMap = new HashMap<>();
+                        lessonMap.put("lessonId", item.getId().toString());
+                        lessonMap.put("lessonTitle", item.getTitle());
+                        lessonMap.put("lessonShortTile", item.getShortTitle());
+                        lessonMap.put("orderLesson", item.getOrder());
+                        lessonMap.put("status", item.getStatus());
+                        lessonData.add(lessonMap);
+                    } else {
+                        Map<String, Object> quizMap = new HashMap<>();
+                        quizMap.put("quizId", item.getId().toString());
+                        quizMap.put("passingScore", item.getPassingScore());
+                        quizMap.put("title", item.getTitle());
+                        quizMap.put("questionCount", item.getQuestionCount());
+                        quizMap.put("orderQuiz", item.getOrder());
+                        quizMap.put("status", item.getStatus());
+                        quizData.add(quizMap);
+                    }
+                }
 
                 Map<String, Object> result = new HashMap<>();
                 result.put("lessons", lessonData);
@@ -768,77 +648,10 @@ public class CourseService {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You are not the owner of this course");
             }
 
-            Optional<Course> courseOptional = courseRepository.findById(enrollment.getCourseId());
-            if (courseOptional.isPresent()) {
-                Course course = courseOptional.get();
-                List<Lesson> lessons = lessonRepository.findByCourseId(course.getId());
-                List<Quizzes> quizzes = quizzesRepository.findByCourseId(course.getId());
-
-                // Get the list of completed IDs from enrollment, ensuring it's never null
-                ArrayList<ObjectId> completedIds = new ArrayList<>();
-                if (enrollment.getLessonAndQuizId() != null) {
-                    completedIds.addAll(enrollment.getLessonAndQuizId());
-                }
-
-                // Process Lessons
-                List<Map<String, Object>> learnedLessons = new ArrayList<>();
-                List<Map<String, Object>> notLearnedLessons = new ArrayList<>();
-
-                lessons.forEach(lesson -> {
-                    Map<String, Object> lessonMap = new HashMap<>();
-                    lessonMap.put("lessonId", lesson.getId().toString());
-                    lessonMap.put("lessonTitle", lesson.getTitle());
-                    lessonMap.put("lessonShortTile",lesson.getShortTile());
-                    lessonMap.put("orderLesson", lesson.getOrder());
-
-                    if (completedIds.contains(lesson.getId())) {
-                        learnedLessons.add(lessonMap);
-                    } else {
-                        notLearnedLessons.add(lessonMap);
-                    }
-                });
-
-                // Process Quizzes
-                List<Map<String, Object>> learnedQuizzes = new ArrayList<>();
-                List<Map<String, Object>> notLearnedQuizzes = new ArrayList<>();
-
-                quizzes.forEach(quiz -> {
-                    Map<String, Object> quizMap = new HashMap<>();
-                    quizMap.put("quizId", quiz.getId().toString());
-                    quizMap.put("passingScore", quiz.getPassingScore());
-                    quizMap.put("questionCount", quiz.getQuestions().size());
-                    quizMap.put("orderQuiz", quiz.getOrder());
-
-                    if (completedIds.contains(quiz.getId())) {
-                        learnedQuizzes.add(quizMap);
-                    } else {
-                        notLearnedQuizzes.add(quizMap);
-                    }
-                });
-
-                // Sort all lists by order
-                Comparator<Map<String, Object>> orderComparator = Comparator.comparingInt(m ->
-                        (Integer) m.getOrDefault("orderLesson", m.getOrDefault("orderQuiz", 0)));
-
-                learnedLessons.sort(orderComparator);
-                notLearnedLessons.sort(orderComparator);
-                learnedQuizzes.sort(orderComparator);
-                notLearnedQuizzes.sort(orderComparator);
-
-                // Prepare response
-                Map<String, Object> result = new HashMap<>();
-                Map<String, Object> learned = new HashMap<>();
-                Map<String, Object> notLearned = new HashMap<>();
-
-                learned.put("lessons", learnedLessons);
-                learned.put("quizzes", learnedQuizzes);
-                notLearned.put("lessons", notLearnedLessons);
-                notLearned.put("quizzes", notLearnedQuizzes);
-
-                result.put("learned", learned);
-                result.put("notLearned", notLearned);
-
-                return ResponseEntity.ok(result);
+            if (courseRepository.existsById(enrollment.getCourseId())) {
+                // Mục lục chỉ gồm các trường hiển thị, đã sắp xếp theo order; tiến độ tra bằng HashSet
+                List<CourseOutlineItem> outline = courseOutlineService.getOutline(enrollment.getCourseId());
+                return ResponseEntity.ok(courseOutlineService.withProgress(outline, enrollment.getLessonAndQuizId()));
             }
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
         }
@@ -846,11 +659,23 @@ public class CourseService {
     }
 
     public ResponseEntity<?> getInformationCourse(String id) {
+        Map<String, Object> info = catalogCache.courseInfo().get(id, this::loadInformationCourse);
+        if (info != null) {
+            return ResponseEntity.ok(info);
+        }
+        if (courseRepository.existsById(new ObjectId(id))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Course is not available");
+        }
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
+    }
+
+    // null khi khóa học không tồn tại hoặc INACTIVE (không cache)
+    private Map<String, Object> loadInformationCourse(String id) {
         Optional<Course> courseOptional = courseRepository.findById(new ObjectId(id));
         if (courseOptional.isPresent()) {
             Course course = courseOptional.get();
             if(course.getStatus() == EStatus.INACTIVE){
-                return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Course is not available");
+                return null;
             }
             Map<String, Object> overview = new HashMap<>();
             overview.put("id", String.valueOf(course.getId()));
@@ -859,12 +684,12 @@ public class CourseService {
             overview.put("thumbnail", course.getThumbnail());
             overview.put("categories", course.getCategories());
             overview.put("price", course.getPrice());
-            overview.put("studentsCount", course.getStudentsEnrolled() != null ?
-                    course.getStudentsEnrolled().size() : 0);
+            overview.put("studentsCount", course.getStudentsCount() != null ? course.getStudentsCount() : 0);
             overview.put("contentCount",
                     (course.getLessons() != null ? course.getLessons().size() : 0) +
                             (course.getQuizzes() != null ? course.getQuizzes().size() : 0));
-            overview.put("averageRating", avgRating(course.getId()));
+            overview.put("averageRating", avgRating(course));
+            overview.put("ratingCount", course.getRatingCount() != null ? course.getRatingCount() : 0);
             String getTeacherName;
             Optional<User> userTeacher = userService.findById(String.valueOf(course.getTeacherId()));
             getTeacherName = userTeacher.map(value -> value.getFirstName() + " " + value.getLastName())
@@ -872,23 +697,16 @@ public class CourseService {
             overview.put("teacherName", getTeacherName);
             overview.put("teacherId", course.getTeacherId());
             overview.put("totalTimeLimit", course.getTotalTimeLimit());
-            return ResponseEntity.ok(overview);
-        } else {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
+            return overview;
         }
-
+        return null;
     }
-    public Double avgRating(ObjectId id){
-        AtomicReference<Double> avg= new AtomicReference<Double>(0.0);
-        List<Review> reviews = reviewRepository.findByCourseId(id);
-        if(reviews.isEmpty()){
+    // Đọc từ các trường tổng hợp trên course (ratingSum / ratingCount), không tải review
+    public Double avgRating(Course course){
+        if (course.getRatingCount() == null || course.getRatingCount() <= 0 || course.getRatingSum() == null) {
             return 0.0;
         }
-        reviews.forEach(review -> {
-            avg.updateAndGet(v -> v + review.getRating());
-        });
-
-        return avg.get()/reviews.size();
+        return (double) course.getRatingSum() / course.getRatingCount();
     }
     public ResponseEntity<?> getInformationCourseForAdminTeacher(String id, Principal principal) {
         Optional<Course> courseOptional = courseRepository.findById(new ObjectId(id));
@@ -903,12 +721,12 @@ public class CourseService {
             overview.put("thumbnail", course.getThumbnail());
             overview.put("categories", course.getCategories());
             overview.put("price", course.getPrice());
-            overview.put("studentsCount", course.getStudentsEnrolled() != null ?
-                    course.getStudentsEnrolled().size() : 0);
+            overview.put("studentsCount", course.getStudentsCount() != null ? course.getStudentsCount() : 0);
             overview.put("contentCount",
                     (course.getLessons() != null ? course.getLessons().size() : 0) +
                             (course.getQuizzes() != null ? course.getQuizzes().size() : 0));
-            overview.put("averageRating", avgRating(course.getId()));
+            overview.put("averageRating", avgRating(course));
+            overview.put("ratingCount", course.getRatingCount() != null ? course.getRatingCount() : 0);
             String getTeacherName;
             Optional<User> userTeacher = userService.findById(String.valueOf(course.getTeacherId()));
             getTeacherName = userTeacher.map(value -> value.getFirstName() + " " + value.getLastName())
@@ -930,12 +748,12 @@ public class CourseService {
             overview.put("thumbnail", course.getThumbnail());
             overview.put("categories", course.getCategories());
             overview.put("price", course.getPrice());
-            overview.put("studentsCount", course.getStudentsEnrolled() != null ?
-                    course.getStudentsEnrolled().size() : 0);
+            overview.put("studentsCount", course.getStudentsCount() != null ? course.getStudentsCount() : 0);
             overview.put("contentCount",
                     (course.getLessons() != null ? course.getLessons().size() : 0) +
                             (course.getQuizzes() != null ? course.getQuizzes().size() : 0));
-            overview.put("averageRating", avgRating(course.getId()));
+            overview.put("averageRating", avgRating(course));
+            overview.put("ratingCount", course.getRatingCount() != null ? course.getRatingCount() : 0);
             String getTeacherName;
             Optional<User> userTeacher = userService.findById(String.valueOf(course.getTeacherId()));
             getTeacherName = userTeacher.map(value -> value.getFirstName() + " " + value.getLastName())
@@ -951,52 +769,39 @@ public class CourseService {
     }
 
     public ResponseEntity<?> getLessonAndQuizForCourseAnyone(String id) {
-        Optional<Course> courseOptional = courseRepository.findById(new ObjectId(id));
-
-        if (courseOptional.isPresent()) {
-            Course course = courseOptional.get();
-            List<Lesson> lessons = lessonRepository.findByCourseId(course.getId());
-            List<Quizzes> quizzes = quizzesRepository.findByCourseId(course.getId());
-
-            // Collect lessons into a list of maps
-            List<Map<String, Object>> lessonList = new ArrayList<>();
-            lessons.forEach(lesson -> {
+        ObjectId courseId = new ObjectId(id);
+        // Mục lục đã cache theo courseId thì không cần kiểm tra khóa học tồn tại
+        if (catalogCache.outlines().getIfPresent(id) == null && !courseRepository.existsById(courseId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
+        }
+        List<Map<String, Object>> lessonList = new ArrayList<>();
+        List<Map<String, Object>> quizList = new ArrayList<>();
+        for (CourseOutlineItem item : courseOutlineService.getOutline(courseId)) {
+            if (CourseOutlineService.LESSON.equals(item.getType())) {
                 Map<String, Object> lessonMap = new HashMap<>();
-                lessonMap.put("lessonId", lesson.getId().toString());
-                lessonMap.put("lessonTitle", lesson.getTitle());
-                lessonMap.put("lessonShortTitle", lesson.getShortTile()); // Fixed typo from "lessonShortTilte"
-                lessonMap.put("orderLesson", lesson.getOrder());
-                lessonMap.put("status", lesson.getStatus());
+                lessonMap.put("lessonId", item.getId().toString());
+                lessonMap.put("lessonTitle", item.getTitle());
+                lessonMap.put("lessonShortTitle", item.getShortTitle());
+                lessonMap.put("orderLesson", item.getOrder());
+                lessonMap.put("status", item.getStatus());
                 lessonList.add(lessonMap);
-            });
-
-            // Collect quizzes into a list of maps
-            List<Map<String, Object>> quizList = new ArrayList<>();
-            quizzes.forEach(quiz -> {
+            } else {
                 Map<String, Object> quizMap = new HashMap<>();
-                quizMap.put("quizId", quiz.getId().toString());
-                quizMap.put("passingScore", quiz.getPassingScore());
-                quizMap.put("questionCount", quiz.getQuestions() != null ? quiz.getQuestions().size() : 0);
-                quizMap.put("orderQuiz", quiz.getOrder());
-                quizMap.put("title",quiz.getTitle());
-                quizMap.put("status",quiz.getStatus());
+                quizMap.put("quizId", item.getId().toString());
+                quizMap.put("passingScore", item.getPassingScore());
+                quizMap.put("questionCount", item.getQuestionCount() != null ? item.getQuestionCount() : 0);
+                quizMap.put("orderQuiz", item.getOrder());
+                quizMap.put("title", item.getTitle());
+                quizMap.put("status", item.getStatus());
                 quizList.add(quizMap);
-            });
-
-            // Sort both lists by order
-            Comparator<Map<String, Object>> orderComparator = Comparator.comparingInt(m ->
-                    (Integer) m.getOrDefault("orderLesson", m.getOrDefault("orderQuiz", 0)));
-            lessonList.sort(orderComparator);
-            quizList.sort(orderComparator);
-
-            // Prepare response
-            Map<String, Object> result = new HashMap<>();
-            result.put("lessons", lessonList);
-            result.put("quizzes", quizList);
-
-            return ResponseEntity.ok(result);
+            }
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
+
+        // Prepare response
+        Map<String, Object> result = new HashMap<>();
+        result.put("lessons", lessonList);
+        result.put("quizzes", quizList);
+        return ResponseEntity.ok(result);
     }
 
     public ResponseEntity<?> checkInfo(String id,ObjectId userId) {
@@ -1020,29 +825,69 @@ public class CourseService {
 
     }
 
+    // Tính lại toàn bộ ratingSum / ratingCount / ratingHistogram / averageRating từ collection reviews.
+    // Pipeline thứ nhất ghi đè thẳng các khóa học có review qua $merge; pipeline thứ hai chỉ đưa về 0 các khóa học
+    // không còn review hợp lệ nào. Không reset hàng loạt trước, nên người đọc không thấy đánh giá bằng 0 giữa chừng.
     public void updateRating() {
-        List<Course> courseList = courseRepository.findAll();
-        for (Course course : courseList) {
-            Double avgRating;
-            int countReview = 0;
-            int sumRating = 0;
-            List<Review> reviews = reviewRepository.findByCourseId(course.getId());
+        Document validRating = new Document("$gte", 1).append("$lte", 5);
+        List<Document> recompute = List.of(
+                new Document("$match", new Document("rating", validRating)
+                        .append("courseId", new Document("$ne", null))),
+                new Document("$group", new Document("_id",
+                        new Document("courseId", "$courseId").append("rating", "$rating"))
+                        .append("count", new Document("$sum", 1))),
+                new Document("$group", new Document("_id", "$_id.courseId")
+                        .append("ratingSum", new Document("$sum",
+                                new Document("$multiply", Arrays.asList("$_id.rating", "$count"))))
+                        .append("ratingCount", new Document("$sum", "$count"))
+                        .append("histogram", new Document("$push", new Document("k",
+                                new Document("$toString", "$_id.rating")).append("v", "$count")))),
+                new Document("$project", new Document("ratingSum", 1)
+                        .append("ratingCount", 1)
+                        .append("ratingHistogram", new Document("$arrayToObject", "$histogram"))
+                        .append("averageRating", new Document("$divide", Arrays.asList("$ratingSum", "$ratingCount")))),
+                mergeIntoCourses()
+        );
+        aggregate(recompute, "reviews");
+
+        // Chỉ xét các khóa học đang có số liệu đánh giá (hoặc chưa có trường), tra review bằng index courseId
+        List<Document> resetUnreviewed = List.of(
+                new Document("$match", new Document("$or", List.of(
+                        new Document("ratingCount", new Document("$ne", 0)),
+                        new Document("ratingSum", new Document("$ne", 0))))),
+                new Document("$lookup", new Document("from", "reviews")
+                        .append("let", new Document("courseId", "$_id"))
+                        .append("pipeline", List.of(
+                                new Document("$match", new Document("$expr",
+                                        new Document("$eq", Arrays.asList("$courseId", "$$courseId")))),
+                                new Document("$match", new Document("rating", validRating)),
+                                new Document("$limit", 1),
+                                new Document("$project", new Document("_id", 1))))
+                        .append("as", "reviews")),
+                new Document("$match", new Document("reviews", new Document("$size", 0))),
+                new Document("$project", new Document("ratingSum", new Document("$literal", 0))
+                        .append("ratingCount", new Document("$literal", 0))
+                        .append("ratingHistogram", new Document("$literal", new Document()))
+                        .append("averageRating", new Document("$literal", null))),
+                mergeIntoCourses()
+        );
+        aggregate(resetUnreviewed, "courses");
+        publishCatalogChange(CatalogChangedEvent.Scope.COURSE, null);
+    }
 
-            if (reviews != null) {
-                for (Review review : reviews) {
-                    if (review.getRating() != null) {
-                        countReview++;
-                        sumRating += review.getRating();
-                    }
-                }
-                avgRating = countReview > 0 ? (double) sumRating / countReview : null;
-            } else {
-                avgRating = null; // Hoặc 0.0 nếu bạn muốn mặc định là 0
-            }
+    private static Document mergeIntoCourses() {
+        return new Document("$merge", new Document("into", "courses")
+                .append("on", "_id")
+                .append("whenMatched", "merge")
+                .append("whenNotMatched", "discard"));
+    }
 
-            course.setAverageRating(avgRating);
-            courseRepository.save(course);
+    private void aggregate(List<Document> stages, String collection) {
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        for (Document stage : stages) {
+            pipeline.add(context -> stage);
         }
+        mongoTemplate.aggregate(Aggregation.newAggregation(pipeline), collection, Document.class);
     }
 
     public ResponseEntity<?> updateOrderForList(Map<String, String> list, Principal principal) {
@@ -1050,44 +895,73 @@ public class CourseService {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not authenticated");
         }
         User user = userService.findByUsername(principal.getName());
-        for (Map.Entry<String, String> entry : list.entrySet()) {
-            String itemId = entry.getKey();
-            System.out.println("Item ID: " + itemId);
-            System.out.println("New Order: " + entry.getValue());
-            String newOrderStr = entry.getValue();
-            Integer newOrder = Integer.parseInt(newOrderStr);
-            Optional<Lesson> lessonOptional = lessonRepository.findById(new ObjectId(itemId));
-            Optional<Quizzes> quizzesOptional = quizzesRepository.findById(new ObjectId(itemId));
-            if (lessonOptional.isPresent()) {
-                Lesson lesson = lessonOptional.get();
-                Course course = courseRepository.findById(lesson.getCourseId()).orElse(null);
-                if(user.getRole() == ERole.ROLE_ADMIN) {
-                    lesson.setOrder(newOrder);
-                    lessonRepository.save(lesson);
-                }else if(course != null && !user.getId().equals(course.getTeacherId())) {
-                    return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You are not the owner of this course");
-                }else{
-                    lesson.setOrder(newOrder);
-                    lessonRepository.save(lesson);
-                }
-            } else if (quizzesOptional.isPresent()) {
-                Quizzes quizzes = quizzesOptional.get();
-                Course course = courseRepository.findById(quizzes.getCourseId()).orElse(null);
-                if(user.getRole() == ERole.ROLE_ADMIN) {
-                    quizzes.setOrder(newOrder);
-                    quizzesRepository.save(quizzes);
-                }
-                else if (course != null && !user.getId().equals(course.getTeacherId())) {
+        Map<ObjectId, Integer> newOrders = new HashMap<>();
+        try {
+            for (Map.Entry<String, String> entry : list.entrySet()) {
+                newOrders.put(new ObjectId(entry.getKey()), Integer.parseInt(entry.getValue()));
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid item id or order");
+        }
+
+        // Khóa học của từng mục, đọc bằng projection
+        Map<ObjectId, ObjectId> courseByItem = new HashMap<>();
+        lessonRepository.findOutlineByIdIn(newOrders.keySet())
+                .forEach(lesson -> courseByItem.put(lesson.getId(), lesson.getCourseId()));
+        quizzesRepository.findOutlineByIdIn(newOrders.keySet())
+                .forEach(quiz -> courseByItem.put(quiz.getId(), quiz.getCourseId()));
+        Map<ObjectId, Map<ObjectId, Integer>> newOrdersByCourse = new HashMap<>();
+        for (Map.Entry<ObjectId, Integer> entry : newOrders.entrySet()) {
+            ObjectId courseId = courseByItem.get(entry.getKey());
+            if (courseId == null) {
+                return ResponseEntity.badRequest().body("Item " + entry.getKey() + " not found");
+            }
+            newOrdersByCourse.computeIfAbsent(courseId, key -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+        }
+        if (user.getRole() != ERole.ROLE_ADMIN) {
+            for (Course course : courseRepository.findAllById(newOrdersByCourse.keySet())) {
+                if (!user.getId().equals(course.getTeacherId())) {
                     return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You are not the owner of this course");
-                }else {
-                        quizzes.setOrder(newOrder);
-                        quizzesRepository.save(quizzes);
                 }
             }
         }
+
+        // Kiểm tra toàn bộ trước, rồi ghi một lượt bulk cho mỗi collection
+        try {
+            courseReorderService.reorder(newOrdersByCourse);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
         return ResponseEntity.ok("Done !");
     }
 
+    // Thứ tự mới của cả khóa học (kéo thả): itemIds gồm mọi bài học + quiz theo thứ tự mới
+    public ResponseEntity<?> reorderCourse(String id, ReorderRequestDto request, Principal principal) {
+        Optional<Course> courseOptional = courseRepository.findById(new ObjectId(id));
+        if (courseOptional.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
+        }
+        Course course = courseOptional.get();
+        User user = userService.findByUsername(principal.getName());
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not authenticated");
+        }
+        if (user.getRole() != ERole.ROLE_ADMIN && !user.getId().equals(course.getTeacherId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("You are not the owner of this course");
+        }
+        if (request.getItemIds() == null) {
+            return ResponseEntity.badRequest().body("itemIds is required");
+        }
+        try {
+            List<ObjectId> itemIds = request.getItemIds().stream().map(ObjectId::new).toList();
+            Map<String, Object> result = new HashMap<>();
+            result.put("changed", courseReorderService.reorder(course.getId(), itemIds));
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
 
     public ResponseEntity<?> createCourse(CourseCreateRequest input, User user) {
         Course course = new Course();
@@ -1118,9 +992,10 @@ public class CourseService {
         course.setCategories(categories);
 
         course.setQuizzes(new ArrayList<>());
-        course.setStudentsEnrolled(new ArrayList<>());
+        course.setStudentsCount(0);
         course.setRequest(new ArrayList<>());
         courseRepository.save(course);
+        publishCatalogChange(CatalogChangedEvent.Scope.COURSE, course.getId());
         return ResponseEntity.ok("Course created successfully");
     }
 
@@ -1143,19 +1018,11 @@ public class CourseService {
 
         lesson = lessonRepository.save(lesson);
 
-        ArrayList<ObjectId> lessons = course.getLessons();
-        if (lessons == null) {
-            lessons = new ArrayList<>();
-        }
-        lessons.add(lesson.getId());
-        course.setLessons(lessons);
-
-        Integer timeLimit = course.getTotalTimeLimit() != null ? course.getTotalTimeLimit() : 0;
-        timeLimit += lesson.getTimeLimit();
-        course.setTotalTimeLimit(timeLimit);
-
-        course.setUpdatedAt(LocalDateTime.now());
-        courseRepository.save(course);
+        updateCourse(course.getId(), new Update()
+                .push("lessons", lesson.getId())
+                .inc("totalTimeLimit", lesson.getTimeLimit())
+                .set("updatedAt", LocalDateTime.now()));
+        publishCatalogChange(CatalogChangedEvent.Scope.CONTENT, course.getId());
 
         return ResponseEntity.ok("Lesson created successfully");
     }
@@ -1174,19 +1041,11 @@ public class CourseService {
 
         quizzes = quizzesRepository.save(quizzes);
 
-        ArrayList<ObjectId> quizs = course.getQuizzes();
-        if (quizs == null) {
-            quizs = new ArrayList<>();
-        }
-        quizs.add(quizzes.getId());
-        course.setQuizzes(quizs);
-
-        Integer timeLimit = course.getTotalTimeLimit() != null ? course.getTotalTimeLimit() : 0;
-        timeLimit += quizzes.getTimeLimit();
-        course.setTotalTimeLimit(timeLimit);
-
-        course.setUpdatedAt(LocalDateTime.now());
-        courseRepository.save(course);
+        updateCourse(course.getId(), new Update()
+                .push("quizzes", quizzes.getId())
+                .inc("totalTimeLimit", quizzes.getTimeLimit())
+                .set("updatedAt", LocalDateTime.now()));
+        publishCatalogChange(CatalogChangedEvent.Scope.CONTENT, course.getId());
 
         return ResponseEntity.ok("Quiz created successfully");
     }
@@ -1194,9 +1053,6 @@ public class CourseService {
     public ResponseEntity<?> updateQuiz(Course course, Quizzes existingQuiz, Quizzes updatedQuiz) {
         int oldTimeLimit = existingQuiz.getTimeLimit() != null ? existingQuiz.getTimeLimit() : 0;
         int newTimeLimit = updatedQuiz.getTimeLimit() != null ? updatedQuiz.getTimeLimit() : 0;
-        int courseTimeLimit = course.getTotalTimeLimit() != null ? course.getTotalTimeLimit() : 0;
-        courseTimeLimit = courseTimeLimit - oldTimeLimit + newTimeLimit;
-        course.setTotalTimeLimit(courseTimeLimit);
         existingQuiz.setTitle(updatedQuiz.getTitle());
         existingQuiz.setDescription(updatedQuiz.getDescription());
         existingQuiz.setQuestions(updatedQuiz.getQuestions());
@@ -1213,10 +1069,12 @@ public class CourseService {
         }
 
         existingQuiz.setUpdateAt(LocalDateTime.now());
-        course.setUpdatedAt(LocalDateTime.now());
 
         quizzesRepository.save(existingQuiz);
-        courseRepository.save(course);
+        updateCourse(course.getId(), new Update()
+                .inc("totalTimeLimit", newTimeLimit - oldTimeLimit)
+                .set("updatedAt", LocalDateTime.now()));
+        publishCatalogChange(CatalogChangedEvent.Scope.CONTENT, course.getId());
 
         return ResponseEntity.ok("Quiz updated successfully");
     }
@@ -1224,9 +1082,6 @@ public class CourseService {
     public ResponseEntity<?> updateLesson(Course course, Lesson existingLesson, Lesson updatedLesson) {
         Integer oldTimeLimit = existingLesson.getTimeLimit() != null ? existingLesson.getTimeLimit() : 0;
         Integer newTimeLimit = updatedLesson.getTimeLimit() != null ? updatedLesson.getTimeLimit() : 0;
-        Integer courseTimeLimit = course.getTotalTimeLimit() != null ? course.getTotalTimeLimit() : 0;
-        courseTimeLimit = courseTimeLimit - oldTimeLimit + newTimeLimit;
-        course.setTotalTimeLimit(courseTimeLimit);
 
         existingLesson.setTitle(updatedLesson.getTitle());
         existingLesson.setShortTile(updatedLesson.getShortTile());
@@ -1241,10 +1096,12 @@ public class CourseService {
         }
 
         existingLesson.setUpdateAt(LocalDateTime.now());
-        course.setUpdatedAt(LocalDateTime.now());
 
         lessonRepository.save(existingLesson);
-        courseRepository.save(course);
+        updateCourse(course.getId(), new Update()
+                .inc("totalTimeLimit", newTimeLimit - oldTimeLimit)
+                .set("updatedAt", LocalDateTime.now()));
+        publishCatalogChange(CatalogChangedEvent.Scope.CONTENT, course.getId());
 
         return ResponseEntity.ok("Lesson updated successfully");
     }
@@ -1275,13 +1132,11 @@ public class CourseService {
             }
             enrollmentRepository.save(enrollment);
         });
-        course.getQuizzes().remove(quiz.getId());
-
-        course.setUpdatedAt(LocalDateTime.now());
-
         quizzesRepository.delete(quiz);
 
-        courseRepository.save(course);
+        removeContent(course.getId(), "quizzes", quiz.getId(), quizTimeLimit);
+        publishCatalogChange(CatalogChangedEvent.Scope.CONTENT, course.getId());
+        eventPublisher.publishEvent(new EnrollmentChangedEvent(this, null, course.getId()));
 
         return ResponseEntity.ok("Quiz deleted successfully");
     }
@@ -1307,17 +1162,24 @@ public class CourseService {
                 enrollmentRepository.save(enrollment);
             }
         });
-        course.getLessons().remove(lesson.getId());
-
-        course.setUpdatedAt(LocalDateTime.now());
-
         lessonRepository.delete(lesson);
 
-        courseRepository.save(course);
+        removeContent(course.getId(), "lessons", lesson.getId(), lessonTimeLimit);
+        publishCatalogChange(CatalogChangedEvent.Scope.CONTENT, course.getId());
+        eventPublisher.publishEvent(new EnrollmentChangedEvent(this, null, course.getId()));
 
         return ResponseEntity.ok("Lesson deleted successfully");
     }
 
+    // Bỏ id khỏi mảng lessons / quizzes và trừ thời lượng; điều kiện có id trong mảng để xóa lặp không trừ hai lần
+    private void removeContent(ObjectId courseId, String field, ObjectId itemId, int timeLimit) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(courseId).and(field).is(itemId)),
+                new Update().pull(field, itemId).inc("totalTimeLimit", -timeLimit).set("updatedAt", LocalDateTime.now()),
+                Course.class);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(courseId).and("totalTimeLimit").lt(0)),
+                new Update().set("totalTimeLimit", 0), Course.class);
+    }
+
     public ResponseEntity<?> getLessonForCourseUser(String id, User user) {
         if(user == null){
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not authenticated");
@@ -1372,7 +1234,7 @@ public class CourseService {
         Quizzes quiz = quizOptional.get();
 
         // Kiểm tra user đã đăng ký khóa học
-        if (!user.getCoursesEnrolled().contains(quiz.getCourseId())) {
+        if (!enrollmentRepository.existsByUserIdAndCourseId(user.getId(), quiz.getCourseId())) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("User not enrolled in this course");
         }
 
@@ -1510,21 +1372,19 @@ public class CourseService {
         } else {
             coursePage = courseRepository.findByStatus(EStatus.ACTIVE, pageable); // Mặc định ACTIVE
         }
-        return coursePage.map(this::mapCourseToOverview);
+        return courseOverviewAssembler.assemble(coursePage, this::mapCourseToOverview);
     }
 
-    private Map<String, Object> mapCourseToOverview(Course course) {
+    private Map<String, Object> mapCourseToOverview(Course course, String teacherName) {
         Map<String, Object> overview = new HashMap<>();
         overview.put("id", course.getId().toString());
         overview.put("title", course.getTitle());
 
-        Optional<User> userTeacher = userService.findById(course.getTeacherId().toString());
-        if (userTeacher.isEmpty()) {
+        if (teacherName == null) {
             overview.put("teacherFullName", "Unknown Teacher");
             overview.put("teacherId", null);
         } else {
-            User teacher = userTeacher.get();
-            overview.put("teacherFullName", teacher.getFirstName() + " " + teacher.getLastName());
+            overview.put("teacherFullName", teacherName);
             overview.put("teacherId", course.getTeacherId().toString());
         }
 
@@ -1532,123 +1392,33 @@ public class CourseService {
         overview.put("thumbnail", course.getThumbnail());
         overview.put("categories", course.getCategories());
         overview.put("price", course.getPrice());
-        overview.put("studentsCount", course.getStudentsEnrolled() != null ? course.getStudentsEnrolled().size() : 0);
+        overview.put("studentsCount", course.getStudentsCount() != null ? course.getStudentsCount() : 0);
         overview.put("contentCount", course.getLessons() != null ? course.getLessons().size() : 0);
         overview.put("totalTimeLimit", course.getTotalTimeLimit());
 
         return overview;
     }
     public Page<Map<String, Object>> searchCoursesForAdmin(String query, String status, Pageable pageable) {
-        Page<Course> coursePage;
-        if (query == null || query.trim().isEmpty()) {
-            if (status != null) {
-                coursePage = courseRepository.findByStatus(
-                        EStatus.valueOf(status.toUpperCase()), pageable);
-            } else {
-                coursePage = courseRepository.findAll(pageable);
-            }
-        } else {
-            if (status != null) {
-                coursePage = courseRepository.findByTitleContainingIgnoreCaseAndStatus(
-                        query, EStatus.valueOf(status.toUpperCase()), pageable);
-            } else {
-                coursePage = courseRepository.findByTitleContainingIgnoreCase(query, pageable);
-            }
-        }
-        return coursePage.map(this::mapCourseToOverview);
+        CourseSearchRequest request = CourseSearchRequest.builder()
+                .query(query)
+                .status(status != null ? EStatus.valueOf(status.toUpperCase()) : null)
+                .build();
+        Page<Course> coursePage = courseSearchService.search(request, pageable);
+        return courseOverviewAssembler.assemble(coursePage, this::mapCourseToOverview);
     }
 
-    public Page<Map<String, Object>> searchCourses(
-            String query,
-            List<String> categories,
-            List<String> teacherIds,
-            Double ratingMin,
-            Double ratingMax,
-            Pageable pageable
-    ) {
-        // Chuyển teacherIds từ String sang ObjectId
-        List<ObjectId> teacherObjectIds = teacherIds != null
-                ? teacherIds.stream()
-                .map(ObjectId::new)
-                .collect(Collectors.toList())
-                : null;
-
-        Page<Course> coursePage;
-
-        // Xử lý tìm kiếm theo tiêu đề
-        if (query != null && !query.trim().isEmpty()) {
-            // Lọc theo tất cả tiêu chí
-            if (categories != null && !categories.isEmpty() && teacherObjectIds != null && !teacherObjectIds.isEmpty() && ratingMin != null && ratingMax != null) {
-                coursePage = courseRepository.findByCategoriesAndRatingAndTeacherIds(
-                        categories, ratingMin, ratingMax, teacherObjectIds, pageable
-                );
-            }
-            // Lọc theo danh mục và đánh giá
-            else if (categories != null && !categories.isEmpty() && ratingMin != null && ratingMax != null) {
-                coursePage = courseRepository.findByCategoriesAndRating(
-                        categories, ratingMin, ratingMax, pageable
-                );
-            }
-            // Lọc theo danh mục và giảng viên
-            else if (categories != null && !categories.isEmpty() && teacherObjectIds != null && !teacherObjectIds.isEmpty()) {
-                coursePage = courseRepository.findByCategoriesAndTeacherIds(
-                        categories, teacherObjectIds, pageable
-                );
+    // Trang công khai: luôn chỉ lấy khóa học ACTIVE
+    public Page<Map<String, Object>> searchCourses(CourseSearchRequest request, Pageable pageable) {
+        request.setStatus(EStatus.ACTIVE);
+        String cacheKey = CatalogCache.pageKey(request, pageable.getPageNumber(), pageable.getPageSize());
+        return catalogCache.coursePages().get(cacheKey, key -> {
+            if (!request.hasFilters() && request.getSort() == null) {
+                // Không có bộ lọc nào: dùng truy vấn projection của trang chủ
+                return getAllCoursesForLandingPage(pageable);
             }
-            // Lọc theo đánh giá và giảng viên
-            else if (ratingMin != null && ratingMax != null && teacherObjectIds != null && !teacherObjectIds.isEmpty()) {
-                coursePage = courseRepository.findByRatingAndTeacherIds(
-                        ratingMin, ratingMax, teacherObjectIds, pageable
-                );
-            }
-            // Lọc theo danh mục
-            else if (categories != null && !categories.isEmpty()) {
-                coursePage = courseRepository.findByCategories(categories, pageable);
-            }
-            // Lọc theo đánh giá
-            else if (ratingMin != null && ratingMax != null) {
-                coursePage = courseRepository.findByRating(ratingMin, ratingMax, pageable);
-            }
-            // Lọc theo giảng viên
-            else if (teacherObjectIds != null && !teacherObjectIds.isEmpty()) {
-                coursePage = courseRepository.findByTeacherIds(teacherObjectIds, pageable);
-            }
-            // Chỉ tìm kiếm theo tiêu đề
-            else {
-                coursePage = courseRepository.findByTitleContainingIgnoreCaseAndStatus(
-                        query, EStatus.ACTIVE, pageable
-                );
-            }
-        } else {
-            // Không có query, lọc theo các tiêu chí khác
-            if (categories != null && !categories.isEmpty() && teacherObjectIds != null && !teacherObjectIds.isEmpty() && ratingMin != null && ratingMax != null) {
-                coursePage = courseRepository.findByCategoriesAndRatingAndTeacherIds(
-                        categories, ratingMin, ratingMax, teacherObjectIds, pageable
-                );
-            } else if (categories != null && !categories.isEmpty() && ratingMin != null && ratingMax != null) {
-                coursePage = courseRepository.findByCategoriesAndRating(
-                        categories, ratingMin, ratingMax, pageable
-                );
-            } else if (categories != null && !categories.isEmpty() && teacherObjectIds != null && !teacherObjectIds.isEmpty()) {
-                coursePage = courseRepository.findByCategoriesAndTeacherIds(
-                        categories, teacherObjectIds, pageable
-                );
-            } else if (ratingMin != null && ratingMax != null && teacherObjectIds != null && !teacherObjectIds.isEmpty()) {
-                coursePage = courseRepository.findByRatingAndTeacherIds(
-                        ratingMin, ratingMax, teacherObjectIds, pageable
-                );
-            } else if (categories != null && !categories.isEmpty()) {
-                coursePage = courseRepository.findByCategories(categories, pageable);
-            } else if (ratingMin != null && ratingMax != null) {
-                coursePage = courseRepository.findByRating(ratingMin, ratingMax, pageable);
-            } else if (teacherObjectIds != null && !teacherObjectIds.isEmpty()) {
-                coursePage = courseRepository.findByTeacherIds(teacherObjectIds, pageable);
-            } else {
-                coursePage = courseRepository.findByStatus(EStatus.ACTIVE, pageable);
-            }
-        }
-
-        return coursePage.map(this::mapCourseToOverview);
+            Page<Course> coursePage = courseSearchService.search(request, pageable);
+            return courseOverviewAssembler.assemble(coursePage, this::mapCourseToOverview);
+        });
     }
 
     public ResponseEntity<?> getTeacherForSlideBar() {
@@ -1668,12 +1438,6 @@ public class CourseService {
     }
 
     public ResponseEntity<?> updateCourseInfo(Course course) {
-        Course course1 = courseRepository.findById(course.getId()).orElse(null );
-        assert course1 != null;
-        course1.setTitle(course.getTitle());
-        course1.setDescription(course.getDescription());
-        course1.setTeacherId(course.getTeacherId());
-        course1.setPrice(course.getPrice());
         List<?> categoriesInput = course.getCategories();
         ArrayList<String> categories = new ArrayList<>();
         if (categoriesInput != null) {
@@ -1686,82 +1450,33 @@ public class CourseService {
                 }
             }
         }
-        course1.setCategories(categories);
-        course1.setStatus(course.getStatus());
-        course1.setThumbnail(course.getThumbnail());
-        course1.setUpdatedAt(LocalDateTime.now());
-        courseRepository.save(course1);
+        long matched = updateCourse(course.getId(), new Update()
+                .set("title", course.getTitle())
+                .set("description", course.getDescription())
+                .set("searchTitle", SearchText.fold(course.getTitle()))
+                .set("searchDescription", SearchText.fold(course.getDescription()))
+                .set("teacherId", course.getTeacherId())
+                .set("price", course.getPrice())
+                .set("categories", categories)
+                .set("status", course.getStatus())
+                .set("thumbnail", course.getThumbnail())
+                .set("updatedAt", LocalDateTime.now()));
+        if (matched == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Course not found");
+        }
+        publishCatalogChange(CatalogChangedEvent.Scope.COURSE, course.getId());
         return ResponseEntity.ok("Update succesfully");
     }
     public ResponseEntity<List<Statistic>> getStatistics(Course course) {
+        return getStatistics(course, 0, 0);
+    }
+
+    // Một aggregation cho mọi quiz của khóa học (xem QuizStatisticsService); size > 0 thì phân trang danh sách học viên
+    public ResponseEntity<List<Statistic>> getStatistics(Course course, int page, int size) {
         if (course == null) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Collections.emptyList());
         }
-
-        List<ObjectId> quizIds = course.getQuizzes();
-        List<Statistic> results = new ArrayList<>();
-
-        // Fetch all quizzes in one query
-        List<Quizzes> quizzes = quizzesRepository.findAllById(quizIds);
-        Map<ObjectId, Quizzes> quizMap = quizzes.stream()
-                .collect(Collectors.toMap(Quizzes::getId, quiz -> quiz));
-
-        for (ObjectId quizId : quizIds) {
-            Quizzes quiz = quizMap.get(quizId);
-            if (quiz == null) {
-                continue;
-            }
-
-            Statistic statistic = Statistic.builder()
-                    .courseId(course.getId())
-                    .quizId(quiz.getId())
-                    .title(quiz.getTitle())
-                    .statisticResponseDtos(new ArrayList<>())
-                    .build();
-
-            List<Enrollment> enrollments = enrollmentRepository.findByQuizScoreOfQuizId(quizId);
-            if (enrollments.isEmpty()) {
-                results.add(statistic);
-                continue;
-            }
-
-            // Collect user IDs for batch query
-            Set<ObjectId> userIds = enrollments.stream()
-                    .map(Enrollment::getUserId)
-                    .collect(Collectors.toSet());
-            Map<ObjectId, User> userMap = userRepository.findAllById(userIds).stream()
-                    .collect(Collectors.toMap(User::getId, user -> user));
-
-            for (Enrollment enrollment : enrollments) {
-                List<Enrollment.QuizScore> quizScores = enrollment.getQuizScores();
-                if (quizScores == null || quizScores.isEmpty()) {
-                    continue;
-                }
-
-                for (Enrollment.QuizScore quizScore : quizScores) {
-                    if (!quizScore.getQuizId().equals(quizId)) {
-                        continue;
-                    }
-
-                    User user = userMap.get(enrollment.getUserId());
-                    if (user == null) {
-                        continue;
-                    }
-
-                    Statistic.StatisticResponseDto responseDto = Statistic.StatisticResponseDto.builder()
-                            .userId(enrollment.getUserId())
-                            .score(quizScore.getScore())
-                            .fullName(user.getFirstName() + " " + user.getLastName())
-                            .email(user.getEmail())
-                            .build();
-                    statistic.getStatisticResponseDtos().add(responseDto);
-                }
-            }
-
-            results.add(statistic);
-        }
-
-        return ResponseEntity.ok(results);
+        return ResponseEntity.ok(quizStatisticsService.getStatistics(course, page, size));
     }
 //    public ResponseEntity<?> getCoursesByPage(int page) {
 //        int pageSize = 6;
@@ -1,49 +1,48 @@
 package web20242.webcourse.service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StreamUtils;
+import web20242.webcourse.model.createRequest.EmailDetail;
+import web20242.webcourse.service.mail.MailOutbox;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 
+// Email được đưa vào MailOutbox và gửi bất đồng bộ, request không phải chờ SMTP
 @Service
 @RequiredArgsConstructor
 public class EmailService {
-    private final JavaMailSender javaMailSender;
+    private static final String SYSTEM_ADDRESS = "mclasspart1@gmail.com";
 
-    public ResponseEntity<?> sendOtp(String username, String otp, String email) throws MessagingException {
-        MimeMessage message = javaMailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, StandardCharsets.UTF_8.name());
+    private final MailOutbox mailOutbox;
 
-        String htmlTemplate = null; // Khởi tạo giá trị mặc định hoặc null
-        try (InputStream inputStream = new ClassPathResource("templates/mailOtp.hbs").getInputStream()) {
-            htmlTemplate = StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
-            htmlTemplate = htmlTemplate.replace("{{fullName}}", username);
-            htmlTemplate = htmlTemplate.replace("{{otpCode}}", otp);
-            htmlTemplate = htmlTemplate.replace("{{recipientEmail}}", email);
-
-            helper.setTo(email);
-
-            helper.setSubject("Mã OTP từ Alpha Education");
-            helper.setText(htmlTemplate, true);
-            helper.setFrom("mclasspart1@gmail.com");
-
-            javaMailSender.send(message);
-            return ResponseEntity.ok("Send email success fully");
+    public ResponseEntity<?> sendOtp(String username, String otp, String email) {
+        Map<String, String> variables = new HashMap<>();
+        variables.put("fullName", username);
+        variables.put("otpCode", otp);
+        variables.put("recipientEmail", email);
+        mailOutbox.enqueue(email, SYSTEM_ADDRESS, "Mã OTP từ Alpha Education", "mailOtp", variables);
+        return ResponseEntity.ok("Send email success fully");
+    }
 
-        } catch (Exception e) {
+    public void sendThanks(EmailDetail emailDetail) {
+        mailOutbox.enqueue(emailDetail.getEmail(), SYSTEM_ADDRESS, "Thông báo từ Alpha Education",
+                "thanks", detailVariables(emailDetail));
+    }
 
-            throw new MessagingException("Failed to send email: " + e.getMessage(), e);
-        }
+    // Gửi nội dung form liên hệ cho admin, kèm email cảm ơn người gửi
+    public void sendContact(EmailDetail emailDetail) {
+        sendThanks(emailDetail);
+        mailOutbox.enqueue(SYSTEM_ADDRESS, emailDetail.getEmail(), emailDetail.getFullName() + " từ ContactForm",
+                "contact", detailVariables(emailDetail));
+    }
 
+    private Map<String, String> detailVariables(EmailDetail emailDetail) {
+        Map<String, String> variables = new HashMap<>();
+        variables.put("fullName", emailDetail.getFullName());
+        variables.put("message", emailDetail.getMessage());
+        variables.put("recipientEmail", emailDetail.getEmail());
+        return variables;
     }
 }
@@ -0,0 +1,163 @@
+package web20242.webcourse.service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.DashboardCourse;
+import web20242.webcourse.model.UserDashboard;
+import web20242.webcourse.model.constant.EStatus;
+import web20242.webcourse.service.cache.CatalogChangedEvent;
+import web20242.webcourse.service.cache.EnrollmentChangedEvent;
+
+import java.util.*;
+
+// Dashboard "khóa học của tôi": một aggregation trên enrollments của user, $lookup tóm tắt khóa học + tên giảng viên,
+// gom theo trạng thái enrollment. Khi dashboard.materialized=true, kết quả được lưu vào user_dashboards và
+// tính lại khi có EnrollmentChangedEvent; thông tin khóa học đổi thì xóa các bản tóm tắt liên quan (tính lại khi đọc).
+@Service
+public class EnrollmentDashboardService {
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentDashboardService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${dashboard.materialized:false}")
+    private boolean materialized;
+
+    // { DONE: [...], INPROGRESS: [...], NOTSTARTED: [...] }, mỗi phần tử cùng dạng với các endpoint cũ
+    public Map<String, List<Map<String, Object>>> getDashboard(ObjectId userId) {
+        Map<String, List<Map<String, Object>>> dashboard = new LinkedHashMap<>();
+        for (EStatus status : List.of(EStatus.DONE, EStatus.INPROGRESS, EStatus.NOTSTARTED)) {
+            dashboard.put(status.name(), new ArrayList<>());
+        }
+        for (UserDashboard.Bucket bucket : loadBuckets(userId)) {
+            List<Map<String, Object>> overviews = dashboard.get(bucket.getStatus());
+            if (overviews != null) {
+                bucket.getCourses().forEach(course -> overviews.add(toOverview(course)));
+            }
+        }
+        return dashboard;
+    }
+
+    public List<Map<String, Object>> getCourses(ObjectId userId, EStatus status) {
+        return getDashboard(userId).getOrDefault(status.name(), new ArrayList<>());
+    }
+
+    private List<UserDashboard.Bucket> loadBuckets(ObjectId userId) {
+        if (!materialized) {
+            return aggregate(userId);
+        }
+        UserDashboard summary = mongoTemplate.findById(userId, UserDashboard.class);
+        if (summary == null) {
+            summary = refresh(userId);
+        }
+        return summary.getBuckets();
+    }
+
+    private List<UserDashboard.Bucket> aggregate(ObjectId userId) {
+        Document teacherName = new Document("$let", new Document()
+                .append("vars", new Document("teacher", new Document("$arrayElemAt", Arrays.asList("$teacher", 0))))
+                .append("in", new Document("$concat", Arrays.asList("$$teacher.first_name", " ", "$$teacher.last_name"))));
+
+        List<AggregationOperation> pipeline = List.of(
+                context -> new Document("$match", new Document("userId", userId)),
+                context -> new Document("$lookup", new Document("from", "courses")
+                        .append("localField", "courseId")
+                        .append("foreignField", "_id")
+                        .append("pipeline", List.of(new Document("$project",
+                                new Document("title", 1).append("thumbnail", 1).append("teacherId", 1))))
+                        .append("as", "course")),
+                context -> new Document("$unwind", "$course"), // bỏ enrollment của khóa học đã bị xóa
+                context -> new Document("$lookup", new Document("from", "users")
+                        .append("localField", "course.teacherId")
+                        .append("foreignField", "_id")
+                        .append("pipeline", List.of(new Document("$project",
+                                new Document("first_name", 1).append("last_name", 1))))
+                        .append("as", "teacher")),
+                context -> new Document("$project", new Document("_id", 0)
+                        .append("courseId", 1)
+                        .append("title", "$course.title")
+                        .append("thumbnail", "$course.thumbnail")
+                        .append("teacherName", new Document("$ifNull", Arrays.asList(teacherName, "Unknown Teacher")))
+                        .append("status", 1)
+                        .append("progress", 1)
+                        .append("timeCurrent", 1)
+                        .append("enrolledAt", 1)
+                        .append("completedAt", 1)),
+                context -> new Document("$group", new Document("_id", "$status")
+                        .append("courses", new Document("$push", "$$ROOT"))));
+
+        return mongoTemplate.aggregate(Aggregation.newAggregation(pipeline), "enrollments", UserDashboard.Bucket.class)
+                .getMappedResults();
+    }
+
+    private UserDashboard refresh(ObjectId userId) {
+        List<UserDashboard.Bucket> buckets = aggregate(userId);
+        ArrayList<ObjectId> courseIds = new ArrayList<>();
+        buckets.forEach(bucket -> bucket.getCourses().forEach(course -> courseIds.add(course.getCourseId())));
+        UserDashboard summary = new UserDashboard(userId, new ArrayList<>(buckets), courseIds, new Date());
+        mongoTemplate.save(summary);
+        return summary;
+    }
+
+    private Map<String, Object> toOverview(DashboardCourse course) {
+        Map<String, Object> overview = new HashMap<>();
+        overview.put("id", String.valueOf(course.getCourseId()));
+        overview.put("title", course.getTitle());
+        overview.put("status", course.getStatus());
+        overview.put("thumbnail", course.getThumbnail());
+        overview.put("teacherName", course.getTeacherName());
+        if (course.getStatus() == EStatus.DONE) {
+            overview.put("completeDate", course.getCompletedAt());
+        } else {
+            overview.put("process", course.getProgress());
+            overview.put("timeCurrent", course.getTimeCurrent());
+            overview.put("startDate", course.getEnrolledAt());
+        }
+        return overview;
+    }
+
+    @EventListener
+    public void onEnrollmentChanged(EnrollmentChangedEvent event) {
+        if (!materialized) {
+            return;
+        }
+        try {
+            if (event.getUserId() != null) {
+                refresh(event.getUserId());
+            } else {
+                evict(event.getCourseId());
+            }
+        } catch (Exception e) {
+            // Bản tóm tắt cũ không được để lại: xóa để lần đọc sau tính lại
+            logger.warn("Cannot refresh dashboard for user {}: {}", event.getUserId(), e.getMessage());
+            if (event.getUserId() != null) {
+                mongoTemplate.remove(Query.query(Criteria.where("_id").is(event.getUserId())), UserDashboard.class);
+            }
+        }
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (materialized && (event.getScope() == CatalogChangedEvent.Scope.COURSE
+                || event.getScope() == CatalogChangedEvent.Scope.DELETED)) {
+            evict(event.getCourseId());
+        }
+    }
+
+    // courseId null: xóa toàn bộ bản tóm tắt
+    private void evict(ObjectId courseId) {
+        Query query = courseId != null ? Query.query(Criteria.where("courseIds").is(courseId)) : new Query();
+        mongoTemplate.remove(query, UserDashboard.class);
+    }
+}
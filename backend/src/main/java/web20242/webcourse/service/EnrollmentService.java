@@ -1,12 +1,21 @@
 package web20242.webcourse.service;
 
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import web20242.webcourse.model.*;
 import web20242.webcourse.model.constant.EStatus;
 import web20242.webcourse.repository.*;
+import web20242.webcourse.service.cache.EnrollmentChangedEvent;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
@@ -29,21 +38,23 @@ public class EnrollmentService {
     @Autowired
     private QuizzesRepository quizzesRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public void createEnrollment(ObjectId userId, String courseIdHex) {
         ObjectId courseId = new ObjectId(courseIdHex);
 
-        Optional<Course> course = courseRepository.findById(courseId);
-        Optional<User> user = userRepository.findById(userId);
-
-        if (user.isEmpty()) {
+        if (!userRepository.existsById(userId)) {
             throw new IllegalArgumentException("userId không tồn tại trong collection users");
         }
-        if (course.isEmpty()) {
+        if (!courseRepository.existsById(courseId)) {
             throw new IllegalArgumentException("courseId không tồn tại trong collection courses");
         }
 
-        Optional<Enrollment> existingEnrollment = enrollmentRepository.findByUserIdAndCourseId(userId, courseId);
-        if (existingEnrollment.isPresent()) {
+        if (enrollmentRepository.existsByUserIdAndCourseId(userId, courseId)) {
             throw new IllegalStateException("Người dùng đã đăng ký khóa học này rồi");
         }
 
@@ -59,74 +70,29 @@ public class EnrollmentService {
 
         enrollmentRepository.save(enrollment);
 
-        Course existingCourse = course.get();
-        ArrayList<ObjectId> studentsEnrolled = existingCourse.getStudentsEnrolled();
-        if (studentsEnrolled == null) {
-            studentsEnrolled = new ArrayList<>();
-        }
-        if (!studentsEnrolled.contains(userId)) {
-            studentsEnrolled.add(userId);
-            existingCourse.setStudentsEnrolled(studentsEnrolled);
-            courseRepository.save(existingCourse);
-        }
-
-        User existingUser = user.get();
-        ArrayList<ObjectId> coursesEnrolled = existingUser.getCoursesEnrolled();
-        if (coursesEnrolled == null) {
-            coursesEnrolled = new ArrayList<>();
-        }
-        if (!coursesEnrolled.contains(courseId)) {
-            coursesEnrolled.add(courseId);
-            existingUser.setCoursesEnrolled(coursesEnrolled);
-            userRepository.save(existingUser);
-        }
+        // Enrollment là nguồn dữ liệu chính; course chỉ giữ bộ đếm, user giữ danh sách id khóa học
+        courseRepository.incrementStudentsCount(courseId, 1);
+        userRepository.addEnrolledCourse(userId, courseId);
+        eventPublisher.publishEvent(new EnrollmentChangedEvent(this, userId, courseId));
     }
 
     public ResponseEntity<?> updateProgressForLesson(String courseId, String itemId, Principal principal) {
         Optional<User> userOptional = userRepository.findByUsername(principal.getName());
         if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            Optional<Enrollment> enrollment = enrollmentRepository.findByUserIdAndCourseId(user.getId(), new ObjectId(courseId));
-            Optional<Course> courseOptional = courseRepository.findById(new ObjectId(courseId));
-            Optional<Lesson> lessonOptional = lessonRepository.findById(new ObjectId(itemId));
-
-            if (enrollment.isPresent() && courseOptional.isPresent() && lessonOptional.isPresent()) {
-                Enrollment existingEnrollment = enrollment.get();
-
-                ArrayList<ObjectId> lessonAndQuizId = existingEnrollment.getLessonAndQuizId();
-                if (lessonAndQuizId == null) {
-                    lessonAndQuizId = new ArrayList<>();
-                    existingEnrollment.setLessonAndQuizId(lessonAndQuizId);
-                }
-
-                ObjectId objectItemId = new ObjectId(itemId);
-                if (!lessonAndQuizId.contains(objectItemId)) {
-                    Integer timeCurrent = existingEnrollment.getTimeCurrent() != null ? existingEnrollment.getTimeCurrent() : 0;
-                    timeCurrent += lessonOptional.get().getTimeLimit();
-
-                    Number progress = 0.0;
-                    progress = (double) timeCurrent / courseOptional.get().getTotalTimeLimit() * 100;
-                    existingEnrollment.setProgress(progress.doubleValue());
-                    existingEnrollment.setTimeCurrent(timeCurrent);
-
-                    if (progress.doubleValue() >=99.90) {
-                        existingEnrollment.setStatus(EStatus.DONE);
-                        existingEnrollment.setCompletedAt(LocalDateTime.now());
-                    } else if (progress.doubleValue() > 0.0) {
-                        existingEnrollment.setStatus(EStatus.INPROGRESS);
-
-                    } else {
-                        existingEnrollment.setStatus(EStatus.NOTSTARTED);
-
-                    }
-
-                    lessonAndQuizId.add(objectItemId);
-                    enrollmentRepository.save(existingEnrollment);
+            ObjectId courseObjectId = new ObjectId(courseId);
+            ObjectId lessonId = new ObjectId(itemId);
+            Lesson lesson = findItemTimeLimit(lessonId, courseObjectId, Lesson.class);
+            Integer totalTimeLimit = findTotalTimeLimit(courseObjectId);
+
+            if (lesson != null && totalTimeLimit != null) {
+                int timeLimit = lesson.getTimeLimit() != null ? lesson.getTimeLimit() : 0;
+                Enrollment updated = applyProgressUpdate(userOptional.get().getId(), courseObjectId,
+                        progressPipeline(lessonId, timeLimit, totalTimeLimit, null));
+                if (updated != null) {
+                    return ResponseEntity.ok("Cập nhật tiến độ thành công");
                 }
-                return ResponseEntity.ok("Cập nhật tiến độ thành công");
-            } else {
-                return ResponseEntity.status(404).body("Không tìm thấy enrollment cho khóa học này");
             }
+            return ResponseEntity.status(404).body("Không tìm thấy enrollment cho khóa học này");
         }
         return ResponseEntity.status(404).body("Không tìm thấy người dùng");
     }
@@ -134,79 +100,126 @@ public class EnrollmentService {
     public ResponseEntity<?> updateProgressForQuiz(String courseId, String itemId, Double newScore, Principal principal) {
         Optional<User> userOptional = userRepository.findByUsername(principal.getName());
         if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            Optional<Enrollment> enrollment = enrollmentRepository.findByUserIdAndCourseId(user.getId(), new ObjectId(courseId));
-            Optional<Course> courseOptional = courseRepository.findById(new ObjectId(courseId));
-            Optional<Quizzes> quizzesOptional = quizzesRepository.findById(new ObjectId(itemId));
-
-            if (enrollment.isPresent() && courseOptional.isPresent() && quizzesOptional.isPresent()) {
-                Enrollment existingEnrollment = enrollment.get();
-
-                ArrayList<ObjectId> lessonAndQuizId = existingEnrollment.getLessonAndQuizId();
-                if (lessonAndQuizId == null) {
-                    lessonAndQuizId = new ArrayList<>();
-                    existingEnrollment.setLessonAndQuizId(lessonAndQuizId);
-                }
-
-                ArrayList<Enrollment.QuizScore> quizScores = existingEnrollment.getQuizScores();
-                if (quizScores == null) {
-                    quizScores = new ArrayList<>();
-                    quizScores.add(Enrollment.QuizScore.builder().quizId(new ObjectId(itemId)).score(newScore).build());
-                    existingEnrollment.setQuizScores(quizScores);
-                }
-
-                ObjectId quizId = new ObjectId(itemId);
-                boolean scoreUpdated = false;
-
-                for (Enrollment.QuizScore quizScore : quizScores) {
-                    if (quizScore.getQuizId().equals(quizId)) {
-                        if (newScore != null && newScore > quizScore.getScore()) {
-                            quizScore.setScore(newScore);
-                            scoreUpdated = true;
-                        }
-                        break;
-                    }
+            ObjectId courseObjectId = new ObjectId(courseId);
+            ObjectId quizId = new ObjectId(itemId);
+            Quizzes quiz = findItemTimeLimit(quizId, courseObjectId, Quizzes.class);
+            Integer totalTimeLimit = findTotalTimeLimit(courseObjectId);
+
+            if (quiz != null && totalTimeLimit != null) {
+                int timeLimit = quiz.getTimeLimit() != null ? quiz.getTimeLimit() : 0;
+                List<AggregationOperation> pipeline = progressPipeline(quizId, timeLimit, totalTimeLimit, newScore);
+                Enrollment updated = applyProgressUpdate(userOptional.get().getId(), courseObjectId, pipeline);
+                if (updated != null) {
+                    return ResponseEntity.ok("Cập nhật tiến độ thành công");
                 }
+            }
+            return ResponseEntity.status(404).body("Không tìm thấy enrollment cho khóa học này");
+        }
+        return ResponseEntity.status(404).body("Không tìm thấy người dùng");
+    }
 
-//                if (!scoreUpdated && newScore != null) {
-//                    Enrollment.QuizScore newQuizScore = Enrollment.QuizScore.builder()
-//                            .quizId(quizId)
-//                            .score(newScore)
-//                            .build();
-//                    quizScores.add(newQuizScore);
-//                }
-
-                if (!lessonAndQuizId.contains(quizId)) {
-                    Integer timeCurrent = existingEnrollment.getTimeCurrent() != null ? existingEnrollment.getTimeCurrent() : 0;
-                    int timeLimit = quizzesOptional.get().getTimeLimit() != null ? quizzesOptional.get().getTimeLimit() : 0;
-                    timeCurrent += timeLimit;
-
-                    int totalTimeLimit = courseOptional.get().getTotalTimeLimit() != null ? courseOptional.get().getTotalTimeLimit() : 1; // Default to 1 to avoid division by zero
-                    Number progress = totalTimeLimit != 0 ? (double) timeCurrent / totalTimeLimit * 100 : 0.0;
-                    existingEnrollment.setProgress(progress.doubleValue());
-                    existingEnrollment.setTimeCurrent(timeCurrent);
-
-                    if (progress.doubleValue() >=99.90) {
-                        existingEnrollment.setStatus(EStatus.DONE);
-                        existingEnrollment.setCompletedAt(LocalDateTime.now());
-                    } else if (progress.doubleValue() > 0.0) {
-                        existingEnrollment.setStatus(EStatus.INPROGRESS);
+    // Chỉ đọc timeLimit của bài học / quiz, đồng thời kiểm tra item thuộc đúng khóa học
+    private <T> T findItemTimeLimit(ObjectId itemId, ObjectId courseId, Class<T> type) {
+        Query query = Query.query(Criteria.where("_id").is(itemId).and("courseId").is(courseId));
+        query.fields().include("timeLimit");
+        return mongoTemplate.findOne(query, type);
+    }
 
-                    } else {
-                        existingEnrollment.setStatus(EStatus.NOTSTARTED);
+    private Integer findTotalTimeLimit(ObjectId courseId) {
+        Query query = Query.query(Criteria.where("_id").is(courseId));
+        query.fields().include("totalTimeLimit");
+        Course course = mongoTemplate.findOne(query, Course.class);
+        if (course == null) {
+            return null;
+        }
+        return course.getTotalTimeLimit() != null ? course.getTotalTimeLimit() : 0;
+    }
 
-                    }
+    // Một findAndModify duy nhất: các request song song trên cùng enrollment được Mongo tuần tự hóa,
+    // nên không mất lần cộng timeCurrent nào và mỗi item chỉ được tính một lần
+    private Enrollment applyProgressUpdate(ObjectId userId, ObjectId courseId, List<AggregationOperation> pipeline) {
+        Query query = Query.query(Criteria.where("userId").is(userId).and("courseId").is(courseId));
+        Enrollment updated = mongoTemplate.findAndModify(query, AggregationUpdate.from(pipeline),
+                FindAndModifyOptions.options().returnNew(true), Enrollment.class);
+        if (updated != null) {
+            eventPublisher.publishEvent(new EnrollmentChangedEvent(this, userId, courseId));
+        }
+        return updated;
+    }
 
-                    lessonAndQuizId.add(quizId);
-                }
+    // Pipeline cập nhật: thêm item vào lessonIdAndQuizId nếu chưa có, cộng timeLimit vào timeCurrent,
+    // rồi tính progress / status ngay trên server theo cùng quy tắc cũ (>= 99.90 là DONE)
+    private List<AggregationOperation> progressPipeline(ObjectId itemId, int timeLimit, int totalTimeLimit, Double newScore) {
+        Document completedIds = new Document("$ifNull", Arrays.asList("$lessonIdAndQuizId", Collections.emptyList()));
+        Document timeCurrent = new Document("$ifNull", Arrays.asList("$timeCurrent", 0));
+
+        Document markNew = new Document("_isNewItem",
+                new Document("$not", List.of(new Document("$in", Arrays.asList(itemId, completedIds)))));
+
+        Document addItem = new Document()
+                .append("lessonIdAndQuizId", new Document("$cond", Arrays.asList("$_isNewItem",
+                        new Document("$concatArrays", Arrays.asList(completedIds, List.of(itemId))),
+                        completedIds)))
+                .append("timeCurrent", new Document("$cond", Arrays.asList("$_isNewItem",
+                        new Document("$add", Arrays.asList(timeCurrent, timeLimit)),
+                        timeCurrent)));
+
+        Document newProgress = totalTimeLimit != 0
+                ? new Document("$multiply", Arrays.asList(
+                        new Document("$divide", Arrays.asList("$timeCurrent", totalTimeLimit)), 100))
+                : new Document("$literal", 0.0);
+        Document newStatus = new Document("$switch", new Document()
+                .append("branches", Arrays.asList(
+                        new Document("case", new Document("$gte", Arrays.asList("$progress", 99.90)))
+                                .append("then", EStatus.DONE.name()),
+                        new Document("case", new Document("$gt", Arrays.asList("$progress", 0.0)))
+                                .append("then", EStatus.INPROGRESS.name())))
+                .append("default", EStatus.NOTSTARTED.name()));
+
+        Document setProgress = new Document("progress",
+                new Document("$cond", Arrays.asList("$_isNewItem", newProgress, "$progress")));
+        Document setStatus = new Document()
+                .append("status", new Document("$cond", Arrays.asList("$_isNewItem", newStatus, "$status")))
+                .append("completedAt", new Document("$cond", Arrays.asList(
+                        new Document("$and", Arrays.asList("$_isNewItem",
+                                new Document("$gte", Arrays.asList("$progress", 99.90)))),
+                        "$$NOW", "$completedAt")));
+
+        List<Document> stages = new ArrayList<>();
+        stages.add(new Document("$set", markNew));
+        stages.add(new Document("$set", addItem));
+        stages.add(new Document("$set", setProgress));
+        stages.add(new Document("$set", setStatus));
+        if (newScore != null) {
+            stages.add(new Document("$set", new Document("quizScores", mergeQuizScore(itemId, newScore))));
+        }
+        stages.add(new Document("$unset", "_isNewItem"));
 
-                enrollmentRepository.save(existingEnrollment);
-                return ResponseEntity.ok("Cập nhật tiến độ thành công");
-            } else {
-                return ResponseEntity.status(404).body("Không tìm thấy enrollment cho khóa học này");
-            }
+        List<AggregationOperation> pipeline = new ArrayList<>();
+        for (Document stage : stages) {
+            pipeline.add(context -> stage);
         }
-        return ResponseEntity.status(404).body("Không tìm thấy người dùng");
+        return pipeline;
+    }
+
+    // Giữ điểm cao nhất của quiz ($max), thêm mới nếu quiz chưa có điểm
+    private Document mergeQuizScore(ObjectId quizId, Double newScore) {
+        Document scores = new Document("$ifNull", Arrays.asList("$quizScores", Collections.emptyList()));
+        Document raised = new Document("$map", new Document()
+                .append("input", scores)
+                .append("as", "s")
+                .append("in", new Document("$cond", Arrays.asList(
+                        new Document("$eq", Arrays.asList("$$s.quizId", quizId)),
+                        new Document("quizId", "$$s.quizId")
+                                .append("score", new Document("$max", Arrays.asList("$$s.score", newScore))),
+                        "$$s"))));
+        Document appended = new Document("$concatArrays", Arrays.asList(scores,
+                List.of(new Document("quizId", new Document("$literal", quizId)).append("score", newScore))));
+        return new Document("$cond", Arrays.asList(
+                new Document("$in", Arrays.asList(quizId, new Document("$ifNull",
+                        Arrays.asList("$quizScores.quizId", Collections.emptyList())))),
+                raised,
+                appended));
     }
 
     public ResponseEntity<?> getAllEnrollments(Principal principal) {
@@ -233,33 +246,19 @@ public class EnrollmentService {
         return ResponseEntity.status(401).body("Người dùng không tồn tại");
     }
 
-    public void deleteEnrollment(String id, User user) {
-        Optional<Enrollment> enrollmentOptional = enrollmentRepository.findByUserIdAndCourseId(user.getId(), new ObjectId(id));
-        Course course = courseRepository.findById(new ObjectId(id)).orElse(null);
-        ArrayList<ObjectId> studentsEnrolled = course.getStudentsEnrolled();
-        if (studentsEnrolled != null) {
-            studentsEnrolled.remove(user.getId());
-            course.setStudentsEnrolled(studentsEnrolled);
-            courseRepository.save(course);
+    public ResponseEntity<?> deleteEnrollment(String id, User user) {
+        if (!ObjectId.isValid(id)) {
+            return ResponseEntity.badRequest().body("ID khóa học không hợp lệ: " + id);
         }
-        ArrayList<ObjectId> coursesEnrolled = user.getCoursesEnrolled();
-        if (coursesEnrolled != null) {
-            coursesEnrolled.remove(new ObjectId(id));
-            user.setCoursesEnrolled(coursesEnrolled);
-            userRepository.save(user);
+        ObjectId courseId = new ObjectId(id);
+        userRepository.removeEnrolledCourse(user.getId(), courseId);
+        // Chỉ giảm bộ đếm khi thật sự xóa được bản ghi, hai request xóa song song không trừ hai lần
+        if (enrollmentRepository.deleteByUserIdAndCourseId(user.getId(), courseId) == 0) {
+            return ResponseEntity.status(404).body("Không tìm thấy enrollment với ID: " + id);
         }
-        if (enrollmentOptional.isPresent()) {
-            Enrollment enrollment = enrollmentOptional.get();
-            if (enrollment.getUserId().equals(user.getId())) {
-                enrollmentRepository.delete(enrollment);
-                ResponseEntity.ok("Xóa thành công");
-            } else {
-                ResponseEntity.status(401).body("Người dùng không có quyền xóa enrollment này");
-            }
-        } else {
-            ResponseEntity.status(404).body("Không tìm thấy enrollment với ID: " + id);
-        }
-
+        courseRepository.incrementStudentsCount(courseId, -1);
+        eventPublisher.publishEvent(new EnrollmentChangedEvent(this, user.getId(), courseId));
+        return ResponseEntity.ok("Xóa thành công");
     }
 
     public ResponseEntity<?> getAllRequestForUser(User user){
@@ -303,16 +302,7 @@ public class EnrollmentService {
             throw new IllegalStateException("Người dùng đã đăng ký khóa học này rồi");
         }
 
-        Course existingCourse = course.get();
-        ArrayList<ObjectId> request = existingCourse.getRequest();
-        if (request == null) {
-            request = new ArrayList<>();
-        }
-        if (!request.contains(user.getId())) {
-            request.add(user.getId());
-            existingCourse.setRequest(request);
-            courseRepository.save(existingCourse);
-        }
+        courseRepository.addRequest(courseId, user.getId());
 
         ArrayList<ObjectId> requestCoursed = user.getRequestedCourses();
         if (requestCoursed == null) {
@@ -334,12 +324,9 @@ public class EnrollmentService {
             ArrayList<ObjectId> request = course.getRequest();
             ArrayList<ObjectId> requestCoursed = user.getRequestedCourses();
             if (request != null && request.contains(user.getId()) &&  requestCoursed != null && requestCoursed.contains(course.getId())) {
-                request.remove(user.getId());
-                course.setRequest(request);
-                courseRepository.save(course);
+                courseRepository.removeRequest(course.getId(), user.getId());
                 requestCoursed.remove(course.getId());
                 user.setRequestedCourses(requestCoursed);
-                user.getCoursesEnrolled().add(course.getId());
                 userRepository.save(user);
                 try {
                     createEnrollment(user.getId(), courseId);
@@ -366,12 +353,9 @@ public class EnrollmentService {
             ArrayList<ObjectId> request = course.getRequest();
             ArrayList<ObjectId> requestCoursed = user.getRequestedCourses();
             if (request != null && request.contains(user.getId()) &&  requestCoursed != null && requestCoursed.contains(course.getId())) {
-                request.remove(user.getId());
-                course.setRequest(request);
-                courseRepository.save(course);
+                courseRepository.removeRequest(course.getId(), user.getId());
                 requestCoursed.remove(course.getId());
                 user.setRequestedCourses(requestCoursed);
-                user.getCoursesEnrolled().add(course.getId());
                 userRepository.save(user);
                 try {
                     createEnrollment(user.getId(), courseId);
@@ -394,9 +378,7 @@ public class EnrollmentService {
             ArrayList<ObjectId> request = course.getRequest();
             ArrayList<ObjectId> requestCoursed = user.getRequestedCourses();
             if (request != null && request.contains(user.getId()) &&  requestCoursed != null && requestCoursed.contains(course.getId())) {
-                request.remove(user.getId());
-                course.setRequest(request);
-                courseRepository.save(course);
+                courseRepository.removeRequest(course.getId(), user.getId());
                 requestCoursed.remove(course.getId());
                 user.setRequestedCourses(requestCoursed);
                 userRepository.save(user);
@@ -424,9 +406,7 @@ public class EnrollmentService {
             ArrayList<ObjectId> request = course.getRequest();
             ArrayList<ObjectId> requestCoursed = user.getRequestedCourses();
             if (request != null && request.contains(user.getId()) &&  requestCoursed != null && requestCoursed.contains(course.getId())) {
-                request.remove(user.getId());
-                course.setRequest(request);
-                courseRepository.save(course);
+                courseRepository.removeRequest(course.getId(), user.getId());
                 requestCoursed.remove(course.getId());
                 user.setRequestedCourses(requestCoursed);
                 userRepository.save(user);
@@ -1,22 +1,31 @@
 package web20242.webcourse.service;
 
 import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.*;
+import web20242.webcourse.model.Blog;
+import web20242.webcourse.model.Course;
 import web20242.webcourse.model.Image;
+import web20242.webcourse.model.Lesson;
+import web20242.webcourse.model.User;
 import web20242.webcourse.model.createRequest.Logo;
 import web20242.webcourse.repository.ImageRepository;
 import web20242.webcourse.repository.LogoRepository;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
@@ -24,18 +33,43 @@ import java.util.*;
 
 @Service
 public class FileService {
+    private static final Logger logger = LoggerFactory.getLogger(FileService.class);
+
+    // Các trường lưu URL file trên R2
+    private static final List<UrlReference> URL_REFERENCES = List.of(
+            new UrlReference(Image.class, "imageUrl"),
+            new UrlReference(Course.class, "thumbnail"),
+            new UrlReference(Lesson.class, "videoUrl"),
+            new UrlReference(Lesson.class, "materials"),
+            new UrlReference(User.class, "profileImage"),
+            new UrlReference(Blog.class, "image"),
+            new UrlReference(Logo.class, "url")
+    );
+
+    private record UrlReference(Class<?> type, String property) {
+    }
 
     private final S3Client s3Client;
     private final ImageRepository imageRepository;
 
     @Autowired
     private LogoRepository logoRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
     @Value("${cloudflare.r2.bucket}")
     private String bucketName;
 
     @Value("${cloudflare.r2.public-url}")
     private String publicUrl;
 
+    // Kích thước mỗi part multipart (S3 yêu cầu tối thiểu 5 MB, trừ part cuối)
+    @Value("${upload.stream.part-size-bytes:8388608}")
+    private int uploadPartSize;
+
+    @Value("${upload.stream.max-bytes:2147483648}")
+    private long uploadMaxBytes;
+
     public FileService(S3Client s3Client, ImageRepository imageRepository) {
         this.s3Client = s3Client;
         this.imageRepository = imageRepository;
@@ -80,77 +114,164 @@ public class FileService {
         if (originalFilename == null) {
             throw new IllegalArgumentException("File name cannot be null");
         }
-        String fileNameHash = hashFilename(originalFilename);
+        try (InputStream inputStream = file.getInputStream()) {
+            return uploadStreamR2(inputStream, originalFilename);
+        }
+    }
+
+    // Đọc luồng theo từng part cố định (bộ nhớ tối đa một part), băm SHA-256 trong lúc đọc.
+    // File nhỏ hơn một part: putObject thẳng vào key cuối. File lớn: multipart upload vào key tạm,
+    // khi biết hash thì copy sang key cuối (bỏ qua nếu nội dung đã tồn tại) rồi xóa key tạm.
+    public String uploadStreamR2(InputStream inputStream, String originalFilename) throws IOException, NoSuchAlgorithmException {
+        if (originalFilename == null || originalFilename.isBlank()) {
+            throw new IllegalArgumentException("File name cannot be null");
+        }
         String extension = originalFilename.contains(".")
                 ? originalFilename.substring(originalFilename.lastIndexOf("."))
                 : "";
-        String fileName = System.currentTimeMillis() + "_"
-                + fileNameHash.replace("/", "")
-                + extension;
+        String contentType = determineContentType(extension);
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[uploadPartSize];
 
+        int read = inputStream.readNBytes(buffer, 0, buffer.length);
+        if (read < buffer.length) {
+            digest.update(buffer, 0, read);
+            String fileName = contentKey(digest, extension);
+            PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(fileName)
+                    .contentType(contentType)
+                    .build();
+            s3Client.putObject(request, RequestBody.fromBytes(Arrays.copyOf(buffer, read)));
+            return publicUrl + fileName;
+        }
 
-        PutObjectRequest request = PutObjectRequest.builder()
+        String tempKey = "uploads/tmp/" + UUID.randomUUID() + extension;
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
                 .bucket(bucketName)
-                .key(fileName)
-                .contentType(determineContentType(extension)) // Thêm dòng này
-                .build();
-
-        s3Client.putObject(request, RequestBody.fromInputStream(file.getInputStream(), file.getSize()));
-        String filePublicUrl = publicUrl + fileName;
-        return filePublicUrl;
-    }
-    public void deleteFile(String imageId) {
-        Optional<Image> imageOptional = imageRepository.findById(new org.bson.types.ObjectId(imageId));
-        if (imageOptional.isEmpty()) {
-            throw new IllegalArgumentException("Image with ID " + imageId + " not found");
+                .key(tempKey)
+                .contentType(contentType)
+                .build()).uploadId();
+        List<CompletedPart> parts = new ArrayList<>();
+        long totalBytes = 0;
+        try {
+            while (read > 0) {
+                totalBytes += read;
+                if (totalBytes > uploadMaxBytes) {
+                    throw new IllegalArgumentException("File exceeds the upload limit of " + uploadMaxBytes + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                int partNumber = parts.size() + 1;
+                String eTag = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(tempKey)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) read)
+                                .build(),
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, read), read)).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+                read = inputStream.readNBytes(buffer, 0, buffer.length);
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(tempKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(tempKey)
+                    .uploadId(uploadId)
+                    .build());
+            throw e;
         }
 
-        Image image = imageOptional.get();
-        String imageUrl = image.getImageUrl();
+        String fileName = contentKey(digest, extension);
+        try {
+            if (!objectExists(fileName)) {
+                s3Client.copyObject(CopyObjectRequest.builder()
+                        .sourceBucket(bucketName)
+                        .sourceKey(tempKey)
+                        .destinationBucket(bucketName)
+                        .destinationKey(fileName)
+                        .contentType(contentType)
+                        .metadataDirective(MetadataDirective.REPLACE)
+                        .build());
+            }
+        } finally {
+            s3Client.deleteObject(DeleteObjectRequest.builder().bucket(bucketName).key(tempKey).build());
+        }
+        return publicUrl + fileName;
+    }
 
-        // Lấy key từ imageUrl (phần sau publicUrl)
-        String key = imageUrl.replace(publicUrl, "");
+    // Key theo nội dung: cùng một file luôn cho cùng một URL
+    private String contentKey(MessageDigest digest, String extension) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + extension;
+    }
 
+    private boolean objectExists(String key) {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder().bucket(bucketName).key(key).build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        }
+    }
+    // Key theo nội dung nên nhiều lần upload (ảnh, thumbnail, video, tài liệu...) có thể trỏ tới cùng một object:
+    // chỉ xóa object trên R2 khi không còn bản ghi nào dùng URL đó
+    private boolean deleteObjectIfUnreferenced(String fileUrl) {
+        if (isReferenced(fileUrl)) {
+            logger.info("R2 object {} is still referenced, not deleted", fileUrl);
+            return false;
+        }
         DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
                 .bucket(bucketName)
-                .key(key)
+                .key(fileUrl.replace(publicUrl, ""))
                 .build();
         s3Client.deleteObject(deleteRequest);
+        return true;
+    }
 
+    private boolean isReferenced(String fileUrl) {
+        for (UrlReference reference : URL_REFERENCES) {
+            if (mongoTemplate.exists(Query.query(Criteria.where(reference.property()).is(fileUrl)), reference.type())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Xóa bản ghi Image; trả về true nếu object trên R2 cũng được xóa
+    public boolean deleteFile(String imageId) {
+        Optional<Image> imageOptional = imageRepository.findById(new org.bson.types.ObjectId(imageId));
+        if (imageOptional.isEmpty()) {
+            throw new IllegalArgumentException("Image with ID " + imageId + " not found");
+        }
+
+        Image image = imageOptional.get();
         imageRepository.delete(image);
+        return deleteObjectIfUnreferenced(image.getImageUrl());
     }
-    public void deleteFileByUrl(String imageUrl) {
+    // Xóa mọi bản ghi Image có URL này (cùng nội dung upload nhiều lần); trả về true nếu object trên R2 cũng được xóa
+    public boolean deleteFileByUrl(String imageUrl) {
         if (!imageUrl.startsWith(publicUrl)) {
             throw new IllegalArgumentException("Invalid image URL: " + imageUrl);
         }
-        Optional<Image> imageOptional = imageRepository.findByImageUrl(imageUrl);
-        if (imageOptional.isEmpty()) {
+        List<Image> images = imageRepository.findByImageUrl(imageUrl);
+        if (images.isEmpty()) {
             throw new IllegalArgumentException("Image with URL " + imageUrl + " not found");
         }
 
-        Image image = imageOptional.get();
-        String key = imageUrl.replace(publicUrl, "");
-
-        DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-                .bucket(bucketName)
-                .key(key)
-                .build();
-        s3Client.deleteObject(deleteRequest);
-
-        imageRepository.delete(image);
+        imageRepository.deleteAll(images);
+        return deleteObjectIfUnreferenced(imageUrl);
     }
-    public void deleteFileOnR2ByUrl(String fileUrl) {
+    public boolean deleteFileOnR2ByUrl(String fileUrl) {
         if (!fileUrl.startsWith(publicUrl)) {
             throw new IllegalArgumentException("Invalid File URL: " + fileUrl);
         }
-
-        String key = fileUrl.replace(publicUrl, "");
-
-        DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-                .bucket(bucketName)
-                .key(key)
-                .build();
-        s3Client.deleteObject(deleteRequest);
+        return deleteObjectIfUnreferenced(fileUrl);
     }
     private String determineContentType(String extension) {
         return switch (extension.toLowerCase()) {
@@ -166,14 +287,6 @@ public class FileService {
     }
 
 
-    private String hashFilename(String filename) throws NoSuchAlgorithmException {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        md.update(filename.getBytes(StandardCharsets.UTF_8));
-        byte[] digest = md.digest();
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
-    }
-
-
     public ResponseEntity<?> upLogo(Logo logo) {
         return ResponseEntity.ok(logoRepository.save(logo));
     }
@@ -0,0 +1,91 @@
+package web20242.webcourse.service;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.service.cache.TtlCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+// Trích xuất text từ PDF ngay trên luồng dữ liệu đã có (không tải lại từ R2).
+// Băm SHA-256 khi đọc luồng vào bộ đệm; PDF đã trích xuất trước đó được lấy từ cache theo hash, không parse lại.
+// PDFBox chỉ giữ tối đa pdf.extract.max-memory-bytes trong heap, phần còn lại đẩy ra file tạm,
+// và text được lấy từng trang, dừng khi đủ pdf.extract.max-chars ký tự.
+@Service
+public class PdfTextExtractor {
+    private static final Logger logger = LoggerFactory.getLogger(PdfTextExtractor.class);
+    // Ký tự ngăn cách giữa các trang, TextChunker dựa vào đây để chia prompt theo trang
+    public static final String PAGE_SEPARATOR = "\f";
+
+    private final long maxMemoryBytes;
+    private final int maxChars;
+    private final TtlCache<String, String> textCache;
+
+    public PdfTextExtractor(@Value("${pdf.extract.max-memory-bytes:16777216}") long maxMemoryBytes,
+                            @Value("${pdf.extract.max-chars:500000}") int maxChars,
+                            @Value("${pdf.extract.cache-size:200}") int cacheSize,
+                            @Value("${pdf.extract.cache-ttl-minutes:1440}") long cacheTtlMinutes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxChars = maxChars;
+        this.textCache = new TtlCache<>("pdfText", cacheSize, cacheTtlMinutes * 60_000);
+    }
+
+    public String extractText(InputStream inputStream) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // Đọc hết luồng vào ScratchFile (heap tới maxMemoryBytes, phần còn lại ra file tạm) và băm trong lượt đó;
+        // chỉ parse PDF khi hash chưa có trong cache
+        try (ScratchFile scratchFile = new ScratchFile(MemoryUsageSetting.setupMixed(maxMemoryBytes));
+             RandomAccess spooled = scratchFile.createBuffer(new DigestInputStream(inputStream, digest))) {
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            String cached = textCache.getIfPresent(contentHash);
+            if (cached != null) {
+                return cached;
+            }
+            PDFParser parser = new PDFParser(spooled, scratchFile);
+            parser.parse();
+            try (PDDocument document = parser.getPDDocument()) {
+                String text = extractPages(document);
+                textCache.put(contentHash, text);
+                return text;
+            }
+        }
+    }
+
+    private String extractPages(PDDocument document) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        StringBuilder text = new StringBuilder();
+        int pages = document.getNumberOfPages();
+        for (int page = 1; page <= pages && text.length() < maxChars; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            text.append(stripper.getText(document)).append(PAGE_SEPARATOR);
+        }
+        if (text.length() > maxChars) {
+            logger.warn("PDF text truncated to {} characters ({} pages)", maxChars, pages);
+            text.setLength(maxChars);
+        }
+        return text.toString();
+    }
+
+    public Map<String, Object> stats() {
+        return textCache.stats();
+    }
+}
@@ -0,0 +1,248 @@
+package web20242.webcourse.service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PersistentPropertyPath;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.util.json.ParameterBindingDocumentCodec;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Chạy explain() cho filter của từng query repository và báo cáo query nào phải quét cả collection (COLLSCAN).
+// Filter được dựng từ chính các method repository (@Query, @Aggregation $match, hoặc tên method dạng findBy...),
+// nên thêm / sửa query là tự có trong báo cáo, không phải cập nhật danh sách bằng tay.
+@Service
+public class QueryPlanReportService {
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanReportService.class);
+
+    // Collection rất nhỏ (danh mục, blog), quét cả collection rẻ hơn giữ thêm index
+    private static final Set<String> ACCEPTED_SCANS = Set.of(
+            "PopularCategoryRepository.findByStatus",
+            "PopularCategoryRepository.findByCategory",
+            "BlogRepository.findByStatus"
+    );
+
+    private static final ParameterBindingDocumentCodec CODEC = new ParameterBindingDocumentCodec();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    // error: không dựng được filter từ method (ví dụ kiểu tham số chưa hỗ trợ)
+    private record Probe(String query, String collection, Document filter, Document sort, String error) {
+        Probe(String query, String collection, Document filter, Document sort) {
+            this(query, collection, filter, sort, null);
+        }
+    }
+
+    // Một probe cho mỗi query method có điều kiện lọc; giá trị mẫu không cần tồn tại, chỉ cần đúng kiểu dữ liệu
+    private List<Probe> probes() {
+        Repositories repositories = new Repositories(applicationContext);
+        List<Probe> probes = new ArrayList<>();
+        for (Class<?> domainType : repositories) {
+            RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+            String collection = mongoTemplate.getCollectionName(domainType);
+            String repositoryName = information.getRepositoryInterface().getSimpleName();
+            for (Method method : information.getQueryMethods()) {
+                String name = repositoryName + "." + method.getName();
+                try {
+                    Probe probe = probe(name, collection, domainType, method);
+                    if (probe != null) {
+                        probes.add(probe);
+                    }
+                } catch (RuntimeException e) {
+                    probes.add(new Probe(name, collection, null, null, e.getMessage()));
+                }
+            }
+        }
+        probes.sort(Comparator.comparing(Probe::query));
+        return probes;
+    }
+
+    private Probe probe(String name, String collection, Class<?> domainType, Method method) {
+        Query query = method.getAnnotation(Query.class);
+        if (query != null && !query.value().isEmpty()) {
+            return new Probe(name, collection, CODEC.decode(query.value(), bindableSamples(method)), null);
+        }
+        Aggregation aggregation = method.getAnnotation(Aggregation.class);
+        if (aggregation != null) {
+            Object[] samples = bindableSamples(method);
+            Document match = null;
+            Document sort = null;
+            for (String stage : aggregation.pipeline()) {
+                Document parsed = CODEC.decode(stage, samples);
+                if (match == null && parsed.containsKey("$match")) {
+                    match = parsed.get("$match", Document.class);
+                } else if (match != null && sort == null && parsed.containsKey("$sort")) {
+                    sort = parsed.get("$sort", Document.class);
+                }
+            }
+            return match != null ? new Probe(name, collection, match, sort) : null;
+        }
+        PartTree tree = new PartTree(method.getName(), domainType);
+        Document filter = new Document();
+        for (PartTree.OrPart orPart : tree) {
+            for (Part part : orPart) {
+                PersistentPropertyPath<MongoPersistentProperty> path = mongoTemplate.getConverter().getMappingContext()
+                        .getPersistentPropertyPath(part.getProperty());
+                Object sample = sample(path.getLeafProperty().getActualType());
+                filter.append(path.toDotPath(MongoPersistentProperty::getFieldName),
+                        part.getType() == Part.Type.IN ? new Document("$in", List.of(sample)) : sample);
+            }
+        }
+        if (filter.isEmpty()) {
+            return null; // findAllBy(TextCriteria ...): tìm kiếm text, không có điều kiện lọc theo trường
+        }
+        Document sort = null;
+        if (tree.getSort().isSorted()) {
+            sort = new Document();
+            for (Sort.Order order : tree.getSort()) {
+                String field = mongoTemplate.getConverter().getMappingContext()
+                        .getPersistentPropertyPath(order.getProperty(), domainType)
+                        .toDotPath(MongoPersistentProperty::getFieldName);
+                sort.append(field, order.isAscending() ? 1 : -1);
+            }
+        }
+        return new Probe(name, collection, filter, sort);
+    }
+
+    // Giá trị mẫu cho các tham số ?0, ?1... (Pageable / Sort / TextCriteria không được đánh số)
+    private Object[] bindableSamples(Method method) {
+        List<Object> samples = new ArrayList<>();
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            Class<?> type = method.getParameterTypes()[i];
+            if (Pageable.class.isAssignableFrom(type) || Sort.class.isAssignableFrom(type)
+                    || TextCriteria.class.isAssignableFrom(type)) {
+                continue;
+            }
+            if (Collection.class.isAssignableFrom(type)) {
+                Class<?> element = ResolvableType.forMethodParameter(new MethodParameter(method, i))
+                        .asCollection().resolveGeneric(0);
+                samples.add(List.of(sample(element)));
+            } else {
+                samples.add(sample(type));
+            }
+        }
+        return samples.toArray();
+    }
+
+    private static Object sample(Class<?> type) {
+        if (type == ObjectId.class) {
+            return new ObjectId();
+        }
+        if (type == String.class) {
+            return "";
+        }
+        if (type != null && type.isEnum()) {
+            return ((Enum<?>) type.getEnumConstants()[0]).name();
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return false;
+        }
+        if (type == int.class || type == Integer.class || type == long.class || type == Long.class) {
+            return 0;
+        }
+        if (type == double.class || type == Double.class) {
+            return 0.0;
+        }
+        if (type == LocalDateTime.class || type == Date.class) {
+            return new Date();
+        }
+        throw new IllegalStateException("No sample value for parameter type " + type);
+    }
+
+    // Mỗi dòng: query, collection, filter, stages của winningPlan, collscan, acceptedScan; hoặc error nếu explain lỗi
+    public List<Map<String, Object>> report() {
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (Probe probe : probes()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("query", probe.query());
+            row.put("collection", probe.collection());
+            if (probe.error() != null) {
+                logger.warn("Cannot build probe for {}: {}", probe.query(), probe.error());
+                row.put("error", probe.error());
+                report.add(row);
+                continue;
+            }
+            row.put("filter", probe.filter().toJson());
+            try {
+                Document find = new Document("find", probe.collection()).append("filter", probe.filter());
+                if (probe.sort() != null) {
+                    find.append("sort", probe.sort());
+                }
+                Document explain = mongoTemplate.getDb().runCommand(new Document("explain", find)
+                        .append("verbosity", "queryPlanner"));
+                Document winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class);
+                List<String> stages = new ArrayList<>();
+                collectStages(winningPlan, stages);
+                row.put("stages", stages);
+                row.put("collscan", stages.contains("COLLSCAN"));
+                row.put("acceptedScan", ACCEPTED_SCANS.contains(probe.query()));
+            } catch (Exception e) {
+                logger.warn("Cannot explain {} on {}: {}", probe.query(), probe.collection(), e.getMessage());
+                row.put("error", e.getMessage());
+            }
+            report.add(row);
+        }
+        return report;
+    }
+
+    // Tên các query đang rơi vào COLLSCAN (trừ các collection nhỏ trong ACCEPTED_SCANS)
+    public static List<String> collectionScans(List<Map<String, Object>> report) {
+        List<String> scans = new ArrayList<>();
+        for (Map<String, Object> row : report) {
+            if (Boolean.TRUE.equals(row.get("collscan")) && !Boolean.TRUE.equals(row.get("acceptedScan"))) {
+                scans.add((String) row.get("query"));
+            }
+        }
+        return scans;
+    }
+
+    // Các query không explain được, kèm thông báo lỗi
+    public static Map<String, String> errors(List<Map<String, Object>> report) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (Map<String, Object> row : report) {
+            if (row.containsKey("error")) {
+                errors.put((String) row.get("query"), String.valueOf(row.get("error")));
+            }
+        }
+        return errors;
+    }
+
+    // winningPlan lồng nhau qua inputStage / inputStages (SBE bọc thêm một lớp queryPlan)
+    private void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document document) {
+            if (document.containsKey("stage")) {
+                stages.add(document.getString("stage"));
+            }
+            for (String key : List.of("queryPlan", "inputStage", "inputStages")) {
+                collectStages(document.get(key), stages);
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object child : list) {
+                collectStages(child, stages);
+            }
+        }
+    }
+}
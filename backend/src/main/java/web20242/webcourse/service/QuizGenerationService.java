@@ -1,56 +1,146 @@
 package web20242.webcourse.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import web20242.webcourse.model.Quizzes;
+import web20242.webcourse.model.createRequest.Question;
+import web20242.webcourse.service.llm.LlmClient;
+import web20242.webcourse.service.llm.QuizResultCache;
+import web20242.webcourse.service.llm.TextChunker;
 
 import java.io.IOException;
-import java.net.URL;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 
 @Service
 public class QuizGenerationService {
 
     private static final Logger logger = LoggerFactory.getLogger(QuizGenerationService.class);
 
-    @Value("${gemini.api.key}")
-    private String geminiApiKey;
-
-    private final RestTemplate restTemplate;
+    private final LlmClient llmClient;
     private final ObjectMapper objectMapper;
-
-    public QuizGenerationService(RestTemplate restTemplate, ObjectMapper objectMapper) {
-        this.restTemplate = restTemplate;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final RestTemplate restTemplate;
+    private final QuizResultCache quizResultCache;
+    private final ExecutorService llmExecutor;
+    private final int chunkMaxTokens;
+
+    public QuizGenerationService(LlmClient llmClient, ObjectMapper objectMapper, PdfTextExtractor pdfTextExtractor,
+                                 RestTemplate restTemplate, QuizResultCache quizResultCache,
+                                 @Qualifier("llmExecutor") ExecutorService llmExecutor,
+                                 @Value("${llm.chunk.max-tokens:6000}") int chunkMaxTokens) {
+        this.llmClient = llmClient;
         this.objectMapper = objectMapper;
-        logger.info("Initialized QuizGenerationService with Gemini API Key: {}", geminiApiKey);
+        this.pdfTextExtractor = pdfTextExtractor;
+        this.restTemplate = restTemplate;
+        this.quizResultCache = quizResultCache;
+        this.llmExecutor = llmExecutor;
+        this.chunkMaxTokens = chunkMaxTokens;
+    }
+
+    // Tài liệu dài được chia thành nhiều đoạn (theo trang, trong ngân sách llm.chunk.max-tokens),
+    // mỗi đoạn một prompt chạy song song trên llmExecutor, rồi gộp câu hỏi của các đoạn thành một quiz, bỏ câu trùng.
+    // llmExecutor chỉ giới hạn số đoạn của các PDF chạy song song; giới hạn số lời gọi LLM cùng lúc của cả ứng dụng
+    // (kể cả PDF một đoạn gọi trên luồng hiện tại) là bulkhead trong LlmCallGuard (llm.bulkhead.max-concurrent)
+    public Quizzes generateQuiz(String pdfContent, String pdfUrl, boolean thpt) throws IOException {
+        List<String> chunks = TextChunker.split(pdfContent, chunkMaxTokens);
+        if (chunks.size() == 1) {
+            return parseQuiz(generateChunk(chunks.get(0), pdfUrl, thpt));
+        }
+        logger.info("Generating quiz from {} chunks (~{} tokens)", chunks.size(), TextChunker.estimateTokens(pdfContent));
+
+        List<CompletableFuture<Quizzes>> futures = new ArrayList<>();
+        for (String chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return parseQuiz(generateChunk(chunk, pdfUrl, thpt));
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, llmExecutor));
+        }
+        List<Quizzes> parts = new ArrayList<>();
+        try {
+            for (CompletableFuture<Quizzes> future : futures) {
+                parts.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return mergeQuizzes(parts);
+    }
+
+    // Kết quả từng đoạn được cache theo (hash của cả prompt, loại prompt, model); prompt gồm mẫu prompt + nội dung + URL,
+    // nên sửa mẫu prompt là tự không dùng lại kết quả cũ. Chỉ cache JSON parse được
+    private String generateChunk(String chunk, String pdfUrl, boolean thpt) throws IOException {
+        String prompt = thpt ? thptPrompt(chunk, pdfUrl) : standardPrompt(chunk, pdfUrl);
+        return quizResultCache.get(QuizResultCache.promptHash(prompt), thpt ? "THPTQG" : "STANDARD",
+                llmClient.model(), () -> {
+                    String response = llmClient.generate(prompt);
+                    parseQuiz(response);
+                    return response;
+                });
+    }
+
+    // Giữ thông tin chung (title, description, ...) của đoạn đầu, nối câu hỏi theo thứ tự các đoạn;
+    // thời gian làm bài là tổng thời gian của các đoạn
+    private Quizzes mergeQuizzes(List<Quizzes> parts) {
+        Quizzes merged = parts.get(0);
+        ArrayList<Question> questions = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        Integer timeLimit = null;
+        for (Quizzes part : parts) {
+            if (part.getTimeLimit() != null) {
+                timeLimit = (timeLimit != null ? timeLimit : 0) + part.getTimeLimit();
+            }
+            if (part.getQuestions() == null) {
+                continue;
+            }
+            for (Question question : part.getQuestions()) {
+                if (question.getQuestion() == null || seen.add(normalize(question.getQuestion()))) {
+                    questions.add(question);
+                }
+            }
+        }
+        merged.setQuestions(questions);
+        merged.setTimeLimit(timeLimit);
+        return merged;
+    }
+
+    private static String normalize(String question) {
+        return question.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
     }
 
     // Tải nội dung PDF từ URL
     public String extractTextFromPdfUrl(String pdfUrl) throws IOException {
-        try (PDDocument document = PDDocument.load(new URL(pdfUrl).openStream())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
-        }
+        // Qua RestTemplate dùng chung (connection pool + timeout), đọc thẳng từ body response
+        return restTemplate.execute(pdfUrl, HttpMethod.GET, null,
+                response -> pdfTextExtractor.extractText(response.getBody()));
     }
 
-    public String generateQuizFromPdfUrl(String pdfUrl) throws IOException {
+    public Quizzes generateQuizFromPdfUrl(String pdfUrl) throws IOException {
         logger.info("Generating quiz from PDF URL: {}", pdfUrl);
-        String pdfContent = extractTextFromPdfUrl(pdfUrl);
+        return generateQuiz(extractTextFromPdfUrl(pdfUrl), pdfUrl, false);
+    }
 
-        String prompt = "Dựa trên nội dung PDF sau đây, hãy tạo một bài quiz dạng JSON với định dạng như sau:\n" +
+    private static String standardPrompt(String pdfContent, String pdfUrl) {
+        return "Dựa trên nội dung PDF sau đây, hãy tạo một bài quiz dạng JSON với định dạng như sau:\n" +
                 "{\n" +
                 "  \"title\": \"Một đoạn mã bất kì (bạn tự sinh)\",\n" +
                 "  \"description\": \"Kiểm tra kiến thức từ tài liệu PDF\",\n" +
@@ -77,40 +167,14 @@ public class QuizGenerationService {
                 "2.  **Trích xuất:** Trích xuất chính xác nội dung câu hỏi, các lựa chọn (nếu có), và (các) đáp án đúng từ nội dung PDF. Các đáp án đúng có thể được đánh dấu (KEY) hoặc nằm trong bảng đáp án ở cuối tài liệu.\n" +
                 "3.  **Định dạng JSON:** Trả về JSON thuần túy, không bao bọc trong markdown code block (```json ... ```) hoặc bất kỳ nội dung nào khác ngoài JSON. Đảm bảo cấu trúc JSON hoàn toàn khớp với mẫu trên.\n" +
                 "Nội dung PDF:\n" + pdfContent;
-
-        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent?key=" + geminiApiKey;
-        logger.info("Calling Gemini API with URL: {}", url);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Content-Type", "application/json");
-
-        ObjectNode requestBody = objectMapper.createObjectNode();
-        ArrayNode contentsArray = objectMapper.createArrayNode();
-        ObjectNode contentObject = objectMapper.createObjectNode();
-        ArrayNode partsArray = objectMapper.createArrayNode();
-        ObjectNode partObject = objectMapper.createObjectNode();
-        partObject.put("text", prompt);
-        partsArray.add(partObject);
-        contentObject.set("parts", partsArray);
-        contentsArray.add(contentObject);
-        requestBody.set("contents", contentsArray);
-
-        HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
-
-        try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            logger.info("Gemini API Response: {}", response.getBody());
-            return response.getBody();
-        } catch (HttpClientErrorException e) {
-            logger.error("Gemini API Error: {}", e.getResponseBodyAsString());
-            throw new RuntimeException("Failed to call Gemini API: " + e.getResponseBodyAsString(), e);
-        }
     }
-    public String generateQuizFromPdfUrlForTHPTQG(String pdfUrl) throws IOException {
+    public Quizzes generateQuizFromPdfUrlForTHPTQG(String pdfUrl) throws IOException {
         logger.info("Generating quiz from PDF URL: {}", pdfUrl);
-        String pdfContent = extractTextFromPdfUrl(pdfUrl);
+        return generateQuiz(extractTextFromPdfUrl(pdfUrl), pdfUrl, true);
+    }
 
-        String prompt = "Dựa trên nội dung PDF sau đây, hãy tạo một bài quiz dạng JSON với định dạng như sau:\n" +
+    private static String thptPrompt(String pdfContent, String pdfUrl) {
+        return "Dựa trên nội dung PDF sau đây, hãy tạo một bài quiz dạng JSON với định dạng như sau:\n" +
                 "{\n" +
                 "  \"title\": \"Một đoạn mã bất kì (bạn tự sinh)\",\n" +
                 "  \"description\": \"Kiểm tra kiến thức cơ bản về lập trình\",\n" +
@@ -129,44 +193,14 @@ public class QuizGenerationService {
                 "Hãy các số thứ tự câu hỏi và đáp án, các đáp án chỉ cần hiển thị A, B, C,... tương ứng với chọn trắc nghiệm mà không cần phải có giá trị và đáp án đúng từ nội dung PDF (Các đáp án đúng có thể được lưu ở bảng cuối của file hoặc ngay bên cạnh đáp án có (KEY) dấu hiệu đây là đáp án, chỉ cần biết là án nào A, B, C, D,... không cần phải cụ thể chứa gì  ) và với loại câu hỏi không có đáp án A, B, C, D,... là loại câu hỏi điền đáp án thì chỉ cần ghi nhận số câu hỏi là bao nhiêu và ghi nhận toàn bộ đáp án đúng(ghi đày đủ giá trị - Loại câu hỏi điền đáp án là câu mà đáp án chỉ có kết quả không có A, B hay C, D, ...) và trả về dưới dạng JSON đúng định dạng trên. " +
                 "Trả về JSON thuần túy, không bao bọc trong markdown code block (```json ... ```) hoặc bất kỳ nội dung nào khác ngoài JSON.\n" +
                 "Nội dung PDF:\n" + pdfContent;
-
-        String url = "https://generativelanguage.googleapis.com/v1beta/models/gemini-1.5-flash:generateContent?key=" + geminiApiKey;
-        logger.info("Calling Gemini API with URL: {}", url);
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Content-Type", "application/json");
-
-        ObjectNode requestBody = objectMapper.createObjectNode();
-        ArrayNode contentsArray = objectMapper.createArrayNode();
-        ObjectNode contentObject = objectMapper.createObjectNode();
-        ArrayNode partsArray = objectMapper.createArrayNode();
-        ObjectNode partObject = objectMapper.createObjectNode();
-        partObject.put("text", prompt);
-        partsArray.add(partObject);
-        contentObject.set("parts", partsArray);
-        contentsArray.add(contentObject);
-        requestBody.set("contents", contentsArray);
-
-        HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
-
-        try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            logger.info("Gemini API Response: {}", response.getBody());
-            return response.getBody();
-        } catch (HttpClientErrorException e) {
-            logger.error("Gemini API Error: {}", e.getResponseBodyAsString());
-            throw new RuntimeException("Failed to call Gemini API: " + e.getResponseBodyAsString(), e);
-        }
     }
 
-    // Chuyển đổi JSON thô từ Gemini thành đối tượng Quizzes
-    public Quizzes parseQuizFromResponse(String geminiResponse) throws IOException {
-        JsonNode responseNode = objectMapper.readTree(geminiResponse);
-        String jsonContent = responseNode.path("candidates").get(0).path("content").path("parts").get(0).path("text").asText();
-        logger.info("Raw JSON content from Gemini response: {}", jsonContent);
+    // Chuyển đổi JSON do LLM trả về thành đối tượng Quizzes
+    public Quizzes parseQuiz(String jsonContent) throws IOException {
+        logger.info("Raw JSON content from LLM response: {}", jsonContent);
 
         // Loại bỏ markdown code block nếu có
-        String cleanedJsonContent = jsonContent;
+        String cleanedJsonContent = jsonContent.trim();
         if (cleanedJsonContent.startsWith("```json")) {
             cleanedJsonContent = cleanedJsonContent.replaceFirst("```json\\s*", "");
             cleanedJsonContent = cleanedJsonContent.replaceFirst("```\\s*$", "");
@@ -176,4 +210,4 @@ public class QuizGenerationService {
         logger.info("Cleaned JSON content: {}", cleanedJsonContent);
         return objectMapper.readValue(cleanedJsonContent, Quizzes.class);
     }
-}
\ No newline at end of file
+}
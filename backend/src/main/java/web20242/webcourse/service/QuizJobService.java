@@ -0,0 +1,239 @@
+package web20242.webcourse.service;
+
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import web20242.webcourse.model.QuizGenerationJob;
+import web20242.webcourse.model.Quizzes;
+import web20242.webcourse.model.constant.EJobStatus;
+import web20242.webcourse.model.constant.EQuestion;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Sinh quiz dạng job: submit lưu PDF ra file tạm, ghi job vào quiz_jobs rồi trả về id ngay.
+// quizJobExecutor (giới hạn số job chạy cùng lúc) xử lý job, trạng thái từng file được cập nhật vào MongoDB
+// và đẩy tới các client đang nghe SSE.
+@Service
+public class QuizJobService {
+    private static final Logger logger = LoggerFactory.getLogger(QuizJobService.class);
+    private static final long SSE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private QuizPipelineService quizPipelineService;
+
+    @Autowired
+    private BatchRunner batchRunner;
+
+    @Autowired
+    @Qualifier("quizJobExecutor")
+    private ExecutorService quizJobExecutor;
+
+    // Tên instance chạy job, cố định qua các lần khởi động lại (mặc định là hostname)
+    @Value("${jobs.instance-id:${HOSTNAME:local}}")
+    private String instanceId;
+
+    private final Map<ObjectId, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public QuizGenerationJob submit(List<MultipartFile> files, ObjectId courseId, EQuestion type, boolean thpt,
+                                    String username) throws IOException {
+        // Request kết thúc thì MultipartFile bị xóa, nên chép ra file tạm trước khi trả về
+        List<Path> paths = new ArrayList<>();
+        ArrayList<QuizGenerationJob.JobFile> jobFiles = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                Path path = Files.createTempFile("quiz-job-", ".pdf");
+                paths.add(path);
+                file.transferTo(path);
+                jobFiles.add(new QuizGenerationJob.JobFile(file.getOriginalFilename(), EJobStatus.QUEUED, null, null, null));
+            }
+        } catch (IOException e) {
+            deleteQuietly(paths);
+            throw e;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        QuizGenerationJob job = QuizGenerationJob.builder()
+                .courseId(courseId)
+                .type(type)
+                .thpt(thpt)
+                .createdBy(username)
+                .instanceId(instanceId)
+                .status(EJobStatus.QUEUED)
+                .files(jobFiles)
+                .completed(0)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        mongoTemplate.insert(job);
+
+        try {
+            quizJobExecutor.execute(() -> run(job, paths));
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(paths);
+            mongoTemplate.remove(job);
+            throw new IllegalStateException("Quiz generation queue is full, please try again later");
+        }
+        return job;
+    }
+
+    public QuizGenerationJob getJob(ObjectId jobId) {
+        return mongoTemplate.findById(jobId, QuizGenerationJob.class);
+    }
+
+    public SseEmitter subscribe(ObjectId jobId) throws IOException {
+        QuizGenerationJob job = getJob(jobId);
+        if (job == null) {
+            throw new IllegalArgumentException("Job not found: " + jobId);
+        }
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MILLIS);
+        emitter.send(SseEmitter.event().name("job").data(job));
+        if (job.isFinished()) {
+            emitter.complete();
+            return emitter;
+        }
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(jobId, key -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        Runnable remove = () -> emitters.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        return emitter;
+    }
+
+    private void run(QuizGenerationJob job, List<Path> paths) {
+        ObjectId jobId = job.getId();
+        try {
+            update(jobId, new Update().set("status", EJobStatus.RUNNING));
+            List<Integer> indexes = IntStream.range(0, paths.size()).boxed().toList();
+            batchRunner.runAll(indexes, index -> job.getFiles().get(index).getName(), index -> {
+                String prefix = "files." + index + ".";
+                try {
+                    Quizzes quiz = quizPipelineService.generateQuiz(new FileSystemResource(paths.get(index)),
+                            job.getFiles().get(index).getName(), job.getCourseId(), job.getType(), job.isThpt(),
+                            stage -> update(jobId, new Update()
+                                    .set(prefix + "status", EJobStatus.RUNNING)
+                                    .set(prefix + "stage", stage)));
+                    update(jobId, new Update()
+                            .set(prefix + "status", EJobStatus.SUCCEEDED)
+                            .set(prefix + "quizId", quiz.getId())
+                            .unset(prefix + "stage")
+                            .inc("completed", 1));
+                    return quiz.getId();
+                } catch (Exception e) {
+                    logger.error("Quiz job {} failed for file {}: {}", jobId, index, e.getMessage());
+                    update(jobId, new Update()
+                            .set(prefix + "status", EJobStatus.FAILED)
+                            .set(prefix + "error", e.getMessage())
+                            .inc("completed", 1));
+                    throw e;
+                }
+            });
+            finish(jobId);
+        } catch (Exception e) {
+            logger.error("Quiz job {} failed: {}", jobId, e.getMessage());
+            update(jobId, new Update().set("status", EJobStatus.FAILED).set("finishedAt", LocalDateTime.now()));
+        } finally {
+            deleteQuietly(paths);
+        }
+    }
+
+    private void finish(ObjectId jobId) {
+        QuizGenerationJob job = getJob(jobId);
+        long succeeded = job.getFiles().stream().filter(file -> file.getStatus() == EJobStatus.SUCCEEDED).count();
+        EJobStatus status = succeeded == job.getFiles().size() ? EJobStatus.SUCCEEDED
+                : succeeded == 0 ? EJobStatus.FAILED : EJobStatus.PARTIAL;
+        update(jobId, new Update().set("status", status).set("finishedAt", LocalDateTime.now()));
+    }
+
+    // Ghi thay đổi vào MongoDB rồi gửi bản mới nhất của job cho các client SSE
+    private void update(ObjectId jobId, Update update) {
+        update.set("updatedAt", LocalDateTime.now());
+        QuizGenerationJob job = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(jobId)), update,
+                FindAndModifyOptions.options().returnNew(true), QuizGenerationJob.class);
+        if (job != null) {
+            publish(job);
+        }
+    }
+
+    private void publish(QuizGenerationJob job) {
+        List<SseEmitter> emitters = subscribers.get(job.getId());
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("job").data(job));
+                if (job.isFinished()) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+        if (job.isFinished()) {
+            subscribers.remove(job.getId());
+        }
+    }
+
+    // Job chạy trong bộ nhớ của instance, file tạm cũng mất khi khởi động lại: mọi job QUEUED / RUNNING
+    // của instance này (và job cũ chưa ghi instanceId) đều đã bị bỏ dở, đánh dấu FAILED.
+    // Job của instance khác không bị đụng tới.
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long failed = mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("status").in(EJobStatus.QUEUED, EJobStatus.RUNNING)
+                            .orOperator(Criteria.where("instanceId").is(instanceId),
+                                    Criteria.where("instanceId").exists(false))),
+                    new Update().set("status", EJobStatus.FAILED)
+                            .set("finishedAt", now)
+                            .set("updatedAt", now),
+                    QuizGenerationJob.class).getModifiedCount();
+            if (failed > 0) {
+                logger.warn("Marked {} interrupted quiz jobs of instance {} as FAILED", failed, instanceId);
+            }
+        } catch (Exception e) {
+            logger.error("Cannot mark interrupted quiz jobs: {}", e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(List<Path> paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Cannot delete temp file {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
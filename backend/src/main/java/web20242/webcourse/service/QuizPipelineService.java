@@ -0,0 +1,107 @@
+package web20242.webcourse.service;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.Quizzes;
+import web20242.webcourse.model.constant.EQuestion;
+import web20242.webcourse.model.constant.EStatus;
+import web20242.webcourse.repository.CourseRepository;
+import web20242.webcourse.repository.QuizzesRepository;
+import web20242.webcourse.service.cache.CatalogChangedEvent;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+// Sinh một quiz từ một file PDF: upload R2 + trích xuất text (song song), gọi LLM, lưu quiz, gắn vào khóa học.
+// Dùng chung cho endpoint đồng bộ và job nền (QuizJobService).
+@Service
+public class QuizPipelineService {
+    public static final String STAGE_EXTRACTING = "EXTRACTING";
+    public static final String STAGE_GENERATING = "GENERATING";
+    public static final String STAGE_SAVING = "SAVING";
+
+    private final FileService fileService;
+    private final PdfTextExtractor pdfTextExtractor;
+    private final QuizGenerationService quizGenerationService;
+    private final QuizzesRepository quizRepository;
+    private final CourseRepository courseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService uploadExecutor;
+
+    public QuizPipelineService(FileService fileService, PdfTextExtractor pdfTextExtractor,
+                               QuizGenerationService quizGenerationService, QuizzesRepository quizRepository,
+                               CourseRepository courseRepository, ApplicationEventPublisher eventPublisher,
+                               @Qualifier("uploadExecutor") ExecutorService uploadExecutor) {
+        this.fileService = fileService;
+        this.pdfTextExtractor = pdfTextExtractor;
+        this.quizGenerationService = quizGenerationService;
+        this.quizRepository = quizRepository;
+        this.courseRepository = courseRepository;
+        this.eventPublisher = eventPublisher;
+        this.uploadExecutor = uploadExecutor;
+    }
+
+    // thpt: dùng prompt đề THPTQG, giữ nguyên cách lưu cũ (không gán type / status / createdAt)
+    public Quizzes generateQuiz(InputStreamSource source, String filename, ObjectId courseId, EQuestion type,
+                                boolean thpt, Consumer<String> onStage) throws Exception {
+        onStage.accept(STAGE_EXTRACTING);
+        PdfUpload upload = uploadAndExtract(source, filename);
+
+        // Tạo quiz từ nội dung đã trích xuất và gán courseId
+        onStage.accept(STAGE_GENERATING);
+        Quizzes quiz = quizGenerationService.generateQuiz(upload.text(), upload.url(), thpt);
+        quiz.setCourseId(courseId); // Gán courseId cho quiz
+
+        // Lưu quiz vào MongoDB
+        onStage.accept(STAGE_SAVING);
+        if (!thpt) {
+            quiz.setCreatedAt(LocalDateTime.now());
+            quiz.setStatus(EStatus.INACTIVE);
+            quiz.setType(type);
+        }
+        quizRepository.save(quiz);
+
+        // Cập nhật course với quiz mới
+        updateCourseWithQuiz(courseId, quiz);
+        return quiz;
+    }
+
+    private record PdfUpload(String url, String text) {
+    }
+
+    // Upload lên R2 (luồng uploadExecutor) và trích xuất text trên luồng hiện tại cùng lúc,
+    // cả hai đọc từ file đã nhận, không tải lại PDF từ URL công khai
+    private PdfUpload uploadAndExtract(InputStreamSource source, String filename) throws Exception {
+        CompletableFuture<String> url = CompletableFuture.supplyAsync(() -> {
+            try (InputStream inputStream = source.getInputStream()) {
+                return fileService.uploadStreamR2(inputStream, filename);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, uploadExecutor);
+        String text;
+        try (InputStream inputStream = source.getInputStream()) {
+            text = pdfTextExtractor.extractText(inputStream);
+        }
+        try {
+            return new PdfUpload(url.join(), text);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private void updateCourseWithQuiz(ObjectId courseId, Quizzes quiz) {
+        int timeLimit = quiz.getTimeLimit() != null ? quiz.getTimeLimit() : 0;
+        if (courseRepository.addQuiz(courseId, quiz.getId(), timeLimit) == 0) {
+            throw new IllegalArgumentException("Course not found");
+        }
+        eventPublisher.publishEvent(new CatalogChangedEvent(this, CatalogChangedEvent.Scope.CONTENT, courseId));
+    }
+}
@@ -0,0 +1,155 @@
+package web20242.webcourse.service;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.Quizzes;
+import web20242.webcourse.model.createRequest.Statistic;
+import web20242.webcourse.repository.QuizzesRepository;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Thống kê điểm quiz của một khóa học bằng một aggregation trên enrollments:
+// $unwind quizScores -> gom theo (quiz, học viên) -> gom theo quiz (số học viên, điểm TB, điểm cao nhất của từng học viên
+// đã sắp xếp) -> cắt trang danh sách học viên -> $lookup users chỉ cho học viên trong trang.
+// Median, tỉ lệ đạt và histogram tính từ mảng điểm cao nhất (mỗi học viên một điểm) trả về cùng lượt.
+@Service
+public class QuizStatisticsService {
+    private static final int HISTOGRAM_BUCKET = 10; // điểm 0-100, mỗi khoảng 10 điểm
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private QuizzesRepository quizzesRepository;
+
+    // size <= 0: trả về toàn bộ học viên của mỗi quiz (như trước khi có phân trang)
+    public List<Statistic> getStatistics(Course course, int page, int size) {
+        List<ObjectId> quizIds = course.getQuizzes() != null ? course.getQuizzes() : Collections.emptyList();
+        if (quizIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<ObjectId, Quizzes> quizMap = quizzesRepository.findAllById(quizIds).stream()
+                .collect(Collectors.toMap(Quizzes::getId, quiz -> quiz));
+        Map<ObjectId, Document> rows = aggregate(course.getId(), quizIds, page, size).stream()
+                .collect(Collectors.toMap(row -> row.getObjectId("_id"), row -> row));
+
+        List<Statistic> results = new ArrayList<>();
+        for (ObjectId quizId : quizIds) {
+            Quizzes quiz = quizMap.get(quizId);
+            if (quiz == null) {
+                continue;
+            }
+            Statistic statistic = Statistic.builder()
+                    .courseId(course.getId())
+                    .quizId(quiz.getId())
+                    .title(quiz.getTitle())
+                    .statisticResponseDtos(new ArrayList<>())
+                    .learnerCount(0)
+                    .page(page)
+                    .size(size)
+                    .histogram(emptyHistogram())
+                    .build();
+            Document row = rows.get(quizId);
+            if (row != null) {
+                fill(statistic, row, quiz.getPassingScore() != null ? quiz.getPassingScore() : 0);
+            }
+            results.add(statistic);
+        }
+        return results;
+    }
+
+    private List<Document> aggregate(ObjectId courseId, List<ObjectId> quizIds, int page, int size) {
+        Document inQuizzes = new Document("$in", quizIds);
+        Object learnersPage = size > 0
+                ? new Document("$slice", Arrays.asList("$learners", Math.max(page, 0) * size, size))
+                : "$learners";
+
+        List<AggregationOperation> pipeline = List.of(
+                context -> new Document("$match", new Document("courseId", courseId).append("quizScores.quizId", inQuizzes)),
+                context -> new Document("$project", new Document("userId", 1).append("quizScores", 1)),
+                context -> new Document("$unwind", "$quizScores"),
+                context -> new Document("$match", new Document("quizScores.quizId", inQuizzes)),
+                context -> new Document("$group", new Document("_id",
+                        new Document("quizId", "$quizScores.quizId").append("userId", "$userId"))
+                        .append("scores", new Document("$push", "$quizScores.score"))
+                        .append("best", new Document("$max", "$quizScores.score"))),
+                // Học viên điểm cao trước; userId để thứ tự ổn định giữa các trang
+                context -> new Document("$sort", new Document("_id.quizId", 1).append("best", -1).append("_id.userId", 1)),
+                context -> new Document("$group", new Document("_id", "$_id.quizId")
+                        .append("learnerCount", new Document("$sum", 1))
+                        .append("mean", new Document("$avg", "$best"))
+                        .append("bests", new Document("$push", "$best"))
+                        .append("learners", new Document("$push", new Document("userId", "$_id.userId")
+                                .append("scores", "$scores")))),
+                context -> new Document("$project", new Document("learnerCount", 1).append("mean", 1).append("bests", 1)
+                        .append("learners", learnersPage)),
+                context -> new Document("$lookup", new Document("from", "users")
+                        .append("localField", "learners.userId")
+                        .append("foreignField", "_id")
+                        .append("pipeline", List.of(new Document("$project",
+                                new Document("first_name", 1).append("last_name", 1).append("email", 1))))
+                        .append("as", "users")));
+
+        Aggregation aggregation = Aggregation.newAggregation(pipeline)
+                .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+        return mongoTemplate.aggregate(aggregation, "enrollments", Document.class).getMappedResults();
+    }
+
+    private void fill(Statistic statistic, Document row, double passingScore) {
+        Map<ObjectId, Document> users = row.getList("users", Document.class).stream()
+                .collect(Collectors.toMap(user -> user.getObjectId("_id"), user -> user));
+        for (Document learner : row.getList("learners", Document.class)) {
+            Document user = users.get(learner.getObjectId("userId"));
+            if (user == null) {
+                continue;
+            }
+            for (Object score : learner.getList("scores", Object.class)) {
+                statistic.getStatisticResponseDtos().add(Statistic.StatisticResponseDto.builder()
+                        .userId(learner.getObjectId("userId"))
+                        .score(score instanceof Number number ? number.doubleValue() : null)
+                        .fullName(user.getString("first_name") + " " + user.getString("last_name"))
+                        .email(user.getString("email"))
+                        .build());
+            }
+        }
+
+        // bests đã sắp xếp giảm dần (theo $sort trước khi gom)
+        List<Double> bests = row.getList("bests", Object.class).stream()
+                .filter(Number.class::isInstance)
+                .map(score -> ((Number) score).doubleValue())
+                .toList();
+        statistic.setLearnerCount(row.getInteger("learnerCount"));
+        statistic.setMeanScore(row.get("mean") instanceof Number mean ? mean.doubleValue() : null);
+        if (!bests.isEmpty()) {
+            int middle = bests.size() / 2;
+            statistic.setMedianScore(bests.size() % 2 == 1 ? bests.get(middle)
+                    : (bests.get(middle - 1) + bests.get(middle)) / 2);
+            long passed = bests.stream().filter(score -> score >= passingScore).count();
+            statistic.setPassRate((double) passed / bests.size() * 100);
+            for (double score : bests) {
+                int bucket = Math.min((int) score / HISTOGRAM_BUCKET, 100 / HISTOGRAM_BUCKET - 1);
+                statistic.getHistogram().merge(bucketLabel(Math.max(bucket, 0)), 1L, Long::sum);
+            }
+        }
+    }
+
+    private static LinkedHashMap<String, Long> emptyHistogram() {
+        LinkedHashMap<String, Long> histogram = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < 100 / HISTOGRAM_BUCKET; bucket++) {
+            histogram.put(bucketLabel(bucket), 0L);
+        }
+        return histogram;
+    }
+
+    private static String bucketLabel(int bucket) {
+        return bucket * HISTOGRAM_BUCKET + "-" + (bucket + 1) * HISTOGRAM_BUCKET;
+    }
+}
@@ -1,7 +1,15 @@
 package web20242.webcourse.service;
 
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import web20242.webcourse.model.Course;
@@ -14,6 +22,7 @@ import web20242.webcourse.repository.CourseRepository;
 import web20242.webcourse.repository.EnrollmentRepository;
 import web20242.webcourse.repository.ReviewRepository;
 import web20242.webcourse.repository.UserRepository;
+import web20242.webcourse.service.cache.CatalogChangedEvent;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
@@ -22,6 +31,8 @@ import java.util.stream.Collectors;
 
 @Service
 public class ReviewService {
+    private static final int MIN_RATING = 1;
+    private static final int MAX_RATING = 5;
     @Autowired
     private ReviewRepository reviewRepository;
 
@@ -34,6 +45,12 @@ public class ReviewService {
     @Autowired
     private EnrollmentRepository enrollmentRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
 //    public void updateFullNames(){
 //        reviewRepository.findAll().forEach(review -> {
 //            review.setFullName("Unknown Users");
@@ -63,6 +80,9 @@ public class ReviewService {
     }
 
     public ResponseEntity<?> sendReviewByUser(ReviewRequest reviewRequest, Principal principal) {
+        if (!isValidRating(reviewRequest.getRate())) {
+            return ResponseEntity.badRequest().body("Số sao phải từ " + MIN_RATING + " đến " + MAX_RATING);
+        }
         User user = userRepository.findByUsername(principal.getName()).orElse(null);
         Course course = courseRepository.findById(new ObjectId(reviewRequest.getCourseId())).orElse(null);
         assert course != null;
@@ -77,7 +97,15 @@ public class ReviewService {
             review1.setRating(reviewRequest.getRate());
             review1.setCreatedAt(LocalDateTime.now());
             review1.setFullName(user.getFirstName()+" "+user.getLastName());
-            reviewRepository.save(review1);
+            try {
+                reviewRepository.save(review1);
+            } catch (DuplicateKeyException e) {
+                // Index unique (courseId, userId): request gửi trùng cùng lúc, review đã được lưu ở request kia
+                return ResponseEntity.status(401).body("Bạn chỉ được đánh giá một lần!");
+            }
+            applyRatingDelta(course.getId(), review1.getRating(), 1);
+            // Điểm đánh giá trung bình hiển thị trong thông tin khóa học
+            eventPublisher.publishEvent(new CatalogChangedEvent(this, CatalogChangedEvent.Scope.COURSE, course.getId()));
             return ResponseEntity.ok("Cảm ơn bạn đã đánh giá khóa học!");
         }else {
             return ResponseEntity.status(401).body("Bạn chỉ được đánh giá một lần!");
@@ -101,7 +129,46 @@ public class ReviewService {
     }
 
     public ResponseEntity<?> deleteReview(String id){
-        reviewRepository.deleteById(new ObjectId(id));
+        // findAndRemove trả về review vừa xóa, chỉ trừ điểm khi thực sự xóa được (tránh trừ hai lần)
+        Review review = mongoTemplate.findAndRemove(
+                Query.query(Criteria.where("_id").is(new ObjectId(id))), Review.class);
+        if (review != null) {
+            applyRatingDelta(review.getCourseId(), review.getRating(), -1);
+            eventPublisher.publishEvent(new CatalogChangedEvent(this, CatalogChangedEvent.Scope.COURSE, review.getCourseId()));
+        }
         return ResponseEntity.ok("Delete comment by Admin");
     }
+
+    // Cộng / trừ một đánh giá vào ratingSum, ratingCount, ratingHistogram và tính lại averageRating
+    // trong cùng một lệnh update (pipeline), nên đọc điểm trung bình chỉ là O(1)
+    private void applyRatingDelta(ObjectId courseId, Integer rating, int direction) {
+        if (courseId == null || rating == null) {
+            return;
+        }
+        if (!isValidRating(rating)) {
+            throw new IllegalArgumentException("Rating must be between " + MIN_RATING + " and " + MAX_RATING + ": " + rating);
+        }
+        String histogramField = "ratingHistogram." + rating;
+        Document counters = new Document()
+                .append("ratingSum", new Document("$add",
+                        Arrays.asList(new Document("$ifNull", Arrays.asList("$ratingSum", 0)), rating * direction)))
+                .append("ratingCount", new Document("$add",
+                        Arrays.asList(new Document("$ifNull", Arrays.asList("$ratingCount", 0)), direction)))
+                .append(histogramField, new Document("$add",
+                        Arrays.asList(new Document("$ifNull", Arrays.asList("$" + histogramField, 0)), direction)));
+        Document average = new Document("averageRating", new Document("$cond", Arrays.asList(
+                new Document("$gt", Arrays.asList("$ratingCount", 0)),
+                new Document("$divide", Arrays.asList("$ratingSum", "$ratingCount")),
+                null)));
+
+        List<AggregationOperation> pipeline = List.of(
+                context -> new Document("$set", counters),
+                context -> new Document("$set", average));
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(courseId)),
+                AggregationUpdate.from(pipeline), Course.class);
+    }
+
+    private static boolean isValidRating(Integer rating) {
+        return rating != null && rating >= MIN_RATING && rating <= MAX_RATING;
+    }
 }
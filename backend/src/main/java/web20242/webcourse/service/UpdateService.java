@@ -1,7 +1,15 @@
 package web20242.webcourse.service;
 
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,11 +18,15 @@ import web20242.webcourse.model.constant.EQuestion;
 import web20242.webcourse.model.constant.EStatus;
 import web20242.webcourse.model.createRequest.Question;
 import web20242.webcourse.repository.*;
+import web20242.webcourse.service.cache.EnrollmentChangedEvent;
+import web20242.webcourse.service.search.SearchText;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class UpdateService {
@@ -38,6 +50,12 @@ public class UpdateService {
     @Autowired
     private EnrollmentRepository enrollmentRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public UpdateService(QuizzesRepository quizRepository) {
         this.quizRepository = quizRepository;
     }
@@ -102,6 +120,57 @@ public class UpdateService {
         return ResponseEntity.ok("Done !");
     }
 
+    // Chuyển từ mảng studentsEnrolled sang bộ đếm studentsCount, đếm lại từ collection enrollments
+    public ResponseEntity<?> migrateStudentsCount() {
+        List<Document> counts = mongoTemplate.aggregate(
+                Aggregation.newAggregation(Aggregation.group("courseId").count().as("count")),
+                "enrollments", Document.class
+        ).getMappedResults();
+
+        mongoTemplate.updateMulti(new Query(),
+                new Update().set("studentsCount", 0).unset("studentsEnrolled"), Course.class);
+
+        if (!counts.isEmpty()) {
+            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Course.class);
+            for (Document count : counts) {
+                bulkOps.updateOne(Query.query(Criteria.where("_id").is(count.getObjectId("_id"))),
+                        Update.update("studentsCount", count.getInteger("count")));
+            }
+            bulkOps.execute();
+        }
+        return ResponseEntity.ok("Done ! Updated " + counts.size() + " courses");
+    }
+
+    // Tính searchTitle / searchDescription (SearchText.fold) cho các khóa học lưu trước khi có hai trường này,
+    // đọc bằng projection và ghi theo lô
+    public ResponseEntity<?> migrateCourseSearchFields() {
+        Query query = new Query();
+        query.fields().include("title").include("description");
+        int updated = 0;
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Course.class);
+        int pending = 0;
+        try (Stream<Document> courses = mongoTemplate.stream(query, Document.class, "courses")) {
+            Iterator<Document> iterator = courses.iterator();
+            while (iterator.hasNext()) {
+                Document course = iterator.next();
+                bulkOps.updateOne(Query.query(Criteria.where("_id").is(course.get("_id"))), new Update()
+                        .set("searchTitle", SearchText.fold(course.getString("title")))
+                        .set("searchDescription", SearchText.fold(course.getString("description"))));
+                if (++pending == 1000) {
+                    bulkOps.execute();
+                    updated += pending;
+                    pending = 0;
+                    bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Course.class);
+                }
+            }
+        }
+        if (pending > 0) {
+            bulkOps.execute();
+            updated += pending;
+        }
+        return ResponseEntity.ok("Done ! Updated " + updated + " courses");
+    }
+
     @Transactional
     public void update_time() {
         List<Course> courses = courseRepository.findAll();
@@ -141,10 +210,12 @@ public class UpdateService {
                 course.setQuizzes((ArrayList<ObjectId>) validQuizIds);
             }
 
-            // Update course
-            course.setTotalTimeLimit(timelimit);
-            course.setUpdatedAt(LocalDateTime.now());
-            courseRepository.save(course);
+            // Chỉ ghi các trường tính lại, không ghi đè studentsCount / rating đang được $inc song song
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(course.getId())), new Update()
+                    .set("lessons", course.getLessons())
+                    .set("quizzes", course.getQuizzes())
+                    .set("totalTimeLimit", timelimit)
+                    .set("updatedAt", LocalDateTime.now()), Course.class);
         }
     }
     public void updateEnrollment(){
@@ -186,5 +257,6 @@ public class UpdateService {
             }
             enrollmentRepository.save(enrollment);
         }
+        eventPublisher.publishEvent(new EnrollmentChangedEvent(this, null, null));
     }
 }
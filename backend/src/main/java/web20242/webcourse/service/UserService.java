@@ -2,6 +2,7 @@ package web20242.webcourse.service;
 
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -16,6 +17,9 @@ import web20242.webcourse.model.constant.EStatus;
 import web20242.webcourse.repository.CourseRepository;
 import web20242.webcourse.repository.EnrollmentRepository;
 import web20242.webcourse.repository.UserRepository;
+import web20242.webcourse.security.dto.AuthenticatedUser;
+import web20242.webcourse.security.service.PrincipalCache;
+import web20242.webcourse.service.cache.EnrollmentChangedEvent;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
@@ -26,6 +30,8 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private PasswordEncoder passwordEncoder;
+    private PrincipalCache principalCache;
+    private ApplicationEventPublisher eventPublisher;
     private final CourseRepository courseRepository;
     private final EnrollmentRepository enrollmentRepository;
     @Autowired
@@ -41,18 +47,30 @@ public class UserService implements UserDetailsService {
         this.passwordEncoder = passwordEncoder;
     }
 
+    @Autowired
+    public void setPrincipalCache(PrincipalCache principalCache) {
+        this.principalCache = principalCache;
+    }
+
+    @Autowired
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-        return new org.springframework.security.core.userdetails.User(
+        return new AuthenticatedUser(
                 user.getUsername(),
                 user.getPassword(),
-                Collections.singletonList(new SimpleGrantedAuthority(user.getRole().name()))
+                Collections.singletonList(new SimpleGrantedAuthority(user.getRole().name())),
+                user.getId()
         );
     }
     public User updateUser(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
+        principalCache.invalidate(user.getUsername());
         return userRepository.save(user);
     }
     public User createUser(User user) {
@@ -65,6 +83,20 @@ public class UserService implements UserDetailsService {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         return userRepository.save(user);
     }
+    // Tạo tài khoản từ đăng ký đã xác nhận OTP: mật khẩu đã được mã hóa lúc đăng ký
+    public User createUserWithPasswordHash(User user, String passwordHash) {
+        if (userRepository.findByUsername(user.getUsername()).isPresent()) {
+            throw new IllegalArgumentException("Username đã tồn tại!");
+        }
+        if (passwordHash == null || passwordHash.isEmpty()) {
+            throw new IllegalArgumentException("Password is required!");
+        }
+        user.setPassword(passwordHash);
+        return userRepository.save(user);
+    }
+    public String encodePassword(String rawPassword) {
+        return passwordEncoder.encode(rawPassword);
+    }
 
     public boolean existsByEmail(String email) {
         return userRepository.findByEmail(email).isPresent();
@@ -108,6 +140,7 @@ public class UserService implements UserDetailsService {
             user.setUpdatedAt(LocalDateTime.now());
             userRepository.save(user);
         }
+        principalCache.clear();
     }
     public ResponseEntity<?> findAllUsers() {
         List<User> users = userRepository.findAll();
@@ -129,26 +162,14 @@ public class UserService implements UserDetailsService {
     }
 
     public void deleteUserLeaveCourse(String userId, String courseId) {
-        Optional<User> userOptional = userRepository.findById(new ObjectId(userId));
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
-            if (user.getCoursesEnrolled() != null) {
-                user.getCoursesEnrolled().removeIf(id -> id.equals(new ObjectId(courseId)));
-                user.setUpdatedAt(LocalDateTime.now());
-                userRepository.save(user);
-            }
-        }
-
-        Optional<Course> courseOptional = courseRepository.findById(new ObjectId(courseId));
-        if (courseOptional.isPresent()) {
-            Course course = courseOptional.get();
-            if (course.getStudentsEnrolled() != null) {
-                course.getStudentsEnrolled().removeIf(id -> id.equals(new ObjectId(userId)));
-                course.setUpdatedAt(LocalDateTime.now());
-                courseRepository.save(course);
-            }
+        ObjectId userObjectId = new ObjectId(userId);
+        ObjectId courseObjectId = new ObjectId(courseId);
+        userRepository.removeEnrolledCourse(userObjectId, courseObjectId);
+        // Chỉ giảm bộ đếm khi thực sự xóa được enrollment, tránh đếm âm khi gọi lặp lại
+        if (enrollmentRepository.deleteByUserIdAndCourseId(userObjectId, courseObjectId) > 0) {
+            courseRepository.incrementStudentsCount(courseObjectId, -1);
+            eventPublisher.publishEvent(new EnrollmentChangedEvent(this, userObjectId, courseObjectId));
         }
-        enrollmentRepository.deleteById(new ObjectId(userId));
     }
 
     public void setStatusUserForAdmin(String id) {
@@ -162,6 +183,7 @@ public class UserService implements UserDetailsService {
             }
             userToUpdate.setUpdatedAt(LocalDateTime.now());
             userRepository.save(userToUpdate);
+            principalCache.invalidate(userToUpdate.getUsername());
         } else {
             throw new IllegalArgumentException("User not found with id: " + id);
         }
@@ -178,6 +200,7 @@ public class UserService implements UserDetailsService {
             }
             userToUpdate.setUpdatedAt(LocalDateTime.now());
             userRepository.save(userToUpdate);
+            principalCache.invalidate(userToUpdate.getUsername());
         } else {
             throw new IllegalArgumentException("User not found with id: " + id);
         }
@@ -188,6 +211,7 @@ public class UserService implements UserDetailsService {
         if (userOptional.isPresent()) {
             User user = userOptional.get();
             userRepository.delete(user);
+            principalCache.invalidate(user.getUsername());
         } else {
             throw new IllegalArgumentException("User not found with id: " + id);
         }
@@ -0,0 +1,131 @@
+package web20242.webcourse.service.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import web20242.webcourse.model.CourseOutlineItem;
+
+import java.util.*;
+
+// Cache dữ liệu catalog công khai (danh sách khóa học, thông tin khóa học, outline, danh mục).
+// Dữ liệu được xóa theo CatalogChangedEvent; đăng ký / hủy đăng ký (EnrollmentChangedEvent) xóa thông tin
+// của khóa học đó để studentsCount luôn đúng. TTL chỉ giới hạn độ trễ của các thay đổi không phát event
+// (số học viên trong danh sách khóa học, tên giảng viên).
+@Component
+public class CatalogCache {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    public static final String FEATURED_COURSES = "featured-courses";
+    public static final String POPULAR_CATEGORIES = "popular";
+    public static final String FEATURED_CATEGORIES = "featured-category";
+
+    private final TtlCache<String, Page<Map<String, Object>>> coursePages;
+    private final TtlCache<String, Map<String, Object>> courseInfo;
+    private final TtlCache<String, List<CourseOutlineItem>> outlines; // theo courseId, dùng chung cho mọi vai trò
+    private final TtlCache<String, List<Map<String, Object>>> featuredCourses;
+    private final TtlCache<String, List<Map<String, String>>> categories;
+
+    public CatalogCache(@Value("${catalog.cache.max-size:500}") int maxSize,
+                        @Value("${catalog.cache.ttl-seconds:300}") long ttlSeconds) {
+        long ttlMillis = ttlSeconds * 1000;
+        this.coursePages = new TtlCache<>("coursePages", maxSize, ttlMillis);
+        this.courseInfo = new TtlCache<>("courseInfo", maxSize, ttlMillis);
+        this.outlines = new TtlCache<>("outlines", maxSize, ttlMillis);
+        this.featuredCourses = new TtlCache<>("featuredCourses", 1, ttlMillis);
+        this.categories = new TtlCache<>("categories", 4, ttlMillis);
+    }
+
+    public TtlCache<String, Page<Map<String, Object>>> coursePages() {
+        return coursePages;
+    }
+
+    public TtlCache<String, Map<String, Object>> courseInfo() {
+        return courseInfo;
+    }
+
+    public TtlCache<String, List<CourseOutlineItem>> outlines() {
+        return outlines;
+    }
+
+    public TtlCache<String, List<Map<String, Object>>> featuredCourses() {
+        return featuredCourses;
+    }
+
+    public TtlCache<String, List<Map<String, String>>> categories() {
+        return categories;
+    }
+
+    // Khóa cho một trang kết quả tìm kiếm, gồm toàn bộ tham số lọc và phân trang
+    public static String pageKey(Object... parts) {
+        StringJoiner joiner = new StringJoiner("|");
+        for (Object part : parts) {
+            joiner.add(String.valueOf(part));
+        }
+        return joiner.toString();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        String courseId = event.getCourseId() != null ? event.getCourseId().toHexString() : null;
+        switch (event.getScope()) {
+            case COURSE -> {
+                evictCourse(event, courseId, courseInfo);
+                coursePages.clear();
+                featuredCourses.clear();
+                // Số khóa học trên mỗi danh mục có thể thay đổi theo trạng thái / danh mục của khóa học
+                categories.clear();
+            }
+            case CONTENT -> {
+                evictCourse(event, courseId, outlines);
+                evictCourse(event, courseId, courseInfo);
+                // contentCount và totalTimeLimit hiển thị trong danh sách
+                coursePages.clear();
+                featuredCourses.clear();
+            }
+            case CATEGORY -> {
+                // Đổi tên / xóa danh mục cập nhật lại danh mục của nhiều khóa học
+                categories.clear();
+                courseInfo.clear();
+                coursePages.clear();
+                featuredCourses.clear();
+            }
+            case DELETED -> {
+                evictCourse(event, courseId, outlines);
+                evictCourse(event, courseId, courseInfo);
+                coursePages.clear();
+                featuredCourses.clear();
+                categories.clear();
+            }
+        }
+    }
+
+    // studentsCount trong thông tin khóa học; danh sách khóa học (coursePages) không bị xóa ở mỗi lượt đăng ký
+    @EventListener
+    public void onEnrollmentChanged(EnrollmentChangedEvent event) {
+        if (event.getCourseId() == null) {
+            courseInfo.clear();
+        } else {
+            courseInfo.invalidate(event.getCourseId().toHexString());
+        }
+    }
+
+    // Event không có courseId (thao tác hàng loạt trên mọi khóa học) xóa toàn bộ cache, ghi log để dễ nhận ra
+    // nơi phát event thiếu courseId
+    private void evictCourse(CatalogChangedEvent event, String courseId, TtlCache<String, ?> cache) {
+        if (courseId == null) {
+            logger.info("Clearing all {} entries: {} event without courseId from {}",
+                    cache.stats().get("name"), event.getScope(), event.getSource().getClass().getSimpleName());
+            cache.clear();
+        } else {
+            cache.invalidate(courseId);
+        }
+    }
+
+    public List<Map<String, Object>> stats() {
+        return List.of(coursePages.stats(), courseInfo.stats(), outlines.stats(),
+                featuredCourses.stats(), categories.stats());
+    }
+}
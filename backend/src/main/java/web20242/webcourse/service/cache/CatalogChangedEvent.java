@@ -0,0 +1,25 @@
+package web20242.webcourse.service.cache;
+
+import lombok.Getter;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEvent;
+
+// Phát ra sau mỗi thao tác ghi lên khóa học / bài học / quiz / danh mục để CatalogCache xóa đúng các entry bị ảnh hưởng
+@Getter
+public class CatalogChangedEvent extends ApplicationEvent {
+    public enum Scope {
+        COURSE,     // thông tin khóa học (tiêu đề, trạng thái, giá, danh mục, đánh giá...)
+        CONTENT,    // bài học / quiz của khóa học (outline, số nội dung, tổng thời gian)
+        CATEGORY,   // danh mục
+        DELETED     // khóa học bị xóa hẳn
+    }
+
+    private final Scope scope;
+    private final ObjectId courseId; // null nghĩa là ảnh hưởng nhiều khóa học
+
+    public CatalogChangedEvent(Object source, Scope scope, ObjectId courseId) {
+        super(source);
+        this.scope = scope;
+        this.courseId = courseId;
+    }
+}
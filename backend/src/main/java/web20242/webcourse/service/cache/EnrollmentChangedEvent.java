@@ -0,0 +1,18 @@
+package web20242.webcourse.service.cache;
+
+import lombok.Getter;
+import org.bson.types.ObjectId;
+import org.springframework.context.ApplicationEvent;
+
+// Phát ra sau khi enrollment được tạo / xóa / cập nhật tiến độ, để tính lại dashboard của user
+@Getter
+public class EnrollmentChangedEvent extends ApplicationEvent {
+    private final ObjectId userId;   // null nghĩa là ảnh hưởng mọi học viên của courseId
+    private final ObjectId courseId; // userId và courseId đều null: ảnh hưởng toàn bộ enrollments
+
+    public EnrollmentChangedEvent(Object source, ObjectId userId, ObjectId courseId) {
+        super(source);
+        this.userId = userId;
+        this.courseId = courseId;
+    }
+}
@@ -0,0 +1,140 @@
+package web20242.webcourse.service.cache;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Cache LRU có giới hạn kích thước và thời gian sống (TTL), kèm bộ đếm hit/miss
+public class TtlCache<K, V> {
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Tăng mỗi lần xóa (invalidate / clear), đọc và ghi trong khóa entries
+    private long generation;
+
+    public TtlCache(String name, int maxSize, long ttlMillis) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TtlCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V getIfPresent(K key) {
+        synchronized (entries) {
+            return lookup(key);
+        }
+    }
+
+    // loader chạy ngoài khóa; giá trị null không được cache.
+    // Kiểm tra và ghi vào cache là một bước nguyên tử so với invalidate: nếu có lần xóa nào xảy ra trong lúc
+    // loader đang đọc, giá trị vừa đọc có thể đã cũ nên chỉ được trả về, không được cache lại.
+    public V get(K key, Function<K, V> loader) {
+        long loadGeneration;
+        synchronized (entries) {
+            V cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+        V value = loader.apply(key);
+        if (value != null) {
+            synchronized (entries) {
+                if (generation == loadGeneration) {
+                    entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+                }
+            }
+        }
+        return value;
+    }
+
+    // Gọi trong khóa entries
+    private V lookup(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && !entry.isExpired()) {
+            hits.incrementAndGet();
+            return entry.value;
+        }
+        if (entry != null) {
+            entries.remove(key);
+            evictions.incrementAndGet();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            generation++;
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateIf(Predicate<K> predicate) {
+        synchronized (entries) {
+            generation++;
+            entries.keySet().removeIf(predicate);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation++;
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.get());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package web20242.webcourse.service.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Giới hạn số lời gọi ra ngoài chạy cùng lúc; chờ quá maxWaitMillis thì từ chối ngay thay vì giữ luồng request
+public class Bulkhead {
+    private final String name;
+    private final int maxConcurrent;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(String name, int maxConcurrent, long maxWaitMillis) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    public <T> T call(Callable<T> call) throws Exception {
+        if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+            rejected.incrementAndGet();
+            throw new RejectedCallException(name + " bulkhead is full (" + maxConcurrent + " concurrent calls)");
+        }
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("active", maxConcurrent - permits.availablePermits());
+        stats.put("waiting", permits.getQueueLength());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
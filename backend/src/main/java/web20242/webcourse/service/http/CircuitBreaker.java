@@ -0,0 +1,89 @@
+package web20242.webcourse.service.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// CLOSED: gọi bình thường, đếm lỗi liên tiếp; đủ failureThreshold thì chuyển OPEN.
+// OPEN: từ chối ngay trong openMillis; hết thời gian thì HALF_OPEN cho đúng một lời gọi thử,
+// thành công thì CLOSED, lỗi thì OPEN lại. Lỗi không thỏa isFailure (vd. 400 do request sai) không được tính.
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final Predicate<Exception> isFailure;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this(name, failureThreshold, openMillis, e -> true);
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, Predicate<Exception> isFailure) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.isFailure = isFailure;
+    }
+
+    public <T> T call(Callable<T> call) throws Exception {
+        acquire();
+        try {
+            T result = call.call();
+            onSuccess();
+            return result;
+        } catch (Exception e) {
+            if (isFailure.test(e)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void acquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            return;
+        }
+        if (state != State.CLOSED) {
+            rejected.incrementAndGet();
+            throw new RejectedCallException(name + " circuit breaker is " + state);
+        }
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state);
+        stats.put("consecutiveFailures", consecutiveFailures);
+        stats.put("failureThreshold", failureThreshold);
+        stats.put("openSeconds", openMillis / 1000);
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
@@ -0,0 +1,51 @@
+package web20242.webcourse.service.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histogram độ trễ với các mốc cố định (ms), đếm số request rơi vào từng khoảng, không cần thư viện metrics
+public class LatencyHistogram {
+    private static final long[] BOUNDS_MILLIS = {50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MILLIS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    public void record(long millis, boolean error) {
+        int bucket = 0;
+        while (bucket < BOUNDS_MILLIS.length && millis > BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalMillis.addAndGet(millis);
+        maxMillis.accumulateAndGet(millis, Math::max);
+        if (error) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        long total = count.get();
+        snapshot.put("count", total);
+        snapshot.put("errors", errors.get());
+        snapshot.put("avgMillis", total == 0 ? 0.0 : (double) totalMillis.get() / total);
+        snapshot.put("maxMillis", maxMillis.get());
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BOUNDS_MILLIS.length; i++) {
+            histogram.put("le_" + BOUNDS_MILLIS[i], buckets.get(i));
+        }
+        histogram.put("gt_" + BOUNDS_MILLIS[BOUNDS_MILLIS.length - 1], buckets.get(BOUNDS_MILLIS.length));
+        snapshot.put("buckets", histogram);
+        return snapshot;
+    }
+}
@@ -0,0 +1,60 @@
+package web20242.webcourse.service.http;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Số liệu của HTTP client gọi ra ngoài: tình trạng connection pool và histogram độ trễ theo từng target
+// (thời gian đến khi nhận được status + header của response)
+public class OutboundHttpMetrics {
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final Map<String, LatencyHistogram> latency = new ConcurrentHashMap<>();
+
+    public OutboundHttpMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    public ClientHttpRequestInterceptor interceptor(String target) {
+        LatencyHistogram histogram = histogram(target);
+        return (request, body, execution) -> {
+            long start = System.nanoTime();
+            boolean error = true;
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                error = response.getStatusCode().is5xxServerError();
+                return response;
+            } finally {
+                histogram.record((System.nanoTime() - start) / 1_000_000, error);
+            }
+        };
+    }
+
+    public LatencyHistogram histogram(String target) {
+        return latency.computeIfAbsent(target, key -> new LatencyHistogram());
+    }
+
+    public Map<String, Object> stats() {
+        PoolStats pool = connectionManager.getTotalStats();
+        Map<String, Object> poolStats = new LinkedHashMap<>();
+        poolStats.put("leased", pool.getLeased());
+        poolStats.put("available", pool.getAvailable());
+        poolStats.put("pending", pool.getPending());
+        poolStats.put("max", pool.getMax());
+        poolStats.put("utilization", pool.getMax() == 0 ? 0.0 : (double) pool.getLeased() / pool.getMax());
+
+        Map<String, Object> latencyStats = new TreeMap<>();
+        latency.forEach((target, histogram) -> latencyStats.put(target, histogram.snapshot()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pool", poolStats);
+        stats.put("latency", latencyStats);
+        return stats;
+    }
+}
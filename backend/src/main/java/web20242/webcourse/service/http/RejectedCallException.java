@@ -0,0 +1,8 @@
+package web20242.webcourse.service.http;
+
+// Lời gọi ra ngoài bị từ chối trước khi gửi (bulkhead đầy hoặc circuit breaker đang mở)
+public class RejectedCallException extends RuntimeException {
+    public RejectedCallException(String message) {
+        super(message);
+    }
+}
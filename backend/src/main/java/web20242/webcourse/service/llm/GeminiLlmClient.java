@@ -0,0 +1,85 @@
+package web20242.webcourse.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "gemini", matchIfMissing = true)
+public class GeminiLlmClient implements LlmClient {
+    private static final Logger logger = LoggerFactory.getLogger(GeminiLlmClient.class);
+    private static final String MODEL = "gemini-1.5-flash";
+    private static final String URL = "https://generativelanguage.googleapis.com/v1beta/models/" + MODEL + ":generateContent?key=";
+
+    @Value("${gemini.api.key}")
+    private String geminiApiKey;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final LlmCallGuard llmCallGuard;
+
+    public GeminiLlmClient(@Qualifier("llmRestTemplate") RestTemplate restTemplate, ObjectMapper objectMapper,
+                           LlmCallGuard llmCallGuard) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.llmCallGuard = llmCallGuard;
+    }
+
+    @Override
+    public String model() {
+        return MODEL;
+    }
+
+    @Override
+    public String generate(String prompt) throws IOException {
+        logger.info("Calling Gemini API ({} prompt characters)", prompt.length());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Content-Type", "application/json");
+
+        ObjectNode requestBody = objectMapper.createObjectNode();
+        ArrayNode contentsArray = objectMapper.createArrayNode();
+        ObjectNode contentObject = objectMapper.createObjectNode();
+        ArrayNode partsArray = objectMapper.createArrayNode();
+        ObjectNode partObject = objectMapper.createObjectNode();
+        partObject.put("text", prompt);
+        partsArray.add(partObject);
+        contentObject.set("parts", partsArray);
+        contentsArray.add(contentObject);
+        requestBody.set("contents", contentsArray);
+
+        HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(requestBody), headers);
+
+        ResponseEntity<String> response;
+        try {
+            response = llmCallGuard.call(() -> restTemplate.exchange(URL + geminiApiKey, HttpMethod.POST, entity, String.class));
+        } catch (HttpClientErrorException e) {
+            logger.error("Gemini API Error: {}", e.getResponseBodyAsString());
+            throw new RuntimeException("Failed to call Gemini API: " + e.getResponseBodyAsString(), e);
+        }
+        logger.info("Gemini API Response: {}", response.getBody());
+
+        // Lấy text của candidate đầu tiên trong response
+        JsonNode responseNode = objectMapper.readTree(response.getBody());
+        JsonNode text = responseNode.path("candidates").path(0).path("content").path("parts").path(0).path("text");
+        if (text.isMissingNode()) {
+            throw new IOException("Gemini response has no candidate text");
+        }
+        return text.asText();
+    }
+}
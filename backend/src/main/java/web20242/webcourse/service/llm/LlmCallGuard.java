@@ -0,0 +1,54 @@
+package web20242.webcourse.service.llm;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import web20242.webcourse.service.http.Bulkhead;
+import web20242.webcourse.service.http.CircuitBreaker;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// Bọc mọi lời gọi LLM: bulkhead giới hạn số lời gọi cùng lúc, circuit breaker ngừng gọi khi LLM liên tục lỗi
+// (timeout, lỗi kết nối, 5xx, 429) để request thất bại ngay thay vì giữ luồng chờ
+@Component
+public class LlmCallGuard {
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+
+    public LlmCallGuard(@Value("${llm.bulkhead.max-concurrent:6}") int maxConcurrent,
+                        @Value("${llm.bulkhead.max-wait-ms:30000}") long maxWaitMillis,
+                        @Value("${llm.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                        @Value("${llm.circuit-breaker.open-seconds:30}") long openSeconds) {
+        this.bulkhead = new Bulkhead("llm", maxConcurrent, maxWaitMillis);
+        this.circuitBreaker = new CircuitBreaker("llm", failureThreshold, TimeUnit.SECONDS.toMillis(openSeconds),
+                LlmCallGuard::isFailure);
+    }
+
+    public <T> T call(Callable<T> call) throws IOException {
+        try {
+            return bulkhead.call(() -> circuitBreaker.call(call));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static boolean isFailure(Exception e) {
+        if (e instanceof HttpStatusCodeException statusException) {
+            return statusException.getStatusCode().is5xxServerError() || statusException.getStatusCode().value() == 429;
+        }
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("bulkhead", bulkhead.stats());
+        stats.put("circuitBreaker", circuitBreaker.stats());
+        return stats;
+    }
+}
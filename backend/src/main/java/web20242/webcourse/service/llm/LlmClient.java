@@ -0,0 +1,14 @@
+package web20242.webcourse.service.llm;
+
+import java.io.IOException;
+
+// Gọi mô hình ngôn ngữ: nhận prompt, trả về phần text mô hình sinh ra.
+// Chọn cài đặt bằng llm.provider=gemini (mặc định) hoặc llm.provider=stub (chạy offline, dùng khi test).
+public interface LlmClient {
+    String generate(String prompt) throws IOException;
+
+    // Tên model, là một phần khóa của QuizResultCache (đổi model thì không dùng lại kết quả cũ)
+    default String model() {
+        return getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,157 @@
+package web20242.webcourse.service.llm;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.LlmResult;
+import web20242.webcourse.service.cache.TtlCache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache kết quả sinh quiz theo (hash của prompt, loại prompt, model):
+// LRU trong bộ nhớ (TtlCache) -> collection llm_results -> gọi LLM.
+// Các request giống nhau đến cùng lúc chỉ gọi LLM một lần, các request sau chờ kết quả của request đầu.
+@Service
+public class QuizResultCache {
+    private static final Logger logger = LoggerFactory.getLogger(QuizResultCache.class);
+
+    @FunctionalInterface
+    public interface Loader {
+        String load() throws IOException;
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final TtlCache<String, String> memoryCache;
+    private final long ttlMillis;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong mongoHits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public QuizResultCache(MongoTemplate mongoTemplate,
+                           @Value("${llm.cache.max-size:500}") int maxSize,
+                           @Value("${llm.cache.ttl-days:30}") long ttlDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.ttlMillis = TimeUnit.DAYS.toMillis(ttlDays);
+        this.memoryCache = new TtlCache<>("llmResults", maxSize, ttlMillis);
+    }
+
+    @PostConstruct
+    void ensureTtlIndex() {
+        mongoTemplate.indexOps(LlmResult.class)
+                .ensureIndex(new Index().on("expireAt", Sort.Direction.ASC).expire(Duration.ZERO).named("expireAt_ttl"));
+    }
+
+    // Hash của toàn bộ prompt gửi cho LLM (mẫu prompt + nội dung + URL tài liệu)
+    public static String promptHash(String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(prompt.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // loader chỉ nên trả về kết quả hợp lệ; lỗi của loader không được cache và được ném cho mọi request đang chờ
+    public String get(String promptHash, String variant, String model, Loader loader) throws IOException {
+        String key = variant + ":" + model + ":" + promptHash;
+        String cached = memoryCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+        try {
+            String response = loadFromMongo(key);
+            if (response != null) {
+                mongoHits.incrementAndGet();
+            } else {
+                loads.incrementAndGet();
+                response = loader.load();
+                store(key, promptHash, variant, model, response);
+            }
+            memoryCache.put(key, response);
+            mine.complete(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private String loadFromMongo(String key) {
+        try {
+            LlmResult result = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(key)
+                    .and("expireAt").gt(new Date())), LlmResult.class);
+            return result != null ? result.getResponse() : null;
+        } catch (Exception e) {
+            logger.warn("Cannot read LLM result cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, String promptHash, String variant, String model, String response) {
+        try {
+            Date now = new Date();
+            mongoTemplate.save(new LlmResult(key, promptHash, variant, model, response, now,
+                    new Date(now.getTime() + ttlMillis)));
+        } catch (Exception e) {
+            // Kết quả vẫn được trả về và giữ trong bộ nhớ, chỉ mất bản lưu dùng chung
+            logger.warn("Cannot persist LLM result {}: {}", key, e.getMessage());
+        }
+    }
+
+    private String await(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // hitRate tính trên mọi request: trúng bộ nhớ, trúng MongoDB hoặc chờ chung request đang chạy đều không tốn lời gọi LLM
+    public Map<String, Object> stats() {
+        Map<String, Object> memoryStats = memoryCache.stats();
+        long memoryHits = (Long) memoryStats.get("hits");
+        long requests = memoryHits + mongoHits.get() + coalesced.get() + loads.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("memory", memoryStats);
+        stats.put("mongoHits", mongoHits.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("llmCalls", loads.get());
+        stats.put("inFlight", inFlight.size());
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) (requests - loads.get()) / requests);
+        return stats;
+    }
+}
@@ -0,0 +1,43 @@
+package web20242.webcourse.service.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// LLM giả chạy cục bộ: trả về một quiz JSON hợp lệ, không gọi mạng.
+// Dùng để chạy thử pipeline sinh quiz (upload, trích xuất, job, lưu DB) khi không có API key.
+@Component
+@ConditionalOnProperty(name = "llm.provider", havingValue = "stub")
+public class StubLlmClient implements LlmClient {
+    private final ObjectMapper objectMapper;
+
+    public StubLlmClient(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String model() {
+        return "stub";
+    }
+
+    @Override
+    public String generate(String prompt) throws IOException {
+        ObjectNode quiz = objectMapper.createObjectNode();
+        quiz.put("title", "Stub quiz");
+        quiz.put("description", "Quiz sinh bởi StubLlmClient");
+        quiz.put("order", 1);
+        quiz.put("passingScore", 70.0);
+        quiz.put("timeLimit", 30);
+        ArrayNode questions = quiz.putArray("questions");
+        ObjectNode question = questions.addObject();
+        question.put("question", "Prompt có " + prompt.length() + " ký tự?");
+        question.put("eQuestion", "SINGLE_CHOICE");
+        question.putArray("options").add("Đúng").add("Sai");
+        question.putArray("correctAnswer").add("Đúng");
+        return objectMapper.writeValueAsString(quiz);
+    }
+}
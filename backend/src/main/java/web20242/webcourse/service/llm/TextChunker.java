@@ -0,0 +1,69 @@
+package web20242.webcourse.service.llm;
+
+import web20242.webcourse.service.PdfTextExtractor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Chia text PDF thành các đoạn vừa ngân sách token của một prompt.
+// Ưu tiên cắt theo trang (PdfTextExtractor.PAGE_SEPARATOR), trang quá dài thì cắt theo dòng, dòng quá dài thì cắt cứng.
+public final class TextChunker {
+    // Ước lượng thô ~4 ký tự / token, đủ để giữ prompt dưới giới hạn context của mô hình
+    public static final int CHARS_PER_TOKEN = 4;
+    private static final Pattern PAGE_SPLIT = Pattern.compile(Pattern.quote(PdfTextExtractor.PAGE_SEPARATOR));
+
+    private TextChunker() {
+    }
+
+    public static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public static List<String> split(String text, int maxTokens) {
+        int maxChars = Math.max(1, maxTokens) * CHARS_PER_TOKEN;
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String page : PAGE_SPLIT.split(text)) {
+            if (page.isBlank()) {
+                continue;
+            }
+            if (page.length() > maxChars) {
+                flush(current, chunks);
+                splitLongPage(page, maxChars, chunks);
+                continue;
+            }
+            if (current.length() + page.length() > maxChars) {
+                flush(current, chunks);
+            }
+            current.append(page);
+        }
+        flush(current, chunks);
+        if (chunks.isEmpty()) {
+            chunks.add(text);
+        }
+        return chunks;
+    }
+
+    private static void splitLongPage(String page, int maxChars, List<String> chunks) {
+        StringBuilder current = new StringBuilder();
+        for (String line : page.split("(?<=\n)")) {
+            if (current.length() + line.length() > maxChars) {
+                flush(current, chunks);
+            }
+            while (line.length() > maxChars) {
+                chunks.add(line.substring(0, maxChars));
+                line = line.substring(maxChars);
+            }
+            current.append(line);
+        }
+        flush(current, chunks);
+    }
+
+    private static void flush(StringBuilder current, List<String> chunks) {
+        if (!current.toString().isBlank()) {
+            chunks.add(current.toString());
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,246 @@
+package web20242.webcourse.service.mail;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+import web20242.webcourse.model.MailMessage;
+import web20242.webcourse.model.constant.EMailStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Hàng đợi email: request chỉ ghi MailMessage vào mail_outbox rồi trả về ngay,
+// một pool worker giới hạn gửi SMTP, lỗi thì thử lại với backoff lũy thừa.
+// Poller định kỳ nhặt lại email còn PENDING (kể cả sau khi khởi động lại) hoặc bị kẹt ở SENDING.
+@Service
+public class MailOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(MailOutbox.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JavaMailSender javaMailSender;
+
+    @Autowired
+    private MailTemplateCache templateCache;
+
+    @Value("${mail.outbox.workers:4}")
+    private int workers;
+
+    @Value("${mail.outbox.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.backoff-seconds:30}")
+    private long backoffSeconds;
+
+    @Value("${mail.outbox.poll-seconds:15}")
+    private long pollSeconds;
+
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService poller;
+    // id đang nằm trong hàng đợi của executor, tránh poller nộp trùng
+    private final Set<ObjectId> queued = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        mongoTemplate.indexOps(MailMessage.class).ensureIndex(new Index()
+                .on("status", Sort.Direction.ASC).on("nextAttemptAt", Sort.Direction.ASC).named("status_nextAttemptAt"));
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        // Hàng đợi đầy thì bỏ qua: email vẫn nằm trong DB ở trạng thái PENDING, poller sẽ nộp lại
+        executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mail-worker-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, pool) -> {
+                    if (runnable instanceof Delivery delivery) {
+                        queued.remove(delivery.id);
+                    }
+                    logger.warn("Mail queue full, delivery deferred to poller");
+                });
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mail-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 5, pollSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        poller.shutdownNow();
+        executor.shutdown();
+    }
+
+    public MailMessage enqueue(String to, String from, String subject, String template, Map<String, String> variables) {
+        Date now = new Date();
+        MailMessage message = MailMessage.builder()
+                .to(to)
+                .from(from)
+                .subject(subject)
+                .template(template)
+                .variables(variables)
+                .status(EMailStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build();
+        mongoTemplate.insert(message);
+        submit(message.getId());
+        return message;
+    }
+
+    private void submit(ObjectId id) {
+        if (queued.add(id)) {
+            executor.execute(new Delivery(id));
+        }
+    }
+
+    private final class Delivery implements Runnable {
+        private final ObjectId id;
+
+        private Delivery(ObjectId id) {
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+            queued.remove(id);
+            deliver(id);
+        }
+    }
+
+    private void deliver(ObjectId id) {
+        Date now = new Date();
+        // Nhận email một cách nguyên tử: chỉ một worker (trên mọi instance) được gửi
+        MailMessage message = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(id)
+                        .and("status").is(EMailStatus.PENDING)
+                        .and("nextAttemptAt").lte(now)),
+                new Update().set("status", EMailStatus.SENDING)
+                        .inc("attempts", 1)
+                        .set("lockedUntil", new Date(now.getTime() + TimeUnit.MINUTES.toMillis(5))),
+                FindAndModifyOptions.options().returnNew(true),
+                MailMessage.class);
+        if (message == null) {
+            return;
+        }
+        try {
+            send(message);
+            Date sentAt = new Date();
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                    new Update().set("status", EMailStatus.SENT).set("sentAt", sentAt)
+                            .unset("lockedUntil").unset("lastError").unset("variables"),
+                    MailMessage.class);
+            recordLatency(sentAt.getTime() - message.getCreatedAt().getTime());
+        } catch (Exception e) {
+            handleFailure(message, e);
+        }
+    }
+
+    private void send(MailMessage mailMessage) throws Exception {
+        MimeMessage message = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, StandardCharsets.UTF_8.name());
+        helper.setTo(mailMessage.getTo());
+        helper.setFrom(mailMessage.getFrom());
+        helper.setSubject(mailMessage.getSubject());
+        helper.setText(templateCache.render(mailMessage.getTemplate(),
+                mailMessage.getVariables() != null ? mailMessage.getVariables() : Collections.emptyMap()), true);
+        javaMailSender.send(message);
+    }
+
+    private void handleFailure(MailMessage message, Exception e) {
+        Update update = new Update().set("lastError", e.getMessage()).unset("lockedUntil");
+        if (message.getAttempts() >= maxAttempts) {
+            failed.incrementAndGet();
+            update.set("status", EMailStatus.FAILED);
+            logger.error("Mail {} to {} failed after {} attempts: {}",
+                    message.getId(), message.getTo(), message.getAttempts(), e.getMessage());
+        } else {
+            retried.incrementAndGet();
+            // 30s, 60s, 120s, ...
+            long delayMillis = TimeUnit.SECONDS.toMillis(backoffSeconds) << (message.getAttempts() - 1);
+            update.set("status", EMailStatus.PENDING).set("nextAttemptAt", new Date(System.currentTimeMillis() + delayMillis));
+            logger.warn("Mail {} to {} failed (attempt {}), retrying in {}s: {}",
+                    message.getId(), message.getTo(), message.getAttempts(), delayMillis / 1000, e.getMessage());
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(message.getId())), update, MailMessage.class);
+    }
+
+    private void poll() {
+        try {
+            Date now = new Date();
+            // Worker chết giữa chừng (tắt máy, crash): trả email về PENDING
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("status").is(EMailStatus.SENDING).and("lockedUntil").lt(now)),
+                    new Update().set("status", EMailStatus.PENDING).set("nextAttemptAt", now).unset("lockedUntil"),
+                    MailMessage.class);
+
+            int capacity = executor.getQueue().remainingCapacity();
+            if (capacity <= 0) {
+                return;
+            }
+            Query due = Query.query(Criteria.where("status").is(EMailStatus.PENDING).and("nextAttemptAt").lte(now))
+                    .with(Sort.by(Sort.Direction.ASC, "nextAttemptAt"))
+                    .limit(capacity);
+            due.fields().include("_id");
+            for (MailMessage message : mongoTemplate.find(due, MailMessage.class)) {
+                submit(message.getId());
+            }
+        } catch (Exception e) {
+            logger.error("Mail outbox poll failed: {}", e.getMessage());
+        }
+    }
+
+    private void recordLatency(long latencyMillis) {
+        sent.incrementAndGet();
+        totalLatencyMillis.addAndGet(latencyMillis);
+        maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long sentCount = sent.get();
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("pending", mongoTemplate.count(
+                Query.query(Criteria.where("status").is(EMailStatus.PENDING)), MailMessage.class));
+        stats.put("sent", sentCount);
+        stats.put("retried", retried.get());
+        stats.put("failed", failed.get());
+        stats.put("avgLatencyMillis", sentCount == 0 ? 0 : totalLatencyMillis.get() / sentCount);
+        stats.put("maxLatencyMillis", maxLatencyMillis.get());
+        return stats;
+    }
+}
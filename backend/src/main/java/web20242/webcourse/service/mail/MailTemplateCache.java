@@ -0,0 +1,78 @@
+package web20242.webcourse.service.mail;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Đọc các template .hbs một lần khi khởi động và tách sẵn thành các đoạn văn bản / biến {{name}},
+// nên mỗi email chỉ còn là một lần ghép chuỗi
+@Component
+public class MailTemplateCache {
+    private static final String LOCATION = "classpath:templates/*.hbs";
+
+    private final Map<String, List<Segment>> templates = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void load() throws IOException {
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            String filename = resource.getFilename();
+            if (filename == null) {
+                continue;
+            }
+            try (InputStream inputStream = resource.getInputStream()) {
+                String source = StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+                templates.put(filename.substring(0, filename.length() - ".hbs".length()), compile(source));
+            }
+        }
+    }
+
+    public String render(String name, Map<String, String> variables) {
+        List<Segment> segments = templates.get(name);
+        if (segments == null) {
+            throw new UncheckedIOException(new IOException("Mail template not found: " + name));
+        }
+        StringBuilder html = new StringBuilder();
+        for (Segment segment : segments) {
+            if (segment.variable()) {
+                String value = variables.get(segment.text());
+                html.append(value != null ? value : "");
+            } else {
+                html.append(segment.text());
+            }
+        }
+        return html.toString();
+    }
+
+    private List<Segment> compile(String source) {
+        List<Segment> segments = new ArrayList<>();
+        int position = 0;
+        while (position < source.length()) {
+            int start = source.indexOf("{{", position);
+            int end = start < 0 ? -1 : source.indexOf("}}", start + 2);
+            if (start < 0 || end < 0) {
+                segments.add(new Segment(source.substring(position), false));
+                break;
+            }
+            if (start > position) {
+                segments.add(new Segment(source.substring(position, start), false));
+            }
+            segments.add(new Segment(source.substring(start + 2, end).trim(), true));
+            position = end + 2;
+        }
+        return segments;
+    }
+
+    private record Segment(String text, boolean variable) {
+    }
+}
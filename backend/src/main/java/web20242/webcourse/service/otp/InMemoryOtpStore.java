@@ -0,0 +1,84 @@
+package web20242.webcourse.service.otp;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import web20242.webcourse.model.createRequest.OtpData;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// OTP trong bộ nhớ của một instance; một luồng nền dọn OTP hết hạn và cửa sổ giới hạn đã qua
+@Component
+@ConditionalOnProperty(name = "otp.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOtpStore implements OtpStore {
+    private final ConcurrentHashMap<String, OtpData> otps = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SendWindow> sendWindows = new ConcurrentHashMap<>();
+    private final int maxSends;
+    private final long windowMillis;
+    private final ScheduledExecutorService sweeper;
+
+    public InMemoryOtpStore(@Value("${otp.rate-limit.max-sends:3}") int maxSends,
+                            @Value("${otp.rate-limit.window-minutes:15}") long windowMinutes,
+                            @Value("${otp.sweep-interval-seconds:60}") long sweepIntervalSeconds) {
+        this.maxSends = maxSends;
+        this.windowMillis = TimeUnit.MINUTES.toMillis(windowMinutes);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "otp-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalSeconds, sweepIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void save(String email, OtpData otpData) {
+        otps.put(email, otpData);
+    }
+
+    @Override
+    public Optional<OtpData> find(String email) {
+        OtpData otpData = otps.get(email);
+        if (otpData == null) {
+            return Optional.empty();
+        }
+        if (otpData.isExpired()) {
+            otps.remove(email, otpData);
+            return Optional.empty();
+        }
+        return Optional.of(otpData);
+    }
+
+    @Override
+    public void remove(String email) {
+        otps.remove(email);
+    }
+
+    @Override
+    public boolean tryAcquireSend(String email) {
+        long now = System.currentTimeMillis();
+        SendWindow window = sendWindows.compute(email, (key, current) ->
+                current == null || current.expiresAt <= now
+                        ? new SendWindow(1, now + windowMillis)
+                        : new SendWindow(current.count + 1, current.expiresAt));
+        return window.count <= maxSends;
+    }
+
+    void sweep() {
+        long now = System.currentTimeMillis();
+        otps.values().removeIf(OtpData::isExpired);
+        sendWindows.values().removeIf(window -> window.expiresAt <= now);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private record SendWindow(int count, long expiresAt) {
+    }
+}
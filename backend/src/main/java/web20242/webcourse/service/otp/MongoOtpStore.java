@@ -0,0 +1,86 @@
+package web20242.webcourse.service.otp;
+
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+import web20242.webcourse.model.OtpRecord;
+import web20242.webcourse.model.createRequest.OtpData;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// OTP lưu trong MongoDB để mọi instance sau load balancer đều xác nhận được.
+// TTL monitor của MongoDB chạy khoảng mỗi 60 giây, nên khi đọc vẫn lọc theo expireAt.
+@Component
+@ConditionalOnProperty(name = "otp.store", havingValue = "mongo")
+public class MongoOtpStore implements OtpStore {
+    private static final String RATE_LIMIT_COLLECTION = "otp_rate_limits";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${otp.rate-limit.max-sends:3}")
+    private int maxSends;
+
+    @Value("${otp.rate-limit.window-minutes:15}")
+    private long windowMinutes;
+
+    @PostConstruct
+    void ensureTtlIndexes() {
+        mongoTemplate.indexOps(OtpRecord.class)
+                .ensureIndex(new Index().on("expireAt", Sort.Direction.ASC).expire(Duration.ZERO).named("expireAt_ttl"));
+        mongoTemplate.indexOps(RATE_LIMIT_COLLECTION)
+                .ensureIndex(new Index().on("expireAt", Sort.Direction.ASC).expire(Duration.ZERO).named("expireAt_ttl"));
+    }
+
+    @Override
+    public void save(String email, OtpData otpData) {
+        Date expireAt = Date.from(otpData.getExpiryTime().atZone(ZoneId.systemDefault()).toInstant());
+        mongoTemplate.save(new OtpRecord(email, otpData.getOtpHash(), otpData.getUser(),
+                otpData.getPasswordHash(), expireAt));
+    }
+
+    @Override
+    public Optional<OtpData> find(String email) {
+        OtpRecord record = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(email)
+                .and("expireAt").gt(new Date())), OtpRecord.class);
+        if (record == null) {
+            return Optional.empty();
+        }
+        LocalDateTime expiryTime = LocalDateTime.ofInstant(record.getExpireAt().toInstant(), ZoneId.systemDefault());
+        return Optional.of(new OtpData(record.getOtpHash(), record.getUser(), record.getPasswordHash(), expiryTime));
+    }
+
+    @Override
+    public void remove(String email) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(email)), OtpRecord.class);
+    }
+
+    @Override
+    public boolean tryAcquireSend(String email) {
+        Date now = new Date();
+        // Cửa sổ cũ đã qua nhưng TTL monitor chưa kịp xóa: xóa trước để upsert bắt đầu cửa sổ mới
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(email).and("expireAt").lte(now)), RATE_LIMIT_COLLECTION);
+        Document window = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(email)),
+                new Update().inc("count", 1)
+                        .setOnInsert("expireAt", new Date(now.getTime() + TimeUnit.MINUTES.toMillis(windowMinutes))),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, RATE_LIMIT_COLLECTION);
+        return window != null && window.getInteger("count", 0) <= maxSends;
+    }
+}
@@ -0,0 +1,20 @@
+package web20242.webcourse.service.otp;
+
+import web20242.webcourse.model.createRequest.OtpData;
+
+import java.util.Optional;
+
+// Nơi lưu OTP đăng ký / quên mật khẩu, khóa theo email.
+// Chọn cài đặt bằng otp.store=memory (mặc định, một instance) hoặc otp.store=mongo (nhiều instance).
+public interface OtpStore {
+
+    void save(String email, OtpData otpData);
+
+    // Chỉ trả về OTP còn hạn
+    Optional<OtpData> find(String email);
+
+    void remove(String email);
+
+    // Giới hạn số lần gửi OTP cho một email trong một khoảng thời gian; false nếu đã vượt quá
+    boolean tryAcquireSend(String email);
+}
@@ -0,0 +1,18 @@
+package web20242.webcourse.service.search;
+
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+import web20242.webcourse.model.Course;
+
+// Mỗi lần lưu cả document Course (save / insert), tính lại searchTitle / searchDescription từ title / description.
+// Các chỗ ghi bằng Update (CourseService.updateCourseInfo) phải tự set hai trường này.
+@Component
+public class CourseSearchFieldsCallback implements BeforeConvertCallback<Course> {
+
+    @Override
+    public Course onBeforeConvert(Course course, String collection) {
+        course.setSearchTitle(SearchText.fold(course.getTitle()));
+        course.setSearchDescription(SearchText.fold(course.getDescription()));
+        return course;
+    }
+}
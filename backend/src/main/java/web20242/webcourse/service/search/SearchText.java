@@ -0,0 +1,26 @@
+package web20242.webcourse.service.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Chuẩn hóa văn bản tiếng Việt để tìm kiếm không phân biệt dấu: tách dấu (NFD) rồi bỏ, đ / Đ thành d
+// (đ là một chữ riêng, NFD không tách được), viết thường. Dùng cho cả dữ liệu lưu (searchTitle / searchDescription)
+// và từ khóa tìm kiếm, nên "dao tao", "Đào tạo" và "ĐÀO TẠO" so khớp như nhau.
+public final class SearchText {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private SearchText() {
+    }
+
+    public static String fold(String text) {
+        if (text == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'd')
+                .toLowerCase(Locale.ROOT);
+    }
+}
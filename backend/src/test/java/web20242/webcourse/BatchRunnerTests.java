@@ -0,0 +1,57 @@
+package web20242.webcourse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import web20242.webcourse.service.BatchRunner;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Quy tắc trạng thái chung của /upload/pdf và /quiz/generate-from-pdf*: 200 với body cũ, có file lỗi thì 500
+class BatchRunnerTests {
+	private ExecutorService executor;
+	private BatchRunner batchRunner;
+
+	@BeforeEach
+	void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+		batchRunner = new BatchRunner();
+		ReflectionTestUtils.setField(batchRunner, "executor", executor);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void allSucceededKeepsTheOldBodyAnyFailureIsAnErrorWithPerFileResults() {
+		List<Map<String, Object>> uploaded = batchRunner.runAll(List.of("a.pdf", "b.pdf"), name -> name,
+				name -> "https://files.example.com/" + name);
+		ResponseEntity<?> ok = BatchRunner.response(uploaded,
+				results -> results.stream().map(result -> (String) result.get("result")).toList());
+		assertEquals(HttpStatus.OK, ok.getStatusCode());
+		assertEquals(List.of("https://files.example.com/a.pdf", "https://files.example.com/b.pdf"), ok.getBody());
+
+		List<Map<String, Object>> partial = batchRunner.runAll(List.of("a.pdf", "b.pdf"), name -> name, name -> {
+			if (name.startsWith("b")) {
+				throw new IOException("R2 unavailable");
+			}
+			return "https://files.example.com/" + name;
+		});
+		ResponseEntity<?> failed = BatchRunner.response(partial, results -> results);
+		assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+		assertEquals(partial, failed.getBody());
+		assertEquals(true, partial.get(0).get("success"));
+		assertEquals("R2 unavailable", partial.get(1).get("error"));
+	}
+}
@@ -0,0 +1,32 @@
+package web20242.webcourse;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import web20242.webcourse.service.cache.CatalogCache;
+import web20242.webcourse.service.cache.EnrollmentChangedEvent;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CatalogCacheTests {
+
+	// Đăng ký / hủy đăng ký chỉ xóa thông tin của khóa học đó (studentsCount), các khóa học khác giữ nguyên
+	@Test
+	void enrollmentChangeEvictsOnlyThatCoursesInfo() {
+		CatalogCache cache = new CatalogCache(10, 300);
+		ObjectId courseId = new ObjectId();
+		ObjectId otherId = new ObjectId();
+		cache.courseInfo().put(courseId.toHexString(), Map.of("studentsCount", 1));
+		cache.courseInfo().put(otherId.toHexString(), Map.of("studentsCount", 5));
+
+		cache.onEnrollmentChanged(new EnrollmentChangedEvent(this, new ObjectId(), courseId));
+
+		assertNull(cache.courseInfo().getIfPresent(courseId.toHexString()));
+		assertNotNull(cache.courseInfo().getIfPresent(otherId.toHexString()));
+
+		cache.onEnrollmentChanged(new EnrollmentChangedEvent(this, null, null));
+		assertNull(cache.courseInfo().getIfPresent(otherId.toHexString()));
+	}
+}
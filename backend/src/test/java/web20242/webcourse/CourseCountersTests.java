@@ -0,0 +1,223 @@
+package web20242.webcourse;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.Enrollment;
+import web20242.webcourse.model.Review;
+import web20242.webcourse.model.User;
+import web20242.webcourse.model.constant.ERole;
+import web20242.webcourse.model.constant.EStatus;
+import web20242.webcourse.model.createRequest.ReviewRequest;
+import web20242.webcourse.repository.CourseRepository;
+import web20242.webcourse.repository.EnrollmentRepository;
+import web20242.webcourse.repository.ReviewRepository;
+import web20242.webcourse.repository.UserRepository;
+import web20242.webcourse.service.CourseService;
+import web20242.webcourse.service.EnrollmentService;
+import web20242.webcourse.service.ReviewService;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Bộ đếm trên document khóa học ($inc) không bị các lần sửa thông tin khóa học chạy song song ghi đè
+class CourseCountersTests extends MongoIntegrationTest {
+	@Autowired
+	private CourseService courseService;
+
+	@Autowired
+	private EnrollmentService enrollmentService;
+
+	@Autowired
+	private ReviewService reviewService;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private ReviewRepository reviewRepository;
+
+	@Autowired
+	private EnrollmentRepository enrollmentRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private Course course;
+	private final List<User> users = new ArrayList<>();
+
+	@BeforeEach
+	void seed() {
+		course = courseRepository.save(Course.builder().title("Khóa học").status(EStatus.ACTIVE).studentsCount(0)
+				.lessons(new ArrayList<>()).quizzes(new ArrayList<>()).categories(new ArrayList<>()).build());
+		for (int i = 0; i < 40; i++) {
+			users.add(userRepository.save(User.builder().username("counter-" + new ObjectId()).role(ERole.ROLE_USER)
+					.status(EStatus.ACTIVE).build()));
+		}
+	}
+
+	@AfterEach
+	void cleanUp() {
+		reviewRepository.deleteAll(reviewRepository.findByCourseId(course.getId()));
+		enrollmentRepository.deleteAll(enrollmentRepository.findByCourseId(course.getId()));
+		userRepository.deleteAll(users);
+		courseRepository.deleteById(course.getId());
+	}
+
+	// 40 lượt đăng ký chạy xen với 40 lần đổi trạng thái / chủ khóa học: studentsCount phải đúng 40
+	@Test
+	void studentsCountSurvivesConcurrentCourseEdits() throws Exception {
+		String courseId = course.getId().toHexString();
+		String ownerId = new ObjectId().toHexString();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> tasks = new ArrayList<>();
+		try {
+			for (User user : users) {
+				tasks.add(executor.submit(() -> {
+					start.await();
+					enrollmentService.createEnrollment(user.getId(), courseId);
+					return null;
+				}));
+				tasks.add(executor.submit(() -> {
+					start.await();
+					courseService.updateStatusForAdmin(courseId);
+					courseService.setOwner(courseId, ownerId);
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Course saved = courseRepository.findById(course.getId()).orElseThrow();
+		assertEquals(users.size(), saved.getStudentsCount());
+		assertEquals(users.size(), enrollmentRepository.findByCourseId(course.getId()).size());
+		assertEquals(ownerId, saved.getTeacherId().toHexString());
+	}
+
+	// Cùng một enrollment bị xóa 8 lần cùng lúc: chỉ một lần thành công, studentsCount chỉ giảm một
+	@Test
+	void concurrentEnrollmentDeletesDecrementOnce() throws Exception {
+		User user = users.get(0);
+		String courseId = course.getId().toHexString();
+		enrollmentService.createEnrollment(user.getId(), courseId);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<ResponseEntity<?>>> tasks = new ArrayList<>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				tasks.add(executor.submit(() -> {
+					start.await();
+					return enrollmentService.deleteEnrollment(courseId, user);
+				}));
+			}
+			start.countDown();
+			int deleted = 0;
+			for (Future<ResponseEntity<?>> task : tasks) {
+				HttpStatusCode status = task.get().getStatusCode();
+				if (HttpStatus.OK.equals(status)) {
+					deleted++;
+				} else {
+					assertEquals(HttpStatus.NOT_FOUND, status);
+				}
+			}
+			assertEquals(1, deleted);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(0, courseRepository.findById(course.getId()).orElseThrow().getStudentsCount());
+		assertTrue(enrollmentRepository.findByUserIdAndCourseId(user.getId(), course.getId()).isEmpty());
+		assertEquals(HttpStatus.BAD_REQUEST, enrollmentService.deleteEnrollment("not-an-id", user).getStatusCode());
+	}
+
+	// Cùng một học viên gửi đánh giá 8 lần cùng lúc: index unique (courseId, userId) chỉ cho lưu một review,
+	// ratingCount / ratingSum chỉ cộng một lần; số sao ngoài 1..5 bị từ chối
+	@Test
+	void duplicateReviewSubmissionsAreCountedOnce() throws Exception {
+		User user = users.get(0);
+		enrollmentService.createEnrollment(user.getId(), course.getId().toHexString());
+		Enrollment enrollment = enrollmentRepository.findByUserIdAndCourseId(user.getId(), course.getId()).orElseThrow();
+		enrollment.setStatus(EStatus.DONE);
+		enrollmentRepository.save(enrollment);
+		Principal principal = user::getUsername;
+
+		ReviewRequest invalid = ReviewRequest.builder().courseId(course.getId().toHexString()).comment("?").rate(6).build();
+		assertEquals(HttpStatus.BAD_REQUEST, reviewService.sendReviewByUser(invalid, principal).getStatusCode());
+
+		ReviewRequest request = ReviewRequest.builder().courseId(course.getId().toHexString()).comment("Hay").rate(4).build();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> tasks = new ArrayList<>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				tasks.add(executor.submit(() -> {
+					start.await();
+					return reviewService.sendReviewByUser(request, principal);
+				}));
+			}
+			start.countDown();
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Course saved = courseRepository.findById(course.getId()).orElseThrow();
+		assertEquals(1, reviewRepository.findByCourseId(course.getId()).size());
+		assertEquals(1, saved.getRatingCount());
+		assertEquals(4, saved.getRatingSum());
+		assertEquals(1, saved.getRatingHistogram().get("4"));
+	}
+
+	// Tính lại đánh giá từ reviews: khóa học có review được ghi đè số liệu đúng, khóa học không còn review về 0
+	@Test
+	void updateRatingRecomputesReviewedCoursesAndResetsTheRest() {
+		reviewRepository.save(Review.builder().courseId(course.getId()).userId(users.get(0).getId()).rating(5).build());
+		reviewRepository.save(Review.builder().courseId(course.getId()).userId(users.get(1).getId()).rating(2).build());
+		course.setRatingSum(99);
+		course.setRatingCount(1);
+		courseRepository.save(course);
+		Course unreviewed = courseRepository.save(Course.builder().title("Không có review").status(EStatus.ACTIVE)
+				.ratingSum(8).ratingCount(2).averageRating(4.0).ratingHistogram(new HashMap<>(Map.of("4", 2))).build());
+		try {
+			courseService.updateRating();
+
+			Course reviewed = courseRepository.findById(course.getId()).orElseThrow();
+			assertEquals(7, reviewed.getRatingSum());
+			assertEquals(2, reviewed.getRatingCount());
+			assertEquals(3.5, reviewed.getAverageRating(), 1e-9);
+			assertEquals(Map.of("5", 1, "2", 1), reviewed.getRatingHistogram());
+			Course reset = courseRepository.findById(unreviewed.getId()).orElseThrow();
+			assertEquals(0, reset.getRatingSum());
+			assertEquals(0, reset.getRatingCount());
+			assertNull(reset.getAverageRating());
+			assertTrue(reset.getRatingHistogram().isEmpty());
+		} finally {
+			courseRepository.deleteById(unreviewed.getId());
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package web20242.webcourse;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import web20242.webcourse.controller.CourseController;
+import web20242.webcourse.model.CourseOutlineItem;
+import web20242.webcourse.model.Lesson;
+import web20242.webcourse.model.Quizzes;
+import web20242.webcourse.model.constant.EStatus;
+import web20242.webcourse.model.createRequest.Question;
+import web20242.webcourse.model.createRequest.ReorderRequestDto;
+import web20242.webcourse.repository.LessonRepository;
+import web20242.webcourse.repository.QuizzesRepository;
+import web20242.webcourse.service.CourseOutlineService;
+import web20242.webcourse.service.CourseReorderService;
+
+import java.lang.management.ManagementFactory;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Mục lục khóa học lớn (500 bài học + 500 quiz) trên một database riêng, xóa sau mỗi test.
+// Thời gian tra tiến độ được đo bằng JMH (benchmark.CourseProgressBenchmark), ở đây chỉ kiểm tra kết quả
+// và lượng bộ nhớ cấp phát khi đọc mục lục.
+class CourseOutlineTests extends MongoIntegrationTest {
+	private static final Logger logger = LoggerFactory.getLogger(CourseOutlineTests.class);
+
+	@DynamicPropertySource
+	static void throwawayDatabase(DynamicPropertyRegistry registry) {
+		registry.add("spring.data.mongodb.database", () -> "course_outline_" + new ObjectId());
+	}
+
+	@Autowired
+	private CourseOutlineService courseOutlineService;
+
+	@Autowired
+	private CourseReorderService courseReorderService;
+
+	@Autowired
+	private CourseController courseController;
+
+	@Autowired
+	private LessonRepository lessonRepository;
+
+	@Autowired
+	private QuizzesRepository quizzesRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final ObjectId courseId = new ObjectId();
+	private final List<Lesson> lessons = new ArrayList<>();
+	private final List<Quizzes> quizzes = new ArrayList<>();
+
+	@AfterEach
+	void dropDatabase() {
+		mongoTemplate.getDb().drop();
+	}
+
+	// Học viên đã hoàn thành một nửa: mục lục đúng thứ tự, learned / notLearned chia đúng
+	@Test
+	void outlineOf500ItemCourseIsOrderedAndSplitByProgress() {
+		int size = 500;
+		seedLargeCourse(size);
+		ArrayList<ObjectId> completedIds = new ArrayList<>();
+		for (int i = 0; i < size; i += 2) {
+			completedIds.add(lessons.get(i).getId());
+			completedIds.add(quizzes.get(i).getId());
+		}
+
+		List<CourseOutlineItem> outline = courseOutlineService.getOutline(courseId);
+		assertEquals(2 * size, outline.size());
+		for (int i = 0; i < outline.size(); i++) {
+			assertEquals(i, outline.get(i).getOrder());
+		}
+		assertEquals(20, outline.get(1).getQuestionCount());
+
+		Map<String, Object> progress = courseOutlineService.withProgress(outline, completedIds);
+		Map<?, ?> learned = (Map<?, ?>) progress.get("learned");
+		Map<?, ?> notLearned = (Map<?, ?>) progress.get("notLearned");
+		assertEquals(size / 2, ((List<?>) learned.get("lessons")).size());
+		assertEquals(size / 2, ((List<?>) learned.get("quizzes")).size());
+		assertEquals(size / 2, ((List<?>) notLearned.get("lessons")).size());
+		assertEquals(size / 2, ((List<?>) notLearned.get("quizzes")).size());
+		List<?> items = (List<?>) progress.get("outline");
+		assertEquals(2 * size, items.size());
+		assertEquals(true, ((Map<?, ?>) items.get(0)).get("completed"));
+		assertEquals(false, ((Map<?, ?>) items.get(2)).get("completed"));
+	}
+
+	// Đảo ngược thứ tự 200 mục bằng một lượt bulk; thứ tự sai (thiếu mục, trùng mục, id lạ) bị từ chối, không ghi gì
+	@Test
+	void bulkReorderAppliesValidOrderAndRejectsInvalidOnes() {
+		seedLargeCourse(100);
+		List<ObjectId> reversed = new ArrayList<>(courseOutlineService.loadOutline(courseId).stream()
+				.map(CourseOutlineItem::getId).toList());
+		Collections.reverse(reversed);
+
+		// order ban đầu 0..199, order mới 1..200: chỉ mục ở vị trí 99 giữ nguyên order
+		assertEquals(199, courseReorderService.reorder(courseId, reversed));
+		List<CourseOutlineItem> outline = courseOutlineService.loadOutline(courseId);
+		for (int i = 0; i < outline.size(); i++) {
+			assertEquals(reversed.get(i), outline.get(i).getId());
+			assertEquals(i + 1, outline.get(i).getOrder());
+		}
+		assertEquals(0, courseReorderService.reorder(courseId, reversed));
+
+		List<ObjectId> missing = new ArrayList<>(reversed.subList(1, reversed.size()));
+		assertThrows(IllegalArgumentException.class, () -> courseReorderService.reorder(courseId, missing));
+		List<ObjectId> duplicated = new ArrayList<>(missing);
+		duplicated.add(missing.get(0));
+		assertThrows(IllegalArgumentException.class, () -> courseReorderService.reorder(courseId, duplicated));
+		List<ObjectId> foreign = new ArrayList<>(missing);
+		foreign.add(new ObjectId());
+		assertThrows(IllegalArgumentException.class, () -> courseReorderService.reorder(courseId, foreign));
+		// Hai mục cùng order sau khi đổi một phần
+		assertThrows(IllegalArgumentException.class, () -> courseReorderService.reorder(
+				Map.of(courseId, Map.of(reversed.get(0), 2))));
+		assertEquals(outline, courseOutlineService.loadOutline(courseId));
+	}
+
+	// Lỗi từ service (400 / 404) tới thẳng client, không bị bọc trong 200
+	@Test
+	void reorderEndpointsReturnServiceStatus() {
+		ReorderRequestDto request = new ReorderRequestDto();
+		request.setItemIds(List.of(new ObjectId().toHexString()));
+		Principal admin = () -> "admin";
+
+		assertEquals(HttpStatus.BAD_REQUEST, courseController.reorderCourse("not-an-id", request, admin).getStatusCode());
+		assertEquals(HttpStatus.NOT_FOUND,
+				courseController.reorderCourse(new ObjectId().toHexString(), request, admin).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST,
+				courseController.updateOrder("LESSON", "not-an-id", 1, admin).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST,
+				courseController.updateOrder(Map.of("not-an-id", "1"), admin).getStatusCode());
+	}
+
+	// Bộ nhớ cấp phát trên luồng gọi (driver MongoDB đồng bộ giải mã BSON trên luồng này):
+	// đọc nguyên document so với projection LessonOutline / QuizOutline cho khóa học 500 + 500 mục
+	@Test
+	void outlineProjectionAllocatesLessThanFullEntities() {
+		seedLargeCourse(500);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long fullBytes = 0;
+		long projectedBytes = 0;
+		// Lượt đầu để chạy nóng, đo lượt thứ hai
+		for (int round = 0; round < 2; round++) {
+			long before = threads.getCurrentThreadAllocatedBytes();
+			int fullCount = lessonRepository.findByCourseId(courseId).size() + quizzesRepository.findByCourseId(courseId).size();
+			fullBytes = threads.getCurrentThreadAllocatedBytes() - before;
+
+			before = threads.getCurrentThreadAllocatedBytes();
+			int projectedCount = lessonRepository.findOutlineByCourseIdOrderByOrderAsc(courseId).size()
+					+ quizzesRepository.findOutlineByCourseId(courseId).size();
+			projectedBytes = threads.getCurrentThreadAllocatedBytes() - before;
+			assertEquals(1000, fullCount);
+			assertEquals(fullCount, projectedCount);
+		}
+		logger.info("Outline of 1000 items allocated {} KB as full entities, {} KB as projections",
+				fullBytes / 1024, projectedBytes / 1024);
+		assertTrue(projectedBytes * 4 < fullBytes, "projected " + projectedBytes + "B, full " + fullBytes + "B");
+	}
+
+	// Khóa học lớn: bài học order chẵn (content 4KB), quiz order lẻ (20 câu hỏi)
+	private void seedLargeCourse(int size) {
+		for (int i = 0; i < size; i++) {
+			lessons.add(Lesson.builder().id(new ObjectId()).courseId(courseId).title("Bài " + i).shortTile("B" + i)
+					.content("x".repeat(4096)).status(EStatus.ACTIVE).order(2 * i).build());
+			ArrayList<Question> questions = new ArrayList<>();
+			for (int q = 0; q < 20; q++) {
+				questions.add(Question.builder().question("Câu " + q)
+						.options(new ArrayList<>(List.of("a", "b", "c", "d")))
+						.correctAnswer(new ArrayList<>(List.of("a"))).build());
+			}
+			quizzes.add(Quizzes.builder().id(new ObjectId()).courseId(courseId).title("Quiz " + i)
+					.questions(questions).passingScore(80.0).status(EStatus.ACTIVE).order(2 * i + 1).build());
+		}
+		lessonRepository.saveAll(lessons);
+		quizzesRepository.saveAll(quizzes);
+	}
+}
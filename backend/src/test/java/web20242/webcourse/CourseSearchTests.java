@@ -0,0 +1,52 @@
+package web20242.webcourse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.constant.EStatus;
+import web20242.webcourse.model.createRequest.CourseSearchRequest;
+import web20242.webcourse.repository.CourseRepository;
+import web20242.webcourse.service.CourseSearchService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Tìm kiếm không phân biệt dấu qua text index course_search_text (searchTitle được tính khi lưu)
+class CourseSearchTests extends MongoIntegrationTest {
+	@Autowired
+	private CourseSearchService courseSearchService;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	private final List<Course> courses = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		courseRepository.deleteAll(courses);
+	}
+
+	@Test
+	void keywordWithoutDiacriticsMatchesVietnameseTitle() {
+		Course course = save("Đào tạo kế toán doanh nghiệp");
+		save("Lập trình Java cơ bản");
+
+		for (String keyword : List.of("dao tao", "Đào Tạo", "DAO", "ke toan")) {
+			Page<Course> page = courseSearchService.search(CourseSearchRequest.builder().query(keyword)
+					.status(EStatus.ACTIVE).build(), PageRequest.of(0, 10));
+			assertEquals(List.of(course.getId()), page.getContent().stream().map(Course::getId).toList(), keyword);
+		}
+	}
+
+	private Course save(String title) {
+		Course course = courseRepository.save(Course.builder().title(title).description("Mô tả").status(EStatus.ACTIVE)
+				.categories(new ArrayList<>()).build());
+		courses.add(course);
+		return course;
+	}
+}
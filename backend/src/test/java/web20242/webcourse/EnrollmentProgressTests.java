@@ -0,0 +1,108 @@
+package web20242.webcourse;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.Enrollment;
+import web20242.webcourse.model.Lesson;
+import web20242.webcourse.model.User;
+import web20242.webcourse.model.constant.ERole;
+import web20242.webcourse.model.constant.EStatus;
+import web20242.webcourse.repository.CourseRepository;
+import web20242.webcourse.repository.EnrollmentRepository;
+import web20242.webcourse.repository.LessonRepository;
+import web20242.webcourse.repository.UserRepository;
+import web20242.webcourse.service.EnrollmentService;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Cập nhật tiến độ song song trên cùng một enrollment không làm mất lần cộng timeCurrent nào
+class EnrollmentProgressTests extends MongoIntegrationTest {
+	private static final int LESSONS = 20;
+	private static final int TIME_LIMIT = 5;
+
+	@Autowired
+	private EnrollmentService enrollmentService;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private LessonRepository lessonRepository;
+
+	@Autowired
+	private EnrollmentRepository enrollmentRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private Course course;
+	private User user;
+	private final List<Lesson> lessons = new ArrayList<>();
+
+	@BeforeEach
+	void seed() {
+		user = userRepository.save(User.builder().username("progress-" + new ObjectId()).role(ERole.ROLE_USER)
+				.status(EStatus.ACTIVE).build());
+		course = courseRepository.save(Course.builder().title("Khóa học").status(EStatus.ACTIVE).studentsCount(0)
+				.totalTimeLimit(LESSONS * TIME_LIMIT).build());
+		for (int i = 0; i < LESSONS; i++) {
+			lessons.add(lessonRepository.save(Lesson.builder().courseId(course.getId()).title("Bài " + i)
+					.status(EStatus.ACTIVE).order(i).timeLimit(TIME_LIMIT).build()));
+		}
+		enrollmentService.createEnrollment(user.getId(), course.getId().toHexString());
+	}
+
+	@AfterEach
+	void cleanUp() {
+		enrollmentRepository.deleteAll(enrollmentRepository.findByCourseId(course.getId()));
+		lessonRepository.deleteAll(lessons);
+		courseRepository.deleteById(course.getId());
+		userRepository.deleteById(user.getId());
+	}
+
+	// Mỗi bài học được báo hoàn thành hai lần, tất cả cùng lúc: mỗi bài chỉ được cộng đúng một lần
+	@Test
+	void concurrentLessonCompletionsAreCountedExactlyOnce() throws Exception {
+		String courseId = course.getId().toHexString();
+		Principal principal = user::getUsername;
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> tasks = new ArrayList<>();
+		try {
+			for (int repeat = 0; repeat < 2; repeat++) {
+				for (Lesson lesson : lessons) {
+					tasks.add(executor.submit(() -> {
+						start.await();
+						return enrollmentService.updateProgressForLesson(courseId, lesson.getId().toHexString(), principal);
+					}));
+				}
+			}
+			start.countDown();
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Enrollment enrollment = enrollmentRepository.findByUserIdAndCourseId(user.getId(), course.getId()).orElseThrow();
+		assertEquals(LESSONS * TIME_LIMIT, enrollment.getTimeCurrent());
+		assertEquals(LESSONS, enrollment.getLessonAndQuizId().size());
+		assertEquals(LESSONS, new HashSet<>(enrollment.getLessonAndQuizId()).size());
+		assertEquals(100.0, enrollment.getProgress(), 1e-9);
+		assertEquals(EStatus.DONE, enrollment.getStatus());
+	}
+}
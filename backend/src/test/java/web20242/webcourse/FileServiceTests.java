@@ -0,0 +1,134 @@
+package web20242.webcourse;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.Image;
+import web20242.webcourse.repository.ImageRepository;
+import web20242.webcourse.service.FileService;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// FileService với S3Client / MongoTemplate giả, không cần R2 hay MongoDB
+class FileServiceTests {
+	private static final String PUBLIC_URL = "https://files.example.com/";
+	private static final int PART_SIZE = 1024 * 1024;
+
+	private S3Client s3Client;
+	private ImageRepository imageRepository;
+	private MongoTemplate mongoTemplate;
+	private FileService fileService;
+	private final AtomicLong uploadedBytes = new AtomicLong();
+
+	@BeforeEach
+	void setUp() {
+		s3Client = mock(S3Client.class);
+		imageRepository = mock(ImageRepository.class);
+		mongoTemplate = mock(MongoTemplate.class);
+		fileService = new FileService(s3Client, imageRepository);
+		ReflectionTestUtils.setField(fileService, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(fileService, "bucketName", "webcourse");
+		ReflectionTestUtils.setField(fileService, "publicUrl", PUBLIC_URL);
+		ReflectionTestUtils.setField(fileService, "uploadPartSize", PART_SIZE);
+		ReflectionTestUtils.setField(fileService, "uploadMaxBytes", Long.MAX_VALUE);
+
+		when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+				.thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload").build());
+		// R2 đọc hết body của từng part
+		when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class))).thenAnswer(invocation -> {
+			RequestBody body = invocation.getArgument(1);
+			try (InputStream part = body.contentStreamProvider().newStream()) {
+				uploadedBytes.addAndGet(part.transferTo(OutputStream.nullOutputStream()));
+			}
+			return UploadPartResponse.builder().eTag("etag").build();
+		});
+		when(s3Client.headObject(any(HeadObjectRequest.class))).thenThrow(NoSuchKeyException.builder().build());
+	}
+
+	// 64 part được đẩy lên lần lượt: bộ nhớ cấp phát trong lúc upload chỉ cỡ vài part, không tỉ lệ với kích thước file
+	@Test
+	void streamingUploadAllocatesAboutOnePartRegardlessOfFileSize() throws Exception {
+		long size = 64L * PART_SIZE + 123;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+		// Lần chạy đầu nạp class của SDK / Mockito, không tính vào phép đo
+		fileService.uploadStreamR2(new GeneratedInputStream(2L * PART_SIZE), "warmup.mp4");
+		uploadedBytes.set(0);
+		clearInvocations(s3Client);
+
+		long before = threads.getCurrentThreadAllocatedBytes();
+		String url = fileService.uploadStreamR2(new GeneratedInputStream(size), "lecture.mp4");
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+		assertTrue(url.startsWith(PUBLIC_URL) && url.endsWith(".mp4"));
+		assertEquals(size, uploadedBytes.get());
+		verify(s3Client, times(65)).uploadPart(any(UploadPartRequest.class), any(RequestBody.class));
+		verify(s3Client).copyObject(any(CopyObjectRequest.class));
+		assertTrue(allocated < 4L * PART_SIZE, "allocated " + allocated + " bytes for a " + size + " byte upload");
+	}
+
+	// Object trên R2 vẫn được một khóa học dùng làm thumbnail: chỉ xóa các bản ghi Image, giữ lại object
+	@Test
+	void deleteByUrlKeepsObjectStillReferencedElsewhere() {
+		String url = PUBLIC_URL + "abc.png";
+		List<Image> duplicates = List.of(Image.builder().id(new ObjectId()).imageUrl(url).build(),
+				Image.builder().id(new ObjectId()).imageUrl(url).build());
+		when(imageRepository.findByImageUrl(url)).thenReturn(duplicates);
+		when(mongoTemplate.exists(any(Query.class), eq(Course.class))).thenReturn(true);
+
+		assertFalse(fileService.deleteFileByUrl(url));
+		verify(imageRepository).deleteAll(duplicates);
+		verify(s3Client, never()).deleteObject(any(DeleteObjectRequest.class));
+
+		when(mongoTemplate.exists(any(Query.class), eq(Course.class))).thenReturn(false);
+		assertTrue(fileService.deleteFileOnR2ByUrl(url));
+		verify(s3Client).deleteObject(DeleteObjectRequest.builder().bucket("webcourse").key("abc.png").build());
+	}
+
+	// Luồng dữ liệu sinh dần, không giữ cả file trong bộ nhớ
+	private static final class GeneratedInputStream extends InputStream {
+		private long remaining;
+
+		private GeneratedInputStream(long size) {
+			this.remaining = size;
+		}
+
+		@Override
+		public int read() {
+			if (remaining <= 0) {
+				return -1;
+			}
+			remaining--;
+			return (int) (remaining & 0xff);
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int count = (int) Math.min(length, remaining);
+			for (int i = 0; i < count; i++) {
+				remaining--;
+				buffer[offset + i] = (byte) remaining;
+			}
+			return count;
+		}
+	}
+}
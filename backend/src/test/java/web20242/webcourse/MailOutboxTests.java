@@ -0,0 +1,125 @@
+package web20242.webcourse;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import web20242.webcourse.model.MailMessage;
+import web20242.webcourse.model.constant.EMailStatus;
+import web20242.webcourse.service.EmailService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Gửi email qua MailOutbox tới một SMTP giả (GreenMail) thay cho Gmail thật
+class MailOutboxTests extends MongoIntegrationTest {
+	@RegisterExtension
+	static final GreenMailExtension SMTP = new GreenMailExtension(ServerSetupTest.SMTP)
+			.withConfiguration(GreenMailConfiguration.aConfig().withUser("outbox", "secret"));
+
+	@DynamicPropertySource
+	static void mailProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.mail.host", () -> "localhost");
+		registry.add("spring.mail.port", () -> ServerSetupTest.SMTP.getPort());
+		registry.add("spring.mail.username", () -> "outbox");
+		registry.add("spring.mail.password", () -> "secret");
+		registry.add("mail.outbox.backoff-seconds", () -> 0);
+		registry.add("mail.outbox.poll-seconds", () -> 1);
+	}
+
+	@Autowired
+	private EmailService emailService;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final List<String> recipients = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		mongoTemplate.remove(Query.query(Criteria.where("to").in(recipients)), MailMessage.class);
+	}
+
+	// OTP được render từ template mailOtp và tới hộp thư; bản ghi outbox chuyển sang SENT
+	@Test
+	void otpMailIsDeliveredThroughTheOutbox() throws Exception {
+		String recipient = recipient();
+		emailService.sendOtp("student", "482913", recipient);
+
+		assertTrue(SMTP.waitForIncomingEmail(10_000, 1));
+		MimeMessage received = SMTP.getReceivedMessages()[0];
+		assertEquals("Mã OTP từ Alpha Education", received.getSubject());
+		assertEquals(recipient, received.getAllRecipients()[0].toString());
+		assertTrue(GreenMailUtil.getBody(received).contains("482913"));
+
+		MailMessage stored = awaitStatus(recipient, EMailStatus.SENT);
+		assertEquals(1, stored.getAttempts());
+		assertNotNull(stored.getSentAt());
+		assertNull(stored.getVariables());
+	}
+
+	// SMTP không kết nối được: email quay về PENDING kèm lỗi, poller gửi lại khi SMTP hoạt động trở lại
+	@Test
+	void failedDeliveryIsRetriedByThePoller() throws Exception {
+		String recipient = recipient();
+		SMTP.stop();
+		emailService.sendOtp("student", "105274", recipient);
+
+		MailMessage pending = awaitAttempt(recipient);
+		assertNotEquals(EMailStatus.SENT, pending.getStatus());
+		assertNotNull(pending.getLastError());
+
+		SMTP.start();
+		assertTrue(SMTP.waitForIncomingEmail(15_000, 1));
+		assertTrue(GreenMailUtil.getBody(SMTP.getReceivedMessages()[0]).contains("105274"));
+		assertTrue(awaitStatus(recipient, EMailStatus.SENT).getAttempts() >= 2);
+	}
+
+	private String recipient() {
+		String recipient = "student-" + new ObjectId() + "@example.com";
+		recipients.add(recipient);
+		return recipient;
+	}
+
+	private MailMessage find(String recipient) {
+		return mongoTemplate.findOne(Query.query(Criteria.where("to").is(recipient)), MailMessage.class);
+	}
+
+	private MailMessage awaitStatus(String recipient, EMailStatus status) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		MailMessage message = find(recipient);
+		while ((message == null || message.getStatus() != status) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+			message = find(recipient);
+		}
+		assertNotNull(message);
+		assertEquals(status, message.getStatus());
+		return message;
+	}
+
+	// Chờ lần gửi đầu tiên thất bại (đã nhận, đã ghi lastError)
+	private MailMessage awaitAttempt(String recipient) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		MailMessage message = find(recipient);
+		while ((message == null || message.getLastError() == null) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+			message = find(recipient);
+		}
+		assertNotNull(message);
+		assertNotNull(message.getLastError());
+		return message;
+	}
+}
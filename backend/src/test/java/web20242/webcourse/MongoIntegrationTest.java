@@ -0,0 +1,27 @@
+package web20242.webcourse;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+// Test tích hợp chạy trên MongoDB tạm trong container (replica set một node nên dùng được transaction),
+// không đọc / ghi cluster dùng chung. Mọi lớp con dùng chung một container và một Spring context;
+// cả lớp bị bỏ qua khi máy không có Docker.
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class MongoIntegrationTest {
+	static final MongoDBContainer MONGO = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+	@DynamicPropertySource
+	static void mongoProperties(DynamicPropertyRegistry registry) {
+		registry.add("spring.data.mongodb.uri", () -> {
+			MONGO.start();
+			return MONGO.getReplicaSetUrl("webcourse_test");
+		});
+	}
+}
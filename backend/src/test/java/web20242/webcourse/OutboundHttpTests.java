@@ -0,0 +1,104 @@
+package web20242.webcourse;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import web20242.webcourse.configuration.HttpClientConfig;
+import web20242.webcourse.service.http.CircuitBreaker;
+import web20242.webcourse.service.http.OutboundHttpMetrics;
+import web20242.webcourse.service.http.RejectedCallException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// RestTemplate dùng chung (pool kết nối, timeout, metrics) và circuit breaker, gọi tới server HTTP giả cục bộ
+class OutboundHttpTests {
+	private final AtomicInteger failHits = new AtomicInteger();
+	private ExecutorService serverExecutor;
+	private HttpServer server;
+	private PoolingHttpClientConnectionManager connectionManager;
+	private String baseUrl;
+
+	// /ok trả 200, /slow trả lời sau 1 giây, /fail luôn trả 503
+	@BeforeEach
+	void startMockServer() throws Exception {
+		serverExecutor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(serverExecutor);
+		server.createContext("/ok", exchange -> {
+			byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.createContext("/slow", exchange -> {
+			try {
+				Thread.sleep(1000);
+			} catch (InterruptedException ignored) {
+			}
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+		});
+		server.createContext("/fail", exchange -> {
+			failHits.incrementAndGet();
+			byte[] body = "unavailable".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(503, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+		connectionManager = HttpClientConfig.connectionManager(10, 5, 1000);
+	}
+
+	@AfterEach
+	void stopMockServer() {
+		connectionManager.close();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	void outboundClientTimesOutAndRecordsLatency() {
+		OutboundHttpMetrics metrics = new OutboundHttpMetrics(connectionManager);
+		RestTemplate restTemplate = HttpClientConfig.buildRestTemplate("mock", connectionManager, 300, metrics);
+
+		assertEquals("ok", restTemplate.getForObject(baseUrl + "/ok", String.class));
+		assertEquals("ok", restTemplate.getForObject(baseUrl + "/ok", String.class));
+		assertThrows(ResourceAccessException.class, () -> restTemplate.getForObject(baseUrl + "/slow", String.class));
+
+		assertEquals(3, metrics.histogram("mock").count());
+		assertEquals(0, connectionManager.getTotalStats().getLeased());
+	}
+
+	@Test
+	void circuitBreakerStopsCallingFailingServer() throws Exception {
+		RestTemplate restTemplate = HttpClientConfig.buildRestTemplate("mock", connectionManager, 1000,
+				new OutboundHttpMetrics(connectionManager));
+		String failUrl = baseUrl + "/fail";
+		CircuitBreaker circuitBreaker = new CircuitBreaker("mock", 3, 60_000);
+
+		for (int i = 0; i < 3; i++) {
+			assertThrows(RestClientException.class,
+					() -> circuitBreaker.call(() -> restTemplate.getForObject(failUrl, String.class)));
+		}
+		assertThrows(RejectedCallException.class,
+				() -> circuitBreaker.call(() -> restTemplate.getForObject(failUrl, String.class)));
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state());
+		assertEquals(3, failHits.get());
+	}
+}
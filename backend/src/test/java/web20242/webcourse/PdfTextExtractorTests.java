@@ -0,0 +1,62 @@
+package web20242.webcourse;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+import web20242.webcourse.service.PdfTextExtractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Trích xuất text từ PDF dựng trong bộ nhớ: cùng nội dung lần hai lấy từ cache theo hash, không cần MongoDB
+class PdfTextExtractorTests {
+	private final PdfTextExtractor extractor = new PdfTextExtractor(1024, 500_000, 10, 60);
+
+	@Test
+	void samePdfIsParsedOnceThenServedFromCache() throws IOException {
+		byte[] pdf = pdf("Lap trinh Java");
+
+		String first = extractor.extractText(new ByteArrayInputStream(pdf));
+		String second = extractor.extractText(new ByteArrayInputStream(pdf));
+
+		assertTrue(first.contains("Lap trinh Java"), first);
+		assertTrue(first.endsWith(PdfTextExtractor.PAGE_SEPARATOR));
+		assertEquals(first, second);
+		Map<String, Object> stats = extractor.stats();
+		assertEquals(1L, ((Number) stats.get("misses")).longValue());
+		assertEquals(1L, ((Number) stats.get("hits")).longValue());
+	}
+
+	@Test
+	void invalidPdfIsRejectedAndNotCached() {
+		byte[] notPdf = "not a pdf".getBytes();
+
+		assertThrows(IOException.class, () -> extractor.extractText(new ByteArrayInputStream(notPdf)));
+		assertThrows(IOException.class, () -> extractor.extractText(new ByteArrayInputStream(notPdf)));
+		assertEquals(0L, ((Number) extractor.stats().get("hits")).longValue());
+	}
+
+	private static byte[] pdf(String line) throws IOException {
+		try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			PDPage page = new PDPage();
+			document.addPage(page);
+			try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+				content.beginText();
+				content.setFont(PDType1Font.HELVETICA, 12);
+				content.newLineAtOffset(72, 700);
+				content.showText(line);
+				content.endText();
+			}
+			document.save(out);
+			return out.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package web20242.webcourse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import web20242.webcourse.model.Quizzes;
+import web20242.webcourse.service.PdfTextExtractor;
+import web20242.webcourse.service.QuizGenerationService;
+import web20242.webcourse.service.llm.LlmClient;
+import web20242.webcourse.service.llm.QuizResultCache;
+
+import java.io.InterruptedIOException;
+import java.util.UUID;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+// Sinh quiz theo từng đoạn với LLM giả; cache kết quả dùng MongoTemplate giả (luôn trượt), không cần MongoDB
+class QuizGenerationServiceTests {
+	private static final int THREADS = 4;
+
+	private final AtomicInteger calls = new AtomicInteger();
+	private ExecutorService llmExecutor;
+
+	@BeforeEach
+	void setUp() {
+		llmExecutor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@AfterEach
+	void tearDown() {
+		llmExecutor.shutdownNow();
+	}
+
+	// Mỗi lời gọi chờ ở barrier cho tới khi đủ THREADS lời gọi cùng chạy: chỉ qua được nếu các đoạn chạy song song.
+	// Câu hỏi "Câu chung" lặp ở mọi đoạn chỉ giữ một lần, thời gian làm bài là tổng của các đoạn.
+	@Test
+	void chunksRunConcurrentlyAndMergeIntoOneQuiz() throws Exception {
+		CyclicBarrier allRunning = new CyclicBarrier(THREADS);
+		LlmClient model = prompt -> {
+			try {
+				allRunning.await(30, TimeUnit.SECONDS);
+			} catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+				throw new InterruptedIOException("chunks did not run concurrently: " + e);
+			}
+			return quizJson(calls.incrementAndGet());
+		};
+		QuizGenerationService service = service(model);
+
+		for (int chunks : new int[]{4, 8}) {
+			calls.set(0);
+			Quizzes quiz = service.generateQuiz(pages(chunks), "pdf-url", false);
+
+			assertEquals(chunks, calls.get());
+			assertEquals(chunks + 1, quiz.getQuestions().size());
+			assertEquals(10 * chunks, quiz.getTimeLimit());
+		}
+	}
+
+	@Test
+	void singleChunkKeepsItsOwnTimeLimit() throws Exception {
+		Quizzes quiz = service(prompt -> quizJson(calls.incrementAndGet())).generateQuiz(pages(1), "pdf-url", false);
+
+		assertEquals(1, calls.get());
+		assertEquals(2, quiz.getQuestions().size());
+		assertEquals(10, quiz.getTimeLimit());
+	}
+
+	private QuizGenerationService service(LlmClient model) {
+		QuizResultCache cache = new QuizResultCache(mock(MongoTemplate.class), 100, 1);
+		return new QuizGenerationService(model, new ObjectMapper(), null, null, cache, llmExecutor, 100);
+	}
+
+	// Mỗi trang ~100 token, ngân sách 100 token: mỗi trang là một đoạn; nội dung khác nhau để không trúng cache
+	private static String pages(int count) {
+		StringBuilder pages = new StringBuilder();
+		for (int page = 0; page < count; page++) {
+			pages.append(UUID.randomUUID()).append("x".repeat(300)).append(PdfTextExtractor.PAGE_SEPARATOR);
+		}
+		return pages.toString();
+	}
+
+	private static String quizJson(int call) {
+		return "{\"title\":\"Quiz\",\"timeLimit\":10,\"questions\":["
+				+ "{\"question\":\"Câu riêng " + call + "\",\"options\":[],\"correctAnswer\":[\"x\"]},"
+				+ "{\"question\":\"  Câu  CHUNG \",\"options\":[],\"correctAnswer\":[\"x\"]}]}";
+	}
+}
@@ -0,0 +1,170 @@
+package web20242.webcourse;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.s3.S3Client;
+import web20242.webcourse.controller.QuizController;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.QuizGenerationJob;
+import web20242.webcourse.model.Quizzes;
+import web20242.webcourse.model.constant.EJobStatus;
+import web20242.webcourse.model.constant.EQuestion;
+import web20242.webcourse.model.constant.EStatus;
+import web20242.webcourse.repository.CourseRepository;
+import web20242.webcourse.repository.QuizzesRepository;
+import web20242.webcourse.service.QuizJobService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Job sinh quiz chạy hết pipeline mà không cần mạng: StubLlmClient thay Gemini, S3Client giả thay R2
+@TestPropertySource(properties = "llm.provider=stub")
+class QuizJobTests extends MongoIntegrationTest {
+	@MockBean
+	private S3Client s3Client;
+
+	@Autowired
+	private QuizController quizController;
+
+	@Autowired
+	private QuizJobService quizJobService;
+
+	@Autowired
+	private CourseRepository courseRepository;
+
+	@Autowired
+	private QuizzesRepository quizzesRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private Course course;
+
+	private final Authentication teacher = authentication("teacher-" + new ObjectId(), "ROLE_TEACHER");
+
+	@BeforeEach
+	void seed() {
+		course = courseRepository.save(Course.builder().title("Khóa học").status(EStatus.ACTIVE).totalTimeLimit(0)
+				.lessons(new ArrayList<>()).quizzes(new ArrayList<>()).categories(new ArrayList<>()).build());
+	}
+
+	@AfterEach
+	void cleanUp() {
+		mongoTemplate.remove(Query.query(Criteria.where("courseId").is(course.getId())), QuizGenerationJob.class);
+		mongoTemplate.remove(Query.query(Criteria.where("courseId").is(course.getId())), Quizzes.class);
+		courseRepository.deleteById(course.getId());
+	}
+
+	@Test
+	void jobGeneratesQuizWithStubLlm() throws Exception {
+		MockMultipartFile pdf = new MockMultipartFile("files", "bai-1.pdf", "application/pdf", pdf("Bai hoc so 1"));
+		ResponseEntity<?> submitted = quizController.submitQuizJob(List.of(pdf), course.getId().toHexString(),
+				EQuestion.SINGLE_CHOICE, false, teacher);
+		assertEquals(HttpStatus.ACCEPTED, submitted.getStatusCode());
+		ObjectId jobId = (ObjectId) ((Map<?, ?>) submitted.getBody()).get("jobId");
+
+		QuizGenerationJob job = awaitFinished(jobId);
+		assertEquals(EJobStatus.SUCCEEDED, job.getStatus());
+		ObjectId quizId = job.getFiles().get(0).getQuizId();
+		Quizzes quiz = quizzesRepository.findById(quizId).orElseThrow();
+		assertEquals("Stub quiz", quiz.getTitle());
+		assertEquals(course.getId(), quiz.getCourseId());
+		Course saved = courseRepository.findById(course.getId()).orElseThrow();
+		assertEquals(List.of(quizId), saved.getQuizzes());
+		assertEquals(30, saved.getTotalTimeLimit());
+
+		// Người tạo và admin xem được, giáo viên khác thì không
+		assertEquals(HttpStatus.OK, quizController.getQuizJob(jobId.toHexString(), teacher).getStatusCode());
+		assertEquals(HttpStatus.OK, quizController.getQuizJob(jobId.toHexString(),
+				authentication("admin", "ROLE_ADMIN")).getStatusCode());
+		Authentication otherTeacher = authentication("teacher-" + new ObjectId(), "ROLE_TEACHER");
+		assertEquals(HttpStatus.FORBIDDEN, quizController.getQuizJob(jobId.toHexString(), otherTeacher).getStatusCode());
+		assertEquals(HttpStatus.FORBIDDEN, quizController.streamQuizJob(jobId.toHexString(), otherTeacher).getStatusCode());
+	}
+
+	@Test
+	void malformedIdsAreBadRequests() throws Exception {
+		assertEquals(HttpStatus.BAD_REQUEST, quizController.getQuizJob("not-an-id", teacher).getStatusCode());
+		assertEquals(HttpStatus.BAD_REQUEST, quizController.streamQuizJob("not-an-id", teacher).getStatusCode());
+		MockMultipartFile pdf = new MockMultipartFile("files", "bai-1.pdf", "application/pdf", pdf("Bai hoc"));
+		assertEquals(HttpStatus.BAD_REQUEST, quizController.submitQuizJob(List.of(pdf), "not-an-id",
+				EQuestion.SINGLE_CHOICE, false, teacher).getStatusCode());
+	}
+
+	// Khởi động lại: job dở dang của instance này bị đánh dấu FAILED ngay, job của instance khác giữ nguyên
+	@Test
+	void startupFailsOnlyThisInstancesUnfinishedJobs() {
+		String instanceId = (String) ReflectionTestUtils.getField(quizJobService, "instanceId");
+		QuizGenerationJob own = insertJob(instanceId, EJobStatus.RUNNING);
+		QuizGenerationJob queued = insertJob(instanceId, EJobStatus.QUEUED);
+		QuizGenerationJob other = insertJob("another-instance", EJobStatus.RUNNING);
+
+		quizJobService.failInterruptedJobs();
+
+		assertEquals(EJobStatus.FAILED, quizJobService.getJob(own.getId()).getStatus());
+		assertEquals(EJobStatus.FAILED, quizJobService.getJob(queued.getId()).getStatus());
+		assertEquals(EJobStatus.RUNNING, quizJobService.getJob(other.getId()).getStatus());
+	}
+
+	private QuizGenerationJob insertJob(String instanceId, EJobStatus status) {
+		LocalDateTime now = LocalDateTime.now();
+		return mongoTemplate.insert(QuizGenerationJob.builder().courseId(course.getId()).createdBy("teacher")
+				.instanceId(instanceId).status(status).files(new ArrayList<>()).createdAt(now).updatedAt(now).build());
+	}
+
+	private QuizGenerationJob awaitFinished(ObjectId jobId) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30_000;
+		QuizGenerationJob job = quizJobService.getJob(jobId);
+		while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+			job = quizJobService.getJob(jobId);
+		}
+		assertTrue(job.isFinished(), "job still " + job.getStatus());
+		return job;
+	}
+
+	private static Authentication authentication(String username, String role) {
+		return new UsernamePasswordAuthenticationToken(username, "", List.of(new SimpleGrantedAuthority(role)));
+	}
+
+	private static byte[] pdf(String text) throws IOException {
+		try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+			PDPage page = new PDPage();
+			document.addPage(page);
+			try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+				content.beginText();
+				content.setFont(PDType1Font.HELVETICA, 12);
+				content.newLineAtOffset(72, 700);
+				content.showText(text);
+				content.endText();
+			}
+			document.save(out);
+			return out.toByteArray();
+		}
+	}
+}
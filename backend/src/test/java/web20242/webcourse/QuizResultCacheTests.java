@@ -0,0 +1,91 @@
+package web20242.webcourse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import web20242.webcourse.model.LlmResult;
+import web20242.webcourse.service.llm.QuizResultCache;
+
+import java.io.InterruptedIOException;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// QuizResultCache trên MongoTemplate giả: không đọc / ghi collection llm_results thật
+class QuizResultCacheTests {
+	private MongoTemplate mongoTemplate;
+	private QuizResultCache cache;
+	private final AtomicInteger calls = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		mongoTemplate = mock(MongoTemplate.class);
+		cache = new QuizResultCache(mongoTemplate, 100, 1);
+	}
+
+	// Hai request giống nhau cùng lúc chỉ gọi LLM một lần; request sau đó lấy từ cache
+	@Test
+	void identicalRequestsAreCoalesced() throws Exception {
+		String promptHash = QuizResultCache.promptHash("prompt");
+		QuizResultCache.Loader slowLoader = () -> {
+			calls.incrementAndGet();
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+			return "{}";
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(() -> cache.get(promptHash, "STANDARD", "test", slowLoader));
+			Future<String> second = executor.submit(() -> cache.get(promptHash, "STANDARD", "test", slowLoader));
+			assertEquals("{}", first.get());
+			assertEquals("{}", second.get());
+			assertEquals("{}", cache.get(promptHash, "STANDARD", "test", slowLoader));
+			assertEquals(1, calls.get());
+			verify(mongoTemplate, times(1)).save(any(LlmResult.class));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	// Cùng nội dung PDF nhưng mẫu prompt khác (sửa prompt, đổi phiên bản): khóa khác, phải gọi lại LLM
+	@Test
+	void changedPromptTemplateMissesTheCache() throws Exception {
+		String content = "Nội dung PDF";
+		String oldHash = QuizResultCache.promptHash("Tạo quiz v1:\n" + content);
+		String newHash = QuizResultCache.promptHash("Tạo quiz v2:\n" + content);
+		assertNotEquals(oldHash, newHash);
+
+		assertEquals("v1", cache.get(oldHash, "STANDARD", "test", () -> "v" + calls.incrementAndGet()));
+		assertEquals("v2", cache.get(newHash, "STANDARD", "test", () -> "v" + calls.incrementAndGet()));
+		assertEquals("v1", cache.get(oldHash, "STANDARD", "test", () -> "v" + calls.incrementAndGet()));
+		assertEquals(2, calls.get());
+	}
+
+	// Không có trong bộ nhớ nhưng instance khác đã lưu vào MongoDB: dùng lại, không gọi LLM
+	@Test
+	void storedResultIsReusedWithoutCallingTheModel() throws Exception {
+		String promptHash = QuizResultCache.promptHash("prompt");
+		Date now = new Date();
+		when(mongoTemplate.findOne(any(Query.class), eq(LlmResult.class))).thenReturn(new LlmResult(
+				"STANDARD:test:" + promptHash, promptHash, "STANDARD", "test", "{\"title\":\"Quiz\"}", now, now));
+
+		assertEquals("{\"title\":\"Quiz\"}", cache.get(promptHash, "STANDARD", "test", () -> {
+			calls.incrementAndGet();
+			return "{}";
+		}));
+		assertEquals(0, calls.get());
+		verify(mongoTemplate, never()).save(any(LlmResult.class));
+	}
+}
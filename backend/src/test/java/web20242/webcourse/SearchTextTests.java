@@ -0,0 +1,21 @@
+package web20242.webcourse;
+
+import org.junit.jupiter.api.Test;
+import web20242.webcourse.service.search.SearchText;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SearchTextTests {
+
+	// Bỏ mọi dấu thanh / dấu mũ, đ / Đ thành d, viết thường; chữ không dấu giữ nguyên
+	@Test
+	void foldsVietnameseDiacriticsIncludingD() {
+		assertEquals("dao tao lap trinh", SearchText.fold("Đào tạo lập trình"));
+		assertEquals("dao tao", SearchText.fold("ĐÀO TẠO"));
+		assertEquals("tieng viet co ban", SearchText.fold("Tiếng Việt cơ bản"));
+		assertEquals("nguyen uu", SearchText.fold("Nguyễn Ưu"));
+		assertEquals("java spring boot 3", SearchText.fold("Java Spring Boot 3"));
+		assertNull(SearchText.fold(null));
+	}
+}
@@ -0,0 +1,25 @@
+package web20242.webcourse;
+
+import org.junit.jupiter.api.Test;
+import web20242.webcourse.service.cache.TtlCache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TtlCacheTests {
+
+	// Invalidate xảy ra trong lúc loader đang đọc: giá trị cũ vẫn được trả về cho lần gọi đó nhưng không được cache
+	@Test
+	void valueLoadedAcrossAnInvalidationIsNotCached() {
+		TtlCache<String, String> cache = new TtlCache<>("test", 10, 60_000);
+		String loaded = cache.get("course", key -> {
+			cache.invalidate(key);
+			return "stale";
+		});
+		assertEquals("stale", loaded);
+		assertNull(cache.getIfPresent("course"));
+
+		assertEquals("fresh", cache.get("course", key -> "fresh"));
+		assertEquals("fresh", cache.getIfPresent("course"));
+	}
+}
@@ -1,15 +1,28 @@
 package web20242.webcourse;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.test.context.ActiveProfiles;
-import org.springframework.test.context.ContextConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import web20242.webcourse.service.QueryPlanReportService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebcourseApplicationTests extends MongoIntegrationTest {
+	@Autowired
+	private QueryPlanReportService queryPlanReportService;
 
-@SpringBootTest
-@ActiveProfiles("test")
-class WebcourseApplicationTests {
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void repositoryQueriesUseIndexes() {
+		List<Map<String, Object>> report = queryPlanReportService.report();
+		assertEquals(Map.of(), QueryPlanReportService.errors(report), "Queries that could not be explained");
+		List<String> scans = QueryPlanReportService.collectionScans(report);
+		assertTrue(scans.isEmpty(), "Queries falling back to COLLSCAN: " + scans);
+	}
 }
@@ -0,0 +1,86 @@
+package web20242.webcourse.benchmark;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import web20242.webcourse.model.CourseOutlineItem;
+import web20242.webcourse.service.CourseOutlineService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Tra tiến độ học viên trên mục lục khóa học (một nửa số mục đã hoàn thành), không cần MongoDB:
+//  - listContains: cách cũ, ArrayList.contains trên danh sách id đã hoàn thành cho từng mục
+//  - hashSetContains: đưa id đã hoàn thành vào HashSet một lần rồi tra từng mục
+//  - withProgress: cả CourseOutlineService.withProgress (HashSet + dựng learned / notLearned / outline)
+// Chạy: mvn test-compile, rồi
+//   java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+//        web20242.webcourse.benchmark.CourseProgressBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourseProgressBenchmark {
+    @Param({"100", "500", "1000"})
+    private int items;
+
+    private final CourseOutlineService courseOutlineService = new CourseOutlineService();
+    private List<CourseOutlineItem> outline;
+    private ArrayList<ObjectId> completedIds;
+
+    // Bài học order chẵn, quiz order lẻ; học viên đã hoàn thành các mục ở vị trí chẵn
+    @Setup
+    public void setUp() {
+        outline = new ArrayList<>(items);
+        completedIds = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            String type = i % 2 == 0 ? CourseOutlineService.LESSON : CourseOutlineService.QUIZ;
+            CourseOutlineItem item = CourseOutlineItem.builder().type(type).id(new ObjectId()).title("Mục " + i)
+                    .order(i).build();
+            outline.add(item);
+            if (i % 2 == 0) {
+                completedIds.add(item.getId());
+            }
+        }
+    }
+
+    @Benchmark
+    public int listContains() {
+        int hits = 0;
+        for (CourseOutlineItem item : outline) {
+            if (completedIds.contains(item.getId())) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int hashSetContains() {
+        Set<ObjectId> completed = new HashSet<>(completedIds);
+        int hits = 0;
+        for (CourseOutlineItem item : outline) {
+            if (completed.contains(item.getId())) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public Map<String, Object> withProgress() {
+        return courseOutlineService.withProgress(outline, completedIds);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CourseProgressBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,117 @@
+package web20242.webcourse.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+import web20242.webcourse.configuration.MongoIndexCatalog;
+import web20242.webcourse.model.Course;
+import web20242.webcourse.model.constant.EStatus;
+import web20242.webcourse.model.createRequest.CourseSearchRequest;
+import web20242.webcourse.service.CourseSearchService;
+import web20242.webcourse.service.search.SearchText;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Tìm khóa học theo từ khóa trên 100k khóa học (MongoDB 7 trong Testcontainers, cần Docker):
+//  - textSearch: CourseSearchService.search, $text trên text index course_search_text (từ khóa đã bỏ dấu)
+//  - titleRegex: cách cũ, findByTitleContainingIgnoreCase (regex không neo, không phân biệt hoa thường trên title,
+//    quét toàn bộ collection) cùng truy vấn đếm tổng cho Page. Phương thức repository đã bị xóa nên dựng lại
+//    đúng hai truy vấn mà Spring Data sinh ra cho nó.
+// Chạy: mvn test-compile, rồi
+//   java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+//        web20242.webcourse.benchmark.CourseSearchBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CourseSearchBenchmark {
+    private static final int COURSES = 100_000;
+    private static final String[] WORDS = {"Lập trình", "Java", "Đào tạo", "Kế toán", "Tiếng Anh", "Thiết kế",
+            "đồ họa", "Quản trị", "mạng", "Dữ liệu", "Phân tích", "kinh doanh", "Marketing", "cơ bản", "nâng cao",
+            "Python", "Nhiếp ảnh", "Tài chính", "Đầu tư", "Giao tiếp"};
+
+    // Từ khóa như người dùng gõ: có dấu (so khớp được bằng cả hai cách) và chữ thường không dấu
+    @Param({"Đào tạo", "java"})
+    private String keyword;
+
+    private MongoDBContainer mongo;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private CourseSearchService courseSearchService;
+    private final Pageable firstPage = PageRequest.of(0, 20);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+        mongo.start();
+        client = MongoClients.create(mongo.getReplicaSetUrl("course_search_benchmark"));
+        mongoTemplate = new MongoTemplate(client, "course_search_benchmark");
+        courseSearchService = new CourseSearchService();
+        ReflectionTestUtils.setField(courseSearchService, "mongoTemplate", mongoTemplate);
+
+        // Không có ApplicationContext nên CourseSearchFieldsCallback không chạy, tự tính searchTitle / searchDescription
+        Random random = new Random(42);
+        List<Course> batch = new ArrayList<>();
+        for (int i = 0; i < COURSES; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 20; w++) {
+                description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            batch.add(Course.builder().id(new ObjectId()).title(title).description(description.toString())
+                    .searchTitle(SearchText.fold(title)).searchDescription(SearchText.fold(description.toString()))
+                    .status(EStatus.ACTIVE).price((double) random.nextInt(500)).categories(new ArrayList<>())
+                    .build());
+            if (batch.size() == 10_000) {
+                mongoTemplate.insert(batch, Course.class);
+                batch.clear();
+            }
+        }
+        mongoTemplate.insert(batch, Course.class);
+        mongoTemplate.indexOps(Course.class).ensureIndex(MongoIndexCatalog.courseSearchText());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        mongo.stop();
+    }
+
+    @Benchmark
+    public Page<Course> textSearch() {
+        return courseSearchService.search(CourseSearchRequest.builder().query(keyword).build(), firstPage);
+    }
+
+    @Benchmark
+    public Page<Course> titleRegex() {
+        Query query = new Query(Criteria.where("title").regex(Pattern.quote(keyword), "i"));
+        List<Course> content = mongoTemplate.find(Query.of(query).with(firstPage), Course.class);
+        long total = mongoTemplate.count(query, Course.class);
+        return new PageImpl<>(content, firstPage, total);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CourseSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,116 @@
+package web20242.webcourse.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.http.Cookie;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+import web20242.webcourse.security.dto.AuthenticatedUser;
+import web20242.webcourse.security.jwt.JwtAuthenticationFilter;
+import web20242.webcourse.security.service.JwtService;
+import web20242.webcourse.security.service.PrincipalCache;
+
+import javax.crypto.SecretKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Chi phí xác thực một request bằng cookie JWT:
+//  - parseTokenOnce: JwtService.parseToken hiện tại, key và parser tạo sẵn, một lần kiểm tra chữ ký lấy luôn claims
+//  - parseTokenTwice: validateToken rồi extractUsername với key / parser tạo sẵn (kiểm tra chữ ký hai lần)
+//  - parseTokenRebuildingKey: JwtService cũ, mỗi lần parse giải mã base64 secret, tạo key HMAC và dựng parser mới
+//  - validateThenExtractRebuildingKey: filter cũ, hai lần parse như trên cho mỗi request
+//  - filterWithCachedPrincipal: cả JwtAuthenticationFilter, UserDetails lấy từ PrincipalCache
+// Chạy: mvn test-compile, rồi
+//   java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+//        web20242.webcourse.benchmark.JwtFilterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+    private JwtService jwtService;
+    private JwtAuthenticationFilter filter;
+    private String secretKey;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        byte[] secret = new byte[32];
+        for (int i = 0; i < secret.length; i++) {
+            secret[i] = (byte) i;
+        }
+        secretKey = Base64.getEncoder().encodeToString(secret);
+        ReflectionTestUtils.setField(jwtService, "secretKey", secretKey);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        AuthenticatedUser user = new AuthenticatedUser("student", "", List.of(new SimpleGrantedAuthority("ROLE_USER")),
+                new ObjectId());
+        token = jwtService.generateToken(user);
+        UserDetailsService userDetailsService = username -> new AuthenticatedUser(username, "",
+                user.getAuthorities(), user.getUserId());
+        filter = new JwtAuthenticationFilter(jwtService, userDetailsService, new PrincipalCache(1000, 60));
+    }
+
+    @Benchmark
+    public Object parseTokenOnce() {
+        return jwtService.parseToken(token);
+    }
+
+    @Benchmark
+    public void parseTokenTwice(Blackhole blackhole) {
+        blackhole.consume(jwtService.validateToken(token));
+        blackhole.consume(jwtService.extractUsername(token));
+    }
+
+    @Benchmark
+    public Object parseTokenRebuildingKey() {
+        return parseWithNewParser(token);
+    }
+
+    @Benchmark
+    public void validateThenExtractRebuildingKey(Blackhole blackhole) {
+        blackhole.consume(parseWithNewParser(token).getExpiration().after(new Date()));
+        blackhole.consume(parseWithNewParser(token).getSubject());
+    }
+
+    // Đường parse của JwtService trước khi key / parser được tạo một lần lúc khởi động
+    private Claims parseWithNewParser(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+
+    @Benchmark
+    public Object filterWithCachedPrincipal() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/course");
+        request.setCookies(new Cookie("jwtToken", token));
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -233,12 +233,6 @@ export default function CourseDetailPage() {
   const [error, setError] = useState<string | null>(null);
   const [activeTab, setActiveTab] = useState('lessons');
   const [deleteModalOpen, setDeleteModalOpen] = useState(false);
-
-  const [isReorderingLessons, setIsReorderingLessons] = useState(false);
-
-  const [isReorderingQuizzes, setIsReorderingQuizzes] = useState(false);
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const [savingOrder, setSavingOrder] = useState(false);
   const [analyticsData, setAnalyticsData] = useState<{
     totalViews: number;
     completionRate: number;
@@ -624,180 +618,6 @@ export default function CourseDetailPage() {
       setLoading(false);
     }
   };
-  
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const toggleReorderingLessons = () => {
-    setIsReorderingLessons(!isReorderingLessons);
-  };
-  
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const moveLessonUp = (index: number) => {
-    if (index <= 0 || !course || !course.lessons) return;
-    
-    const updatedLessons = [...course.lessons];
-    const temp = updatedLessons[index];
-    updatedLessons[index] = updatedLessons[index - 1];
-    updatedLessons[index - 1] = temp;
-    
-    setCourse({
-      ...course,
-      lessons: updatedLessons
-    });
-  };
-  
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const moveLessonDown = (index: number) => {
-    if (!course || !course.lessons || index >= course.lessons.length - 1) return;
-    
-    const updatedLessons = [...course.lessons];
-    const temp = updatedLessons[index];
-    updatedLessons[index] = updatedLessons[index + 1];
-    updatedLessons[index + 1] = temp;
-    
-    setCourse({
-      ...course,
-      lessons: updatedLessons
-    });
-  };
-  
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const saveLessonOrder = async () => {
-    if (!course) return;
-    
-    try {
-      setSavingOrder(true);
-      
-      // Create order object according to the API format
-      const orderData: Record<string, string> = {};
-      
-      // Add lessons to order object
-      course.lessons.forEach((lesson, index) => {
-        const lessonId = typeof lesson === 'object' ? (lesson._id || lesson.lessonId) : lesson;
-        if (lessonId) {
-          orderData[lessonId] = String(index + 1); // Convert order to string as shown in Postman
-        }
-      });
-      
-      console.log("Order data to send:", orderData);
-      
-      // Call the API to update the order
-      const response = await fetch(`${API_BASE_URL}/course/update-order-list`, {
-        method: 'PUT',
-        credentials: 'include',
-        headers: {
-          'Content-Type': 'application/json'
-        },
-        body: JSON.stringify(orderData)
-      });
-      
-      if (!response.ok) {
-        throw new Error('Không thể cập nhật thứ tự bài học');
-      }
-      
-      setIsReorderingLessons(false);
-      
-      // Show success message
-      toast.success('Thứ tự bài học đã được cập nhật thành công');
-      
-      // Fetch both detailed course data and lessons/quizzes data
-      await fetchCourse();
-      if (course) {
-        await fetchLessonsAndQuizzes(course);
-      }
-    } catch (error) {
-      console.error('Failed to save lesson order:', error);
-      toast.error('Không thể cập nhật thứ tự bài học. Vui lòng thử lại sau.');
-    } finally {
-      setSavingOrder(false);
-    }
-  };
-
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const toggleReorderingQuizzes = () => {
-    setIsReorderingQuizzes(!isReorderingQuizzes);
-  };
-  
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const moveQuizUp = (index: number) => {
-    if (index <= 0 || !course || !course.quizzes) return;
-    
-    const updatedQuizzes = [...course.quizzes];
-    const temp = updatedQuizzes[index];
-    updatedQuizzes[index] = updatedQuizzes[index - 1];
-    updatedQuizzes[index - 1] = temp;
-    
-    setCourse({
-      ...course,
-      quizzes: updatedQuizzes
-    });
-  };
-  
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const moveQuizDown = (index: number) => {
-    if (!course || !course.quizzes || index >= course.quizzes.length - 1) return;
-    
-    const updatedQuizzes = [...course.quizzes];
-    const temp = updatedQuizzes[index];
-    updatedQuizzes[index] = updatedQuizzes[index + 1];
-    updatedQuizzes[index + 1] = temp;
-    
-    setCourse({
-      ...course,
-      quizzes: updatedQuizzes
-    });
-  };
-  
-  // eslint-disable-next-line @typescript-eslint/no-unused-vars
-  const saveQuizOrder = async () => {
-    if (!course) return;
-    
-    try {
-      setSavingOrder(true);
-      
-      // Create order object according to the API format
-      const orderData: Record<string, string> = {};
-      
-      // Add quizzes to order object
-      course.quizzes.forEach((quiz, index) => {
-        const quizId = typeof quiz === 'object' ? (quiz._id || quiz.quizId) : quiz;
-        if (quizId) {
-          orderData[quizId] = String(index + 1); // Convert order to string as shown in Postman
-        }
-      });
-      
-      console.log("Order data to send:", orderData);
-      
-      // Call the API to update the order
-      const response = await fetch(`${API_BASE_URL}/course/update-order-list`, {
-        method: 'PUT',
-        credentials: 'include',
-        headers: {
-          'Content-Type': 'application/json'
-        },
-        body: JSON.stringify(orderData)
-      });
-      
-      if (!response.ok) {
-        throw new Error('Không thể cập nhật thứ tự bài kiểm tra');
-      }
-      
-      setIsReorderingQuizzes(false);
-      
-      // Show success message
-      toast.success('Thứ tự bài kiểm tra đã được cập nhật thành công');
-      
-      // Fetch both detailed course data and lessons/quizzes data
-      await fetchCourse();
-      if (course) {
-        await fetchLessonsAndQuizzes(course);
-      }
-    } catch (error) {
-      console.error('Failed to save quiz order:', error);
-      toast.error('Không thể cập nhật thứ tự bài kiểm tra. Vui lòng thử lại sau.');
-    } finally {
-      setSavingOrder(false);
-    }
-  };
 
   // Add function to handle student deletion
   // const handleStudentDelete = async () => {
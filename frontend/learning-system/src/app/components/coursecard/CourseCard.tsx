@@ -58,14 +58,7 @@ const CourseCard: React.FC<CourseCardProps> = ({
   };
 
   // Safely get students count
-  const getStudentsCount = () => {
-    if (Array.isArray(course.studentsEnrolled)) {
-      return course.studentsEnrolled.length;
-    } else if (typeof course.studentsCount === 'number') {
-      return course.studentsCount;
-    }
-    return 0;
-  };
+  const getStudentsCount = () => course.studentsCount ?? 0;
 
   // Course ID for link
   const courseId = course._id || course.id;
@@ -65,7 +65,7 @@ const CourseCardGrid: React.FC<CourseCardGridProps> = ({ course }) => {
               className="mb-1.5"
             />
             <span className="text-center line-clamp-1">
-              {course.studentsEnrolled.length} Students
+              {course.studentsCount ?? 0} Students
             </span>
           </div>
         </div>
@@ -49,17 +49,7 @@ export default function CourseItem({ course }: CourseItemProps) {
   };
   
   // Helper function to get students count safely
-  const getStudentsCount = () => {
-    if (course.studentsCount !== undefined) {
-      return course.studentsCount;
-    }
-    
-    if (!course.studentsEnrolled) {
-      return 0;
-    }
-    
-    return Array.isArray(course.studentsEnrolled) ? course.studentsEnrolled.length : 0;
-  };
+  const getStudentsCount = () => course.studentsCount ?? 0;
   
   // Use courseId from either _id or id property
   const courseId = course._id || course.id;